@@ -27,35 +27,67 @@
 package org.snt.inmemantlr;
 
 import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
 import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTreeListener;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.tool.Grammar;
 import org.antlr.v4.tool.ast.GrammarRootAST;
 import org.apache.commons.io.FileExistsException;
 import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snt.inmemantlr.cache.DfaCache;
+import org.snt.inmemantlr.cache.DfaCachePolicy;
 import org.snt.inmemantlr.comp.*;
 import org.snt.inmemantlr.exceptions.*;
+import org.snt.inmemantlr.listener.CompositeListener;
 import org.snt.inmemantlr.listener.DefaultListener;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
 import org.snt.inmemantlr.memobjects.GenericParserSerialize;
+import org.snt.inmemantlr.memobjects.MemoryByteCode;
 import org.snt.inmemantlr.memobjects.MemorySource;
 import org.snt.inmemantlr.memobjects.MemoryTuple;
 import org.snt.inmemantlr.memobjects.MemoryTupleSet;
+import org.snt.inmemantlr.metrics.MetricsCollector;
+import org.snt.inmemantlr.metrics.MetricsCollector.Phase;
+import org.snt.inmemantlr.metrics.NoopMetricsCollector;
+import org.snt.inmemantlr.metrics.ProfilingReport;
+import org.snt.inmemantlr.metrics.WarmupReport;
 import org.snt.inmemantlr.stream.DefaultStreamProvider;
 import org.snt.inmemantlr.stream.StreamProvider;
+import org.snt.inmemantlr.token.TokenBuffer;
+import org.snt.inmemantlr.token.TokenCallback;
+import org.snt.inmemantlr.token.Tokenizer;
 import org.snt.inmemantlr.tool.InmemantlrErrorListener;
 import org.snt.inmemantlr.tool.InmemantlrTool;
 import org.snt.inmemantlr.tool.ToolCustomizer;
+import org.snt.inmemantlr.tree.ParseTree;
+import org.snt.inmemantlr.tree.ParseTreeNode;
 import org.snt.inmemantlr.utils.FileUtils;
+import org.snt.inmemantlr.utils.HashUtils;
 import org.snt.inmemantlr.utils.Tuple;
 
 import java.io.*;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
 
 import static org.apache.commons.io.IOUtils.closeQuietly;
 
@@ -84,6 +116,30 @@ public class GenericParser {
     private String lexerName = "";
     private String parserName = "";
 
+    private int maxErrors = InmemantlrErrorListener.DEFAULT_MAX_ERRORS;
+    private int failFastThreshold = 0;
+    private boolean errorTolerant = false;
+    private boolean parseTimeListener = false;
+    private boolean buildParseTree = true;
+    private InmemantlrErrorListener errorListener = null;
+    private MetricsCollector metrics = NoopMetricsCollector.INSTANCE;
+    private ProfilingReport profile = null;
+    private List<String> samples = new ArrayList<>();
+    private boolean warmedUp = false;
+    private DfaCachePolicy cachePolicy = null;
+    private String tenant = null;
+    private boolean restoreShared = false;
+    private String grammarHash = null;
+
+    private static final Attributes.Name JAR_PARSER = new Attributes.Name
+            ("Inmemantlr-Parser");
+    private static final Attributes.Name JAR_LEXER = new Attributes.Name
+            ("Inmemantlr-Lexer");
+    private static final Attributes.Name JAR_RULES = new Attributes.Name
+            ("Inmemantlr-Rules");
+    private static final Attributes.Name JAR_GRAMMAR_HASH = new Attributes
+            .Name("Inmemantlr-Grammar-Hash");
+
 
     /**
      * initialize the generic parser
@@ -92,9 +148,13 @@ public class GenericParser {
      * @param tlc tool customizer
      */
     private void init(Set<String> gcontent, ToolCustomizer tlc) {
+        grammarHash = computeGrammarHash(gcontent);
         if (tlc != null) {
             tlc.customize(antlr);
         }
+        if (tlc instanceof GrammarLibrary) {
+            ((GrammarLibrary) tlc).link(sc);
+        }
         Set<GrammarRootAST> ast = antlr.sortGrammarByTokenVocab(gcontent);
         for (GrammarRootAST gast : ast) {
             LOGGER.debug("gast {}", gast.getGrammarName());
@@ -108,12 +168,14 @@ public class GenericParser {
      * @param mset set of memory tuples
      * @param parserName parser name
      * @param lexerName lexer name
+     * @param shared share the generated classes
      */
     private GenericParser(MemoryTupleSet mset, String parserName, String
-            lexerName) {
+            lexerName, boolean shared) {
         if (mset == null || mset.size() == 0)
             throw new IllegalArgumentException("mset must not be null or empty");
 
+        sc.setShared(shared);
         sc.load(mset);
         LOGGER.debug("parser ", parserName);
         LOGGER.debug("parser ", lexerName);
@@ -121,6 +183,42 @@ public class GenericParser {
         this.lexerName = lexerName;
     }
 
+    /**
+     * compute a hash of grammar contents that does not depend on the order
+     * of the grammars
+     *
+     * @param gcontent grammar contents
+     * @return hex encoded SHA-256 hash
+     */
+    public static String computeGrammarHash(Collection<String> gcontent) {
+        return HashUtils.sha256(new TreeSet<>(gcontent));
+    }
+
+    /**
+     * get the hash of the grammar contents this parser was created from
+     *
+     * @return hex encoded SHA-256 hash or null if the parser was not
+     * created from grammar contents
+     */
+    public String getGrammarHash() {
+        return grammarHash;
+    }
+
+    /**
+     * private constructor used to load a generic parser whose generated
+     * classes are available through a class loader
+     *
+     * @param loader class loader
+     * @param parserName parser name
+     * @param lexerName lexer name
+     */
+    private GenericParser(ClassLoader loader, String parserName, String
+            lexerName) {
+        sc.load(loader);
+        this.parserName = parserName;
+        this.lexerName = lexerName;
+    }
+
     /**
      * add utility Java classes on which the antlr grammar depend on
      *
@@ -292,6 +390,236 @@ public class GenericParser {
         this.oprov = oprov;
     }
 
+    /**
+     * share the generated classes with all other generic parsers that
+     * compile or load the same grammar with this option. Parsers that share
+     * classes also share the deserialized ATNs and the DFA caches of the
+     * static recognizer fields, so warm prediction state is not duplicated
+     * and a repeated compilation is skipped. This has to be set before
+     * compiling
+     *
+     * @param shared true to share the generated classes, false otherwise
+     */
+    public void setSharedDefinitions(boolean shared) {
+        sc.setShared(shared);
+    }
+
+    /**
+     * discard the generated Java sources and duplicate byte code buffers
+     * once the classes are compiled or loaded, which considerably reduces
+     * the heap retained by a parser. The sources are regenerated from the
+     * grammars when they are needed by {@link #store(String, boolean)} or
+     * {@link #writeAntlrAritfactsTo(String)}, which is not possible for
+     * parsers that were loaded. If classes are already available, they are
+     * released immediately. With {@link #setSharedDefinitions(boolean)},
+     * the shared classes keep their sources for the other parsers that use
+     * them, and only this parser drops its references
+     *
+     * @param lean true to release sources, false otherwise
+     */
+    public void setLean(boolean lean) {
+        sc.setLean(lean);
+    }
+
+    /**
+     * set the Java compiler backend, e.g. {@link CompilerBackend#JAVAC};
+     * it is not used if a compiler service is set
+     *
+     * @param backend compiler backend
+     */
+    public void setCompilerBackend(CompilerBackend backend) {
+        sc.setBackend(backend);
+    }
+
+    /**
+     * compile the lexer and the remaining generated classes in parallel,
+     * which mostly pays off for large grammars
+     *
+     * @param parallel true to compile in parallel, false otherwise
+     */
+    public void setParallelCompilation(boolean parallel) {
+        sc.setParallel(parallel);
+    }
+
+    /**
+     * compile with a long-lived compiler service, e.g.
+     * {@link CompilerService#getShared()}, instead of a fresh compiler
+     *
+     * @param service compiler service or null
+     */
+    public void setCompilerService(CompilerService service) {
+        sc.setCompilerService(service);
+    }
+
+    /**
+     * set the maximum number of syntax errors that are recorded per parse;
+     * further errors are counted but not kept
+     *
+     * @param maxErrors maximum number of recorded syntax errors
+     */
+    public void setMaxErrors(int maxErrors) {
+        if (maxErrors < 0)
+            throw new IllegalArgumentException("maxErrors must not be negative");
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * abort parsing as soon as a given number of syntax errors was reported
+     *
+     * @param failFastThreshold number of syntax errors after which parsing
+     *                          is aborted; 0 to never abort (default)
+     */
+    public void setFailFastThreshold(int failFastThreshold) {
+        if (failFastThreshold < 0)
+            throw new IllegalArgumentException("failFastThreshold must not be negative");
+        this.failFastThreshold = failFastThreshold;
+    }
+
+    /**
+     * enable or disable error-tolerant parsing; in error-tolerant mode,
+     * syntax errors do not raise a parsing exception. Instead, antlr's error
+     * recovery is used and the (partial) parse tree is passed to the
+     * listener; a {@link DefaultTreeListener} marks the nodes that stem from
+     * error recovery (see {@link ParseTreeNode#isError()}). The syntax errors
+     * are available from {@link #getErrorListener()}. Parses aborted because
+     * of the fail-fast threshold still raise a parsing exception.
+     *
+     * @param errorTolerant true to enable error-tolerant parsing
+     */
+    public void setErrorTolerant(boolean errorTolerant) {
+        this.errorTolerant = errorTolerant;
+    }
+
+    /**
+     * check whether error-tolerant parsing is enabled
+     *
+     * @return true if error-tolerant parsing is enabled, false otherwise
+     */
+    public boolean isErrorTolerant() {
+        return errorTolerant;
+    }
+
+    /**
+     * attach the listener to the parser such that it is notified while
+     * parsing instead of walking the antlr parse tree afterwards. Note
+     * that a parse listener is notified about the context of a
+     * left-recursive rule invocation only after the context that becomes
+     * its first child; a {@link DefaultTreeListener} takes care of this.
+     *
+     * @param parseTimeListener true to notify the listener while parsing
+     */
+    public void setParseTimeListener(boolean parseTimeListener) {
+        this.parseTimeListener = parseTimeListener;
+    }
+
+    /**
+     * check whether the listener is notified while parsing
+     *
+     * @return true if the listener is notified while parsing, false if the
+     * antlr parse tree is walked afterwards
+     */
+    public boolean isParseTimeListener() {
+        return parseTimeListener || !buildParseTree;
+    }
+
+    /**
+     * enable or disable the construction of the antlr parse tree; without
+     * it, the listener is notified while parsing (see
+     * {@link #setParseTimeListener(boolean)}) and the context returned by
+     * {@link #parse(String)} does not have rule children, which saves
+     * memory if only the tree of a {@link DefaultTreeListener} is needed
+     *
+     * @param buildParseTree true to build the antlr parse tree
+     */
+    public void setBuildParseTree(boolean buildParseTree) {
+        this.buildParseTree = buildParseTree;
+    }
+
+    /**
+     * check whether the antlr parse tree is built
+     *
+     * @return true if the antlr parse tree is built, false otherwise
+     */
+    public boolean isBuildParseTree() {
+        return buildParseTree;
+    }
+
+    /**
+     * get the error listener of the most recent parse
+     *
+     * @return error listener or null if nothing was parsed yet
+     */
+    public InmemantlrErrorListener getErrorListener() {
+        return errorListener;
+    }
+
+    /**
+     * set the collector for per-phase timings and throughput figures of
+     * compilation and parsing
+     *
+     * @param metrics metrics collector
+     */
+    public void setMetricsCollector(MetricsCollector metrics) {
+        Objects.requireNonNull(metrics, "metrics must not be null");
+        this.metrics = metrics;
+    }
+
+    /**
+     * get the metrics collector
+     *
+     * @return metrics collector
+     */
+    public MetricsCollector getMetricsCollector() {
+        return metrics;
+    }
+
+    /**
+     * enable or disable profiling; in profiling mode, the parser uses
+     * antlr's profiling ATN simulator and the decision statistics of all
+     * subsequent parses are aggregated in a profiling report
+     *
+     * @param profiling true to enable profiling, false to disable it
+     */
+    public void setProfiling(boolean profiling) {
+        if (!profiling)
+            profile = null;
+        else if (profile == null)
+            profile = new ProfilingReport();
+    }
+
+    /**
+     * check whether profiling is enabled
+     *
+     * @return true if profiling is enabled, false otherwise
+     */
+    public boolean isProfiling() {
+        return profile != null;
+    }
+
+    /**
+     * get the profiling report
+     *
+     * @return profiling report or null if profiling is disabled
+     */
+    public ProfilingReport getProfilingReport() {
+        return profile;
+    }
+
+    /**
+     * get the grammar from which a parser was generated
+     *
+     * @param parserName parser name
+     * @return grammar or null if it is not available, e.g. because the
+     * generic parser was deserialized
+     */
+    private Grammar getGrammar(String parserName) {
+        for (StringCodeGenPipeline p : antlr.getPipelines()) {
+            if (p.hasParser() && parserName.equals(p.getParserName()))
+                return p.getG();
+        }
+        return null;
+    }
+
     /**
      * compile generic parser
      *
@@ -320,7 +648,9 @@ public class GenericParser {
         }
 
         // process all grammar objects
+        long t0 = System.nanoTime();
         Tuple<String, String> parserLexer = antlr.process();
+        metrics.recordPhase(Phase.CODEGEN, System.nanoTime() - t0);
 
         parserName = parserLexer.getFirst();
         lexerName = parserLexer.getSecond();
@@ -338,7 +668,12 @@ public class GenericParser {
 
         cu.addAll(antlr.getCompilationUnits());
 
-        sc.compile(cu,oprov);
+        t0 = System.nanoTime();
+        try {
+            sc.compile(cu,oprov);
+        } finally {
+            metrics.recordPhase(Phase.COMPILE, System.nanoTime() - t0);
+        }
     }
 
     /**
@@ -426,7 +761,11 @@ public class GenericParser {
      * @param dest directory to which the artifacts should be written
      */
     public void writeAntlrAritfactsTo(String dest) {
-        MemoryTupleSet ms = getAllCompiledObjects();
+        MemoryTupleSet ms = getSourcedObjects();
+        if (ms == null) {
+            LOGGER.error("sources were released and cannot be regenerated");
+            return;
+        }
 
         for(MemoryTuple tup : ms) {
             MemorySource src = tup.getSource();
@@ -471,83 +810,796 @@ public class GenericParser {
                 break;
         }
 
-        InmemantlrErrorListener el = new InmemantlrErrorListener();
+        InmemantlrErrorListener el = new InmemantlrErrorListener(maxErrors,
+                failFastThreshold);
+        errorListener = el;
 
         listener.reset();
+        listener.setErrorTolerant(errorTolerant);
 
-        //CodePointCharStream input = CharStreams.fromString(toParse);
+        MetricsCollector mc = metrics;
+        DfaCachePolicy cp = cachePolicy;
+        DfaCache cache = null;
+        int ntokens = 0;
+        int nnodes = -1;
 
-        CharStream input = provider.getCharStream(toParse);
+        try {
+            //CodePointCharStream input = CharStreams.fromString(toParse);
 
-        Objects.requireNonNull(input, "char stream must not be null");
+            long t0 = System.nanoTime();
+            CharStream input = provider.getCharStream(toParse);
+            mc.recordPhase(Phase.CHAR_STREAM, System.nanoTime() - t0);
 
-        LOGGER.debug("load lexer {}", lexerName);
+            Objects.requireNonNull(input, "char stream must not be null");
 
-        Lexer lex = sc.instanciateLexer(input, lexerName, useCached);
-        lex.addErrorListener(el);
+            LOGGER.debug("load lexer {}", lexerName);
+
+            Lexer lex = sc.instanciateLexer(input, lexerName, useCached);
+            Objects.requireNonNull(lex, "lex must not be null");
+            // the lexer might be cached -- avoid accumulating listeners
+            lex.removeErrorListeners();
+            lex.addErrorListener(el);
+
+            cache = applyCache(cp, lex);
+
+            CommonTokenStream tokens = new CommonTokenStream(lex);
+
+            t0 = System.nanoTime();
+            try {
+                tokens.fill();
+            } catch (ParseCancellationException e) {
+                throw new ParsingException(el.getErrorMessage(), el.getErrors());
+            } finally {
+                mc.recordPhase(Phase.LEX, System.nanoTime() - t0);
+                ntokens = tokens.size();
+            }
+
+            LOGGER.debug("load parser {}", parserName);
+            Parser parser = sc.instanciateParser(tokens, parserName);
+
+            Objects.requireNonNull(parser, "Parser must not be null");
+
+            // make parser information available to listener
+            listener.setParser(parser);
+
+
+            parser.removeErrorListeners();
+            parser.addErrorListener(el);
+            if (cache != null)
+                cache.apply(parser);
+            if (profile != null)
+                parser.setProfile(true);
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL_EXACT_AMBIG_DETECTION);
+            parser.setBuildParseTree(buildParseTree);
+            parser.setTokenStream(tokens);
+
+            boolean attached = isParseTimeListener();
+            if (attached)
+                parser.addParseListener(listener);
+
+            String[] rules = parser.getRuleNames();
+            String entryPoint;
+
+
+            if (production == null) {
+                entryPoint = rules[0];
+            } else {
+                if (!Arrays.asList(rules).contains(production)) {
+                    throw new IllegalArgumentException("Rule " + production + " not found");
+                }
+                entryPoint = production;
+            }
+
+            ParserRuleContext data = null;
+            t0 = System.nanoTime();
+            try {
+                Class<?> pc = parser.getClass();
+                Method m = pc.getDeclaredMethod(entryPoint, (Class<?>[]) null);
+                Objects.requireNonNull(m, "method should not be null");
+                data = (ParserRuleContext) m.invoke(parser, (Object[]) null);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof ParseCancellationException)
+                    throw new ParsingException(el.getErrorMessage(), el.getErrors());
+                return null;
+            } catch (NoSuchMethodException | SecurityException |
+                    IllegalAccessException | IllegalArgumentException e) {
+                //e.printStackTrace();
+                return null;
+            } finally {
+                mc.recordPhase(Phase.PARSE, System.nanoTime() - t0);
+                if (profile != null)
+                    profile.add(parser, getGrammar(parserName));
+            }
+
+            if (el.hasErrors() && !errorTolerant) {
+                throw new ParsingException(el.getErrorMessage(), el.getErrors());
+            }
+
+            if (!attached) {
+                t0 = System.nanoTime();
+                ParseTreeWalker walker = new ParseTreeWalker();
+                walker.walk(listener, data);
+                mc.recordPhase(Phase.WALK, System.nanoTime() - t0);
+            }
+
+            if (listener instanceof DefaultTreeListener)
+                nnodes = ((DefaultTreeListener) listener).getParseTree()
+                        .getNodes().size();
+
+            return data;
+        } finally {
+            if (cache != null)
+                cp.afterParse(cache);
+            mc.recordParse(toParse.length(), ntokens, nnodes, el.getCount
+                    (InmemantlrErrorListener.Type.SYNTAX_ERROR));
+        }
+    }
+
+    /**
+     * get the token type of a lexer token by its symbolic name, e.g. 'SEMI',
+     * or its literal name, e.g. '\';\''
+     *
+     * @param name symbolic or literal token name
+     * @return token type
+     * @throws IllegalWorkflowException if compilation did not take place
+     */
+    public int getTokenType(String name) throws IllegalWorkflowException {
+        if (!antrlObjectsAvailable()) {
+            throw new IllegalWorkflowException("No antlr objects have been compiled or loaded");
+        }
+        Lexer lex = sc.instanciateLexer(CharStreams.fromString(""),
+                lexerName, useCached);
         Objects.requireNonNull(lex, "lex must not be null");
+        Vocabulary voc = lex.getVocabulary();
+        for (int t = 0; t <= voc.getMaxTokenType(); t++) {
+            if (name.equals(voc.getSymbolicName(t)) || name.equals(voc
+                    .getLiteralName(t)))
+                return t;
+        }
+        throw new IllegalArgumentException("Token " + name + " not found");
+    }
+
+    /**
+     * parse a sequence of independent statements in parallel by means of
+     * the common fork/join pool; see
+     * {@link #parseChunked(String, int, String, Executor, Supplier)}
+     *
+     * @param toParse    string to parse
+     * @param delimiter  type of the token that terminates a statement
+     * @param production production to parse every statement with
+     * @return parse tree whose root holds the statement subtrees
+     * @throws IllegalWorkflowException if compilation did not take place
+     * @throws ParsingException         if an error occurs while parsing
+     */
+    public ParseTree parseChunked(String toParse, int delimiter, String
+            production) throws IllegalWorkflowException, ParsingException {
+        return parseChunked(toParse, delimiter, production, ForkJoinPool
+                .commonPool(), DefaultTreeListener::new);
+    }
+
+    /**
+     * parse a sequence of independent statements in parallel with four
+     * parser tasks per thread of the executor, or per available processor
+     * if the executor is not a fork/join pool; see
+     * {@link #parseChunked(String, int, String, Executor, Supplier, int)}
+     *
+     * @param toParse    string to parse
+     * @param delimiter  type of the token that terminates a statement
+     * @param production production to parse every statement with
+     * @param executor   executor the parser tasks are run on
+     * @param listeners  supplier of the tree listeners that build the
+     *                   subtrees; every parser task gets its own listener
+     * @return parse tree whose root holds the statement subtrees
+     * @throws IllegalWorkflowException if compilation did not take place
+     * @throws ParsingException         if an error occurs while parsing
+     */
+    public ParseTree parseChunked(String toParse, int delimiter, String
+            production, Executor executor, Supplier<? extends
+            DefaultTreeListener> listeners) throws
+            IllegalWorkflowException, ParsingException {
+        int threads = executor instanceof ForkJoinPool ? ((ForkJoinPool)
+                executor).getParallelism() : Runtime.getRuntime()
+                .availableProcessors();
+        // more tasks than threads balance chunks of different length
+        return parseChunked(toParse, delimiter, production, executor,
+                listeners, 4 * threads);
+    }
+
+    /**
+     * parse a sequence of independent statements in parallel. The input is
+     * tokenized once and split after every token of the delimiter type;
+     * every chunk is parsed with the given production and the resulting
+     * subtrees are attached to the root of a single parse tree in the
+     * order of the input. Node indices refer to the whole input. Chunks
+     * that consist of the delimiter or hidden tokens only are skipped.
+     *
+     * The listener of this parser is not used; instead, every parser
+     * task walks its chunks with a listener obtained from the supplier.
+     * Syntax errors of all chunks are collected in
+     * {@link #getErrorListener()}; the fail-fast threshold applies per
+     * parser task.
+     *
+     * @param toParse     string to parse
+     * @param delimiter   type of the token that terminates a statement
+     * @param production  production to parse every statement with
+     * @param executor    executor the parser tasks are run on
+     * @param listeners   supplier of the tree listeners that build the
+     *                    subtrees; every parser task gets its own listener
+     * @param parallelism maximum number of parser tasks
+     * @return parse tree whose root holds the statement subtrees
+     * @throws IllegalWorkflowException if compilation did not take place
+     * @throws ParsingException         if an error occurs while parsing
+     */
+    public ParseTree parseChunked(String toParse, int delimiter, String
+            production, Executor executor, Supplier<? extends
+            DefaultTreeListener> listeners, int parallelism) throws
+            IllegalWorkflowException, ParsingException {
+        if (!antrlObjectsAvailable()) {
+            throw new IllegalWorkflowException("No antlr objects have been compiled or loaded");
+        }
+        Objects.requireNonNull(production, "production must not be null");
+        Objects.requireNonNull(executor, "executor must not be null");
+        Objects.requireNonNull(listeners, "listeners must not be null");
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be positive");
+
+        // check the production before the input is looked at
+        Parser first = sc.instanciateParser(new CommonTokenStream(new
+                ListTokenSource(Collections.emptyList())), parserName);
+        Objects.requireNonNull(first, "Parser must not be null");
+        if (!Arrays.asList(first.getRuleNames()).contains(production)) {
+            throw new IllegalArgumentException("Rule " + production + " not found");
+        }
 
-        CommonTokenStream tokens = new CommonTokenStream(lex);
+        InmemantlrErrorListener el = new InmemantlrErrorListener(maxErrors,
+                failFastThreshold);
+        errorListener = el;
 
-        tokens.fill();
+        MetricsCollector mc = metrics;
+        DfaCachePolicy cp = cachePolicy;
+        DfaCache cache = null;
+        int ntokens = 0;
+        int nnodes = -1;
 
-        LOGGER.debug("load parser {}", parserName);
-        Parser parser = sc.instanciateParser(tokens, parserName);
+        try {
+            long t0 = System.nanoTime();
+            CharStream input = provider.getCharStream(toParse);
+            mc.recordPhase(Phase.CHAR_STREAM, System.nanoTime() - t0);
+            Objects.requireNonNull(input, "char stream must not be null");
+
+            Lexer lex = sc.instanciateLexer(input, lexerName, useCached);
+            Objects.requireNonNull(lex, "lex must not be null");
+            lex.removeErrorListeners();
+            lex.addErrorListener(el);
+
+            cache = applyCache(cp, lex);
+
+            // tokenize once and split after every delimiter
+            List<List<Token>> chunks = new ArrayList<>();
+            List<Token> chunk = new ArrayList<>();
+            boolean content = false;
+            t0 = System.nanoTime();
+            try {
+                for (Token t = lex.nextToken(); t.getType() != Token.EOF;
+                     t = lex.nextToken()) {
+                    ntokens++;
+                    chunk.add(t);
+                    if (t.getChannel() != Token.DEFAULT_CHANNEL)
+                        continue;
+                    if (t.getType() != delimiter) {
+                        content = true;
+                    } else {
+                        if (content)
+                            chunks.add(chunk);
+                        chunk = new ArrayList<>();
+                        content = false;
+                    }
+                }
+            } catch (ParseCancellationException e) {
+                throw new ParsingException(el.getErrorMessage(), el.getErrors());
+            } finally {
+                mc.recordPhase(Phase.LEX, System.nanoTime() - t0);
+            }
+            if (content)
+                chunks.add(chunk);
 
-        Objects.requireNonNull(parser, "Parser must not be null");
+            if (el.hasErrors() && !errorTolerant) {
+                throw new ParsingException(el.getErrorMessage(), el.getErrors());
+            }
 
-        // make parser information available to listener
-        listener.setParser(parser);
+            // parsers are instantiated here since the compiler is not
+            // thread-safe; every task gets a contiguous range of chunks
+            int ntasks = Math.min(chunks.size(), parallelism);
+            List<ChunkTask> tasks = new ArrayList<>();
+            for (int i = 0; i < ntasks; i++) {
+                Parser parser = i == 0 ? first : sc.instanciateParser(new
+                        CommonTokenStream(new ListTokenSource(Collections
+                        .emptyList())), parserName);
+                Objects.requireNonNull(parser, "Parser must not be null");
+                if (cache != null)
+                    cache.apply(parser);
+                if (profile != null)
+                    parser.setProfile(true);
+                parser.getInterpreter().setPredictionMode(PredictionMode
+                        .LL_EXACT_AMBIG_DETECTION);
+                // errors are merged once all tasks have finished
+                InmemantlrErrorListener tel = new InmemantlrErrorListener
+                        (maxErrors, failFastThreshold);
+                parser.removeErrorListeners();
+                parser.addErrorListener(tel);
+                DefaultTreeListener tl = listeners.get();
+                tl.setErrorTolerant(errorTolerant);
+                tasks.add(new ChunkTask(parser, tel, production, tl, chunks
+                        .subList(i * chunks.size() / ntasks, (i + 1) *
+                                chunks.size() / ntasks)));
+            }
 
+            t0 = System.nanoTime();
+            List<CompletableFuture<List<ParseTree>>> futures = new
+                    ArrayList<>();
+            for (ChunkTask task : tasks) {
+                futures.add(CompletableFuture.supplyAsync(task::parse,
+                        executor));
+            }
+            List<ParseTree> trees = new ArrayList<>();
+            try {
+                for (CompletableFuture<List<ParseTree>> f : futures) {
+                    trees.addAll(f.join());
+                }
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof ParseCancellationException) {
+                    tasks.forEach(task -> el.addAll(task.el));
+                    throw new ParsingException(el.getErrorMessage(), el
+                            .getErrors());
+                }
+                throw e;
+            } finally {
+                mc.recordPhase(Phase.PARSE, System.nanoTime() - t0);
+            }
 
-        parser.removeErrorListeners();
-        parser.addErrorListener(el);
-        parser.getInterpreter().setPredictionMode(PredictionMode.LL_EXACT_AMBIG_DETECTION);
-        parser.setBuildParseTree(true);
-        parser.setTokenStream(tokens);
+            for (ChunkTask task : tasks) {
+                el.addAll(task.el);
+                if (profile != null)
+                    profile.add(task.parser, getGrammar(parserName));
+            }
 
-        String[] rules = parser.getRuleNames();
-        String entryPoint;
+            if (el.hasErrors() && !errorTolerant) {
+                throw new ParsingException(el.getErrorMessage(), el.getErrors());
+            }
 
+            // the chunk trees share the vocabulary of the generated parser
+            ParseTree result = trees.isEmpty() ? new ParseTree("root",
+                    "root") : new ParseTree("root", "root", trees.get(0)
+                    .isIndexed(), trees.get(0).getVocabulary());
+            ParseTreeNode root = result.getRoot();
+            for (ParseTree t : trees) {
+                for (ParseTreeNode c : t.getRoot().getChildren()) {
+                    result.addSubtree(root, c);
+                }
+            }
+            nnodes = result.getNodes().size();
+            return result;
+        } finally {
+            if (cache != null)
+                cp.afterParse(cache);
+            mc.recordParse(toParse.length(), ntokens, nnodes, el.getCount
+                    (InmemantlrErrorListener.Type.SYNTAX_ERROR));
+        }
+    }
 
-        if (production == null) {
-            entryPoint = rules[0];
-        } else {
-            if (!Arrays.asList(rules).contains(production)) {
-                throw new IllegalArgumentException("Rule " + production + " not found");
+    /**
+     * a parser task that parses a range of chunks one after another
+     */
+    private static class ChunkTask {
+
+        private final Parser parser;
+        private final String production;
+        private final DefaultTreeListener listener;
+        private final List<List<Token>> chunks;
+        private final InmemantlrErrorListener el;
+
+        ChunkTask(Parser parser, InmemantlrErrorListener el, String
+                production, DefaultTreeListener listener, List<List<Token>>
+                chunks) {
+            this.parser = parser;
+            this.el = el;
+            this.production = production;
+            this.listener = listener;
+            this.chunks = chunks;
+        }
+
+        List<ParseTree> parse() {
+            List<ParseTree> trees = new ArrayList<>(chunks.size());
+            listener.setParser(parser);
+            ParseTreeWalker walker = new ParseTreeWalker();
+            for (List<Token> chunk : chunks) {
+                parser.setTokenStream(new CommonTokenStream(new
+                        ListTokenSource(chunk)));
+                ParserRuleContext data;
+                try {
+                    Method m = parser.getClass().getDeclaredMethod
+                            (production, (Class<?>[]) null);
+                    data = (ParserRuleContext) m.invoke(parser, (Object[])
+                            null);
+                } catch (InvocationTargetException e) {
+                    if (e.getCause() instanceof RuntimeException)
+                        throw (RuntimeException) e.getCause();
+                    throw new IllegalStateException(e.getCause());
+                } catch (NoSuchMethodException | IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+                listener.reset();
+                walker.walk(listener, data);
+                trees.add(listener.getParseTree());
             }
-            entryPoint = production;
+            return trees;
+        }
+    }
+
+    /**
+     * let a lexer use the DFA cache selected by a cache policy, or the
+     * static cache if there is no policy
+     *
+     * @param cp  cache policy or null
+     * @param lex lexer
+     * @return DFA cache in use or null if the static cache is used
+     */
+    private DfaCache applyCache(DfaCachePolicy cp, Lexer lex) {
+        if (cp != null) {
+            DfaCache cache = cp.getCache(tenant);
+            cache.apply(lex);
+            return cache;
+        }
+        if (restoreShared) {
+            // the cached lexer still refers to the cache of a former policy
+            lex.setInterpreter(new LexerATNSimulator(lex, lex.getATN(), sc
+                    .getDecisionToDFA(lexerName), sc.getSharedContextCache
+                    (lexerName)));
+            restoreShared = false;
+        }
+        return null;
+    }
+
+    /**
+     * run only the lexer and collect the tokens in a compact token buffer;
+     * the EOF token is not included. Lexer errors do not raise an
+     * exception but are available from {@link #getErrorListener()} unless
+     * the fail-fast threshold is exceeded
+     *
+     * @param toParse string to tokenize
+     * @return token buffer
+     * @throws IllegalWorkflowException if compilation did not take place
+     * @throws ParsingException         if the fail-fast threshold is
+     *                                  exceeded
+     */
+    public TokenBuffer tokenize(String toParse) throws
+            IllegalWorkflowException, ParsingException {
+        TokenBuffer tb = new TokenBuffer();
+        tb.setInput(tokenize(toParse, tb));
+        return tb;
+    }
+
+    /**
+     * run only the lexer and pass the tokens to a callback without creating
+     * a token object per token; the EOF token is not included. Lexer errors
+     * do not raise an exception but are available from
+     * {@link #getErrorListener()} unless the fail-fast threshold is
+     * exceeded
+     *
+     * @param toParse string to tokenize
+     * @param cb      token callback
+     * @return the character stream the token indices refer to
+     * @throws IllegalWorkflowException if compilation did not take place
+     * @throws ParsingException         if the fail-fast threshold is
+     *                                  exceeded
+     */
+    public CharStream tokenize(String toParse, TokenCallback cb) throws
+            IllegalWorkflowException, ParsingException {
+        if (!antrlObjectsAvailable()) {
+            throw new IllegalWorkflowException("No antlr objects have been compiled or loaded");
         }
 
-        ParserRuleContext data = null;
+        InmemantlrErrorListener el = new InmemantlrErrorListener(maxErrors,
+                failFastThreshold);
+        errorListener = el;
+
+        long t0 = System.nanoTime();
+        CharStream input = provider.getCharStream(toParse);
+        metrics.recordPhase(Phase.CHAR_STREAM, System.nanoTime() - t0);
+        Objects.requireNonNull(input, "char stream must not be null");
+
+        Lexer lex = sc.instanciateLexer(input, lexerName, useCached);
+        Objects.requireNonNull(lex, "lex must not be null");
+        lex.removeErrorListeners();
+        lex.addErrorListener(el);
+
+        DfaCachePolicy cp = cachePolicy;
+        DfaCache cache = applyCache(cp, lex);
+
+        t0 = System.nanoTime();
+        try {
+            Tokenizer.tokenize(lex, cb);
+        } catch (ParseCancellationException e) {
+            throw new ParsingException(el.getErrorMessage(), el.getErrors());
+        } finally {
+            metrics.recordPhase(Phase.LEX, System.nanoTime() - t0);
+            if (cache != null)
+                cp.afterParse(cache);
+        }
+        return input;
+    }
+
+    /**
+     * warm up the DFA caches of lexer and parser with the stored samples
+     *
+     * @return warm-up report
+     * @throws IllegalWorkflowException if compilation did not take place
+     */
+    public WarmupReport warmUp() throws IllegalWorkflowException {
+        return warmUp(samples, null);
+    }
+
+    /**
+     * warm up the DFA caches of lexer and parser by parsing a sample
+     * corpus; samples that cannot be parsed are counted but do not abort
+     * the warm-up. Warm-up parses neither notify the listener nor show up
+     * in the metrics, the profile or {@link #getErrorListener()}
+     *
+     * @param corpus     sample inputs
+     * @param production production name to parse or null for the first rule
+     * @return warm-up report
+     * @throws IllegalWorkflowException if compilation did not take place
+     */
+    public WarmupReport warmUp(Collection<String> corpus, String production)
+            throws IllegalWorkflowException {
+        if (!antrlObjectsAvailable()) {
+            throw new IllegalWorkflowException("No antlr objects have been compiled or loaded");
+        }
+
+        long lb = getLexerDfaStates();
+        long pb = getParserDfaStates();
+
+        int failures = 0;
+        long t0 = System.nanoTime();
+        for (String sample : corpus) {
+            if (!warmUp(sample, production))
+                failures++;
+        }
+
+        warmedUp = true;
+
+        WarmupReport rep = new WarmupReport(corpus.size(), failures, lb,
+                getLexerDfaStates(), pb, getParserDfaStates(), System
+                .nanoTime() - t0);
+        LOGGER.debug("warm-up {}", rep);
+        return rep;
+    }
+
+    /**
+     * lex and parse a single warm-up sample. Unlike
+     * {@link #parse(String, String, CaseSensitiveType)}, no listener is
+     * walked, no profile or metrics are recorded and the error listener
+     * of this parser is left untouched
+     *
+     * @param sample     sample input
+     * @param production production name to parse or null for the first rule
+     * @return true if the sample was parsed, false otherwise
+     */
+    private boolean warmUp(String sample, String production) {
+        InmemantlrErrorListener el = new InmemantlrErrorListener(maxErrors,
+                failFastThreshold);
+        DfaCachePolicy cp = cachePolicy;
+        DfaCache cache = null;
         try {
-            Class<?> pc = parser.getClass();
-            Method m = pc.getDeclaredMethod(entryPoint, (Class<?>[]) null);
-            Objects.requireNonNull(m, "method should not be null");
-            data = (ParserRuleContext) m.invoke(parser, (Object[]) null);
-        } catch (NoSuchMethodException | SecurityException |
-                IllegalAccessException | IllegalArgumentException |
-                InvocationTargetException e) {
-            //e.printStackTrace();
-            return null;
+            CharStream input = provider.getCharStream(sample);
+            Objects.requireNonNull(input, "char stream must not be null");
+
+            Lexer lex = sc.instanciateLexer(input, lexerName, useCached);
+            Objects.requireNonNull(lex, "lex must not be null");
+            lex.removeErrorListeners();
+            lex.addErrorListener(el);
+
+            cache = applyCache(cp, lex);
+
+            CommonTokenStream tokens = new CommonTokenStream(lex);
+            tokens.fill();
+
+            Parser parser = sc.instanciateParser(tokens, parserName);
+            Objects.requireNonNull(parser, "Parser must not be null");
+            parser.removeErrorListeners();
+            parser.addErrorListener(el);
+            if (cache != null)
+                cache.apply(parser);
+            parser.getInterpreter().setPredictionMode(PredictionMode
+                    .LL_EXACT_AMBIG_DETECTION);
+            parser.setBuildParseTree(buildParseTree);
+
+            String[] rules = parser.getRuleNames();
+            if (production != null && !Arrays.asList(rules).contains
+                    (production)) {
+                throw new IllegalArgumentException("Rule " + production +
+                        " not found");
+            }
+            String entryPoint = production == null ? rules[0] : production;
+
+            Method m = parser.getClass().getDeclaredMethod(entryPoint,
+                    (Class<?>[]) null);
+            m.invoke(parser, (Object[]) null);
+        } catch (ParseCancellationException | InvocationTargetException |
+                NoSuchMethodException | SecurityException |
+                IllegalAccessException e) {
+            return false;
+        } finally {
+            if (cache != null)
+                cp.afterParse(cache);
         }
+        return !el.hasErrors() || errorTolerant;
+    }
+
+    /**
+     * check whether the parser was warmed up
+     *
+     * @return true if warmUp was called, false otherwise
+     */
+    public boolean isWarmedUp() {
+        return warmedUp;
+    }
+
+    /**
+     * set the samples that are used by {@link #warmUp()}; the samples are
+     * stored together with the parser
+     *
+     * @param samples sample inputs
+     */
+    public void setSamples(Collection<String> samples) {
+        Objects.requireNonNull(samples, "samples must not be null");
+        this.samples = new ArrayList<>(samples);
+    }
 
-        Set<String> msgs = el.getLog().entrySet().stream().filter(e -> e.getKey
-                () ==
-                InmemantlrErrorListener.Type.SYNTAX_ERROR).map(e -> e
-                .getValue()).collect(Collectors.toSet());
+    /**
+     * get the samples that are used by {@link #warmUp()}
+     *
+     * @return list of sample inputs
+     */
+    public List<String> getSamples() {
+        return Collections.unmodifiableList(samples);
+    }
 
+    /**
+     * get the number of states in the DFA cache of the lexer; this is the
+     * cache that is shared by all instances of the generated lexer unless a
+     * cache policy is set
+     *
+     * @return number of states
+     */
+    public long getLexerDfaStates() {
+        if (cachePolicy != null)
+            return cachePolicy.getCache(tenant).getLexerStates();
+        if (!antrlObjectsAvailable())
+            return 0;
+        return DfaCache.countStates(sc.getDecisionToDFA(lexerName));
+    }
 
-        if (msgs.size() > 0) {
-            String result = msgs
-                    .stream()
-                    .collect(Collectors.joining());
-            throw new ParsingException(result);
+    /**
+     * get the number of states in the DFA cache of the parser; this is the
+     * cache that is shared by all instances of the generated parser unless
+     * a cache policy is set
+     *
+     * @return number of states
+     */
+    public long getParserDfaStates() {
+        if (cachePolicy != null)
+            return cachePolicy.getCache(tenant).getParserStates();
+        if (!antrlObjectsAvailable())
+            return 0;
+        return DfaCache.countStates(sc.getDecisionToDFA(parserName));
+    }
+
+    /**
+     * get the number of prediction contexts in the cache that is shared by
+     * all instances of the generated lexer and parser
+     *
+     * @return number of prediction contexts
+     */
+    public int getSharedContextCacheSize() {
+        if (!antrlObjectsAvailable())
+            return 0;
+        int n = 0;
+        for (String cname : new String[]{lexerName, parserName}) {
+            PredictionContextCache pcc = sc.getSharedContextCache(cname);
+            if (pcc != null)
+                n += pcc.size();
         }
+        return n;
+    }
+
+    /**
+     * discard the DFA states and prediction contexts that are shared by all
+     * instances of the generated lexer and parser. With
+     * {@link #setSharedDefinitions(boolean)}, these instances include those
+     * of all other generic parsers that share the generated classes, hence
+     * this must not be called while this or any of those parsers is parsing
+     */
+    public void clearSharedCaches() {
+        if (!antrlObjectsAvailable())
+            return;
+        sc.clearSharedCaches(lexerName);
+        sc.clearSharedCaches(parserName);
+    }
 
-        ParseTreeWalker walker = new ParseTreeWalker();
-        walker.walk(listener, data);
-        return data;
+    /**
+     * set the policy that determines the DFA caches used for parsing; by
+     * default, i.e., if no policy is set, the unbounded static caches of
+     * the generated lexer and parser are used
+     *
+     * @param cachePolicy cache policy or null to use the static caches
+     */
+    public void setDfaCachePolicy(DfaCachePolicy cachePolicy) {
+        if (cachePolicy == null && this.cachePolicy != null)
+            restoreShared = true;
+        this.cachePolicy = cachePolicy;
+    }
+
+    /**
+     * get the DFA cache policy
+     *
+     * @return cache policy or null if the static caches are used
+     */
+    public DfaCachePolicy getDfaCachePolicy() {
+        return cachePolicy;
+    }
+
+    /**
+     * set the tenant on whose behalf subsequent parses are executed; the
+     * tenant is passed to the DFA cache policy
+     *
+     * @param tenant tenant or null
+     */
+    public void setTenant(String tenant) {
+        this.tenant = tenant;
+    }
+
+    /**
+     * get the tenant
+     *
+     * @return tenant or null
+     */
+    public String getTenant() {
+        return tenant;
+    }
+
+    /**
+     * get the compiled lexer class
+     *
+     * @return lexer class
+     * @throws IllegalWorkflowException if compilation did not take place
+     */
+    public Class<? extends Lexer> getLexerClass() throws
+            IllegalWorkflowException {
+        return getRecognizerClass(lexerName, Lexer.class);
+    }
+
+    /**
+     * get the compiled parser class
+     *
+     * @return parser class
+     * @throws IllegalWorkflowException if compilation did not take place
+     */
+    public Class<? extends Parser> getParserClass() throws
+            IllegalWorkflowException {
+        return getRecognizerClass(parserName, Parser.class);
+    }
+
+    private <T> Class<? extends T> getRecognizerClass(String name, Class<T>
+            base) throws IllegalWorkflowException {
+        if (!antrlObjectsAvailable()) {
+            throw new IllegalWorkflowException("No antlr objects have been compiled or loaded");
+        }
+        Class<?> c = sc.getCompiledClass(name);
+        if (c == null || !base.isAssignableFrom(c))
+            throw new IllegalWorkflowException("No " + base.getSimpleName()
+                    .toLowerCase() + " " + name + " available");
+        return c.asSubclass(base);
     }
 
     /**
@@ -568,6 +1620,16 @@ public class GenericParser {
         this.listener = listener;
     }
 
+    /**
+     * set several listeners that are notified during a single tree walk or
+     * parse (see {@link CompositeListener})
+     *
+     * @param listeners listeners to use
+     */
+    public void setListeners(DefaultListener... listeners) {
+        this.listener = new CompositeListener(listeners);
+    }
+
     /**
      * get all compiled antlr objects (lexer, parser, etc) in source and bytecode format
      *
@@ -577,8 +1639,55 @@ public class GenericParser {
         return sc.getAllCompiledObjects();
     }
 
+    /**
+     * get all compiled objects, including those of linked lexers, so that
+     * the parser can be stored or exported as a whole
+     *
+     * @return memory tuple set
+     */
+    private MemoryTupleSet getStoredObjects() {
+        MemoryTupleSet mt = new MemoryTupleSet();
+        mt.addAll(getAllCompiledObjects());
+        mt.addAll(sc.getLinkedObjects());
+        return mt;
+    }
+
+    /**
+     * get all compiled objects together with their sources; released
+     * sources are regenerated from the code generation pipelines
+     *
+     * @return memory tuple set or null if released sources cannot be
+     * regenerated
+     */
+    private MemoryTupleSet getSourcedObjects() {
+        MemoryTupleSet mt = getStoredObjects();
+        boolean released = false;
+        for (MemoryTuple tup : mt) {
+            released |= tup.getSource().isReleased();
+        }
+        if (!released)
+            return mt;
+
+        Map<String, MemorySource> srcs = new HashMap<>();
+        fp.getItems().forEach(ms -> srcs.put(ms.getClassName(), ms));
+        for (StringCodeGenPipeline p : antlr.getCompilationUnits()) {
+            p.getItems().forEach(ms -> srcs.put(ms.getClassName(), ms));
+        }
+
+        MemoryTupleSet ret = new MemoryTupleSet();
+        for (MemoryTuple tup : mt) {
+            MemorySource ms = tup.getSource();
+            if (ms.isReleased())
+                ms = srcs.get(tup.getClassName());
+            if (ms == null || ms.isReleased())
+                return null;
+            ret.addMemoryTuple(ms, tup.getByteCodeObjects());
+        }
+        return ret;
+    }
+
     public boolean antrlObjectsAvailable() {
-        return getAllCompiledObjects().size() > 0;
+        return sc.isLoaded();
     }
 
     /**
@@ -600,9 +1709,14 @@ public class GenericParser {
         if (!path.exists()) {
             throw new SerializationException("Cannot find path " + path.getAbsolutePath());
         }
-        if (!antrlObjectsAvailable()) {
+        if (getAllCompiledObjects().size() == 0) {
             throw new SerializationException("You have not compiled your grammar yet - there are no antlr objects available");
         }
+        MemoryTupleSet ms = getSourcedObjects();
+        if (ms == null) {
+            throw new SerializationException("sources were released and " +
+                    "cannot be regenerated");
+        }
 
         FileOutputStream f_out;
         ObjectOutputStream o_out;
@@ -620,7 +1734,7 @@ public class GenericParser {
         }
 
         GenericParserSerialize towrite = new GenericParserSerialize
-                (getAllCompiledObjects(), parserName, lexerName);
+                (ms, parserName, lexerName, samples);
 
         try {
             o_out.writeObject(towrite);
@@ -634,6 +1748,179 @@ public class GenericParser {
         }
     }
 
+    /**
+     * export the compiled classes to a JAR file. The manifest lists the
+     * parser and lexer names, the parser rules and the grammar hash, so
+     * that the JAR can be loaded without compilation by means of
+     * {@link #loadJar(String)} or, if it is on the class path,
+     * {@link #loadFromClassPath(String)}. Since the classes are loaded from
+     * a regular JAR, they are eligible for class data sharing
+     *
+     * @param file      path of the JAR file
+     * @param overwrite overwrite file
+     * @throws SerializationException if the JAR cannot be written
+     */
+    public void exportJar(String file, boolean overwrite) throws
+            SerializationException {
+        File loc = new File(file);
+
+        if (loc.exists() && !overwrite) {
+            throw new SerializationException("File " + file + " already exists");
+        }
+        if (getAllCompiledObjects().size() == 0) {
+            throw new SerializationException("You have not compiled your grammar yet - there are no antlr objects available");
+        }
+
+        Manifest mf = new Manifest();
+        Attributes attr = mf.getMainAttributes();
+        attr.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attr.put(JAR_PARSER, parserName);
+        attr.put(JAR_LEXER, lexerName);
+        if (grammarHash != null)
+            attr.put(JAR_GRAMMAR_HASH, grammarHash);
+        if (!parserName.isEmpty()) {
+            try {
+                String[] rules = (String[]) getParserClass().getField
+                        ("ruleNames").get(null);
+                attr.put(JAR_RULES, String.join(",", rules));
+            } catch (IllegalWorkflowException | ReflectiveOperationException
+                    e) {
+                throw new SerializationException("cannot determine parser rules", e);
+            }
+        }
+
+        Set<String> written = new HashSet<>();
+        try (JarOutputStream jos = new JarOutputStream(new
+                FileOutputStream(loc), mf)) {
+            for (MemoryTuple tup : getStoredObjects()) {
+                for (MemoryByteCode bc : tup.getByteCodeObjects()) {
+                    String name = bc.getClassName().replace('.', '/') +
+                            ".class";
+                    if (!written.add(name))
+                        continue;
+                    jos.putNextEntry(new JarEntry(name));
+                    jos.write(bc.getBytes());
+                    jos.closeEntry();
+                }
+            }
+        } catch (IOException e) {
+            throw new SerializationException("error occurred while writing " +
+                    "jar", e);
+        }
+    }
+
+    /**
+     * load a generic parser from a JAR file that was created by
+     * {@link #exportJar(String, boolean)}; the classes are loaded by a
+     * dedicated class loader that keeps the JAR open until the loader is
+     * garbage collected. Callers that need to close the JAR, e.g., to
+     * delete or replace it, should create a {@link URLClassLoader} for the
+     * JAR themselves, load the parser with
+     * {@link #loadFromClassPath(String, ClassLoader)} and close the loader
+     * once the parser is no longer used
+     *
+     * @param file path of the JAR file
+     * @return generic parser
+     * @throws DeserializationException if the JAR cannot be loaded
+     */
+    public static GenericParser loadJar(String file) throws
+            DeserializationException {
+        File loc = new File(file);
+        if (!loc.exists()) {
+            throw new DeserializationException("File " + file + " does not exist");
+        }
+
+        Manifest mf;
+        try (JarFile jar = new JarFile(loc)) {
+            mf = jar.getManifest();
+        } catch (IOException e) {
+            throw new DeserializationException("cannot read jar " + file, e);
+        }
+        if (mf == null || mf.getMainAttributes().getValue(JAR_PARSER) ==
+                null) {
+            throw new DeserializationException("there are no antlr objects available in " + file);
+        }
+
+        URLClassLoader loader;
+        try {
+            loader = new URLClassLoader(new URL[]{loc.toURI().toURL()},
+                    GenericParser.class.getClassLoader());
+        } catch (MalformedURLException e) {
+            throw new DeserializationException("cannot read jar " + file, e);
+        }
+        return fromManifest(mf, loader);
+    }
+
+    /**
+     * load a generic parser whose JAR, created by
+     * {@link #exportJar(String, boolean)}, is on the class path
+     *
+     * @param parserName parser name
+     * @return generic parser
+     * @throws DeserializationException if there is no such JAR
+     */
+    public static GenericParser loadFromClassPath(String parserName) throws
+            DeserializationException {
+        return loadFromClassPath(parserName, GenericParser.class
+                .getClassLoader());
+    }
+
+    /**
+     * load a generic parser whose JAR, created by
+     * {@link #exportJar(String, boolean)}, is visible to a class loader
+     *
+     * @param parserName parser name
+     * @param loader     class loader
+     * @return generic parser
+     * @throws DeserializationException if there is no such JAR
+     */
+    public static GenericParser loadFromClassPath(String parserName,
+                                                  ClassLoader loader)
+            throws DeserializationException {
+        try {
+            Enumeration<URL> mfs = loader.getResources(JarFile.MANIFEST_NAME);
+            while (mfs.hasMoreElements()) {
+                try (InputStream is = mfs.nextElement().openStream()) {
+                    Manifest mf = new Manifest(is);
+                    if (parserName.equals(mf.getMainAttributes().getValue
+                            (JAR_PARSER)))
+                        return fromManifest(mf, loader);
+                }
+            }
+        } catch (IOException e) {
+            throw new DeserializationException("cannot read manifests", e);
+        }
+        throw new DeserializationException("there is no jar for parser " +
+                parserName + " on the class path");
+    }
+
+    private static GenericParser fromManifest(Manifest mf, ClassLoader
+            loader) throws DeserializationException {
+        Attributes attr = mf.getMainAttributes();
+        GenericParser gp = new GenericParser(loader, attr.getValue
+                (JAR_PARSER), attr.getValue(JAR_LEXER));
+        gp.grammarHash = attr.getValue(JAR_GRAMMAR_HASH);
+
+        // make sure that the loader resolves the parser of the JAR and not
+        // another class of the same name
+        String rules = attr.getValue(JAR_RULES);
+        if (rules != null) {
+            String[] names;
+            try {
+                names = (String[]) gp.getParserClass().getField("ruleNames")
+                        .get(null);
+            } catch (IllegalWorkflowException | ReflectiveOperationException
+                    | RuntimeException e) {
+                throw new DeserializationException("cannot load parser " +
+                        gp.parserName, e);
+            }
+            if (!rules.equals(String.join(",", names)))
+                throw new DeserializationException("the rules of parser " +
+                        gp.parserName + " do not match the manifest");
+        }
+        return gp;
+    }
+
     /**
      * Get active lexer name
      * @return name of the active lexer
@@ -674,6 +1961,21 @@ public class GenericParser {
      * @throws DeserializationException generic parser is not de-serializable
      */
     public static GenericParser load(String file) throws DeserializationException {
+        return load(file, false);
+    }
+
+    /**
+     * load serialized generic parser
+     *
+     * @param file   file of serialized generic parser file
+     * @param shared share the generated classes with other generic parsers
+     *               of the same grammar, see
+     *               {@link #setSharedDefinitions(boolean)}
+     * @return the deserialized generic parser
+     * @throws DeserializationException generic parser is not de-serializable
+     */
+    public static GenericParser load(String file, boolean shared) throws
+            DeserializationException {
         File loc = new File(file);
         File path = loc.getParentFile();
 
@@ -728,7 +2030,8 @@ public class GenericParser {
         GenericParserSerialize gin = (GenericParserSerialize) toread;
 
         GenericParser gp = new GenericParser(gin.getMemoryTupleSet(), gin
-                .getParserName(), gin.getLexerName());
+                .getParserName(), gin.getLexerName(), shared);
+        gp.samples = new ArrayList<>(gin.getSamples());
 
         if (!gp.antrlObjectsAvailable()) {
             throw new DeserializationException("there are no antlr objects available in " + file);
@@ -0,0 +1,267 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr;
+
+import org.antlr.v4.Tool;
+import org.antlr.v4.parse.ANTLRParser;
+import org.antlr.v4.tool.ast.GrammarRootAST;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.inmemantlr.comp.CompilerOptionsProvider;
+import org.snt.inmemantlr.comp.CunitProvider;
+import org.snt.inmemantlr.comp.DefaultCompilerOptionsProvider;
+import org.snt.inmemantlr.comp.StringCompiler;
+import org.snt.inmemantlr.exceptions.CompilationException;
+import org.snt.inmemantlr.tool.InmemantlrTool;
+import org.snt.inmemantlr.tool.ToolCustomizer;
+import org.snt.inmemantlr.utils.FileUtils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * a library of lexer grammars and imported grammars that are shared by a
+ * family of parser grammars. Lexers are compiled once when they are added
+ * and linked into every generic parser that is created with the library as
+ * tool customizer and refers to them through the tokenVocab option; their
+ * classes, and thereby their DFA caches, are shared by all these parsers.
+ * Imported grammars are registered once and resolved by import statements;
+ * since antlr merges imported rules into the importing grammar, they are
+ * still part of the code generated for every parser
+ */
+public class GrammarLibrary implements ToolCustomizer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrammarLibrary.class);
+
+    /**
+     * a compiled lexer grammar
+     */
+    private static class LexerEntry {
+        private final String className;
+        private final String tokenVocab;
+        private final StringCompiler sc;
+
+        private LexerEntry(String className, String tokenVocab,
+                           StringCompiler sc) {
+            this.className = className;
+            this.tokenVocab = tokenVocab;
+            this.sc = sc;
+        }
+    }
+
+    private final ToolCustomizer tlc;
+    private final Map<String, String> imports = new ConcurrentHashMap<>();
+    private final Map<String, LexerEntry> lexers = new ConcurrentHashMap<>();
+    private CompilerOptionsProvider oprov = new
+            DefaultCompilerOptionsProvider();
+
+    /**
+     * constructor
+     */
+    public GrammarLibrary() {
+        this(null);
+    }
+
+    /**
+     * constructor
+     *
+     * @param tlc tool customizer that is applied to the tools of the
+     *            library and of all parsers that use it, e.g. to set a
+     *            package; may be null
+     */
+    public GrammarLibrary(ToolCustomizer tlc) {
+        this.tlc = tlc;
+    }
+
+    /**
+     * set the compiler options that are used for compiling lexers
+     *
+     * @param oprov compiler options provider
+     */
+    public void setCompilerOptionsProvider(CompilerOptionsProvider oprov) {
+        this.oprov = Objects.requireNonNull(oprov, "options provider must " +
+                "not be null");
+    }
+
+    /**
+     * parse a grammar and check its type
+     *
+     * @param tool    tool that is used for parsing
+     * @param content grammar content
+     * @param lexer   true if a lexer grammar is expected, false otherwise
+     * @return grammar ast
+     */
+    private static GrammarRootAST parse(InmemantlrTool tool, String content,
+                                        boolean lexer) {
+        Objects.requireNonNull(content, "content must not be null");
+        Set<GrammarRootAST> asts = tool.sortGrammarByTokenVocab(Collections
+                .singleton(content));
+        if (asts.size() != 1)
+            throw new IllegalArgumentException("content is not a valid " +
+                    "grammar");
+        GrammarRootAST ast = asts.iterator().next();
+        if (lexer && ast.grammarType != ANTLRParser.LEXER)
+            throw new IllegalArgumentException("grammar " + ast
+                    .getGrammarName() + " is not a lexer grammar");
+        return ast;
+    }
+
+    /**
+     * register a grammar that can be imported by the grammars of parsers
+     * and by the lexers of this library
+     *
+     * @param content grammar content
+     * @return grammar name
+     */
+    public String addImport(String content) {
+        String name = parse(new InmemantlrTool(), content, false)
+                .getGrammarName();
+        if (imports.putIfAbsent(name, content) != null)
+            throw new IllegalArgumentException("grammar " + name + " is " +
+                    "already registered");
+        LOGGER.debug("add import {}", name);
+        return name;
+    }
+
+    /**
+     * register a grammar that can be imported by the grammars of parsers
+     * and by the lexers of this library
+     *
+     * @param file grammar file
+     * @return grammar name
+     * @throws FileNotFoundException if the file cannot be read
+     */
+    public String addImport(File file) throws FileNotFoundException {
+        return addImport(load(file));
+    }
+
+    /**
+     * compile a lexer grammar and register it, so that parser grammars can
+     * refer to it through the tokenVocab option
+     *
+     * @param content lexer grammar content
+     * @return lexer grammar name
+     * @throws CompilationException if the lexer cannot be compiled
+     */
+    public String addLexer(String content) throws CompilationException {
+        InmemantlrTool tool = new InmemantlrTool();
+        customize(tool);
+        GrammarRootAST ast = parse(tool, content, true);
+        String name = ast.getGrammarName();
+        if (lexers.containsKey(name))
+            throw new IllegalArgumentException("lexer " + name + " is " +
+                    "already registered");
+
+        tool.createPipeline(ast);
+        String className = tool.processLexer();
+
+        Set<CunitProvider> cu = new LinkedHashSet<>(tool
+                .getCompilationUnits());
+        StringCompiler sc = new StringCompiler();
+        sc.compile(cu, oprov);
+
+        if (lexers.putIfAbsent(name, new LexerEntry(className, tool
+                .getTokenVocab(name), sc)) != null)
+            throw new IllegalArgumentException("lexer " + name + " is " +
+                    "already registered");
+        LOGGER.debug("add lexer {}", className);
+        return name;
+    }
+
+    /**
+     * compile a lexer grammar and register it, so that parser grammars can
+     * refer to it through the tokenVocab option
+     *
+     * @param file lexer grammar file
+     * @return lexer grammar name
+     * @throws FileNotFoundException if the file cannot be read
+     * @throws CompilationException  if the lexer cannot be compiled
+     */
+    public String addLexer(File file) throws FileNotFoundException,
+            CompilationException {
+        return addLexer(load(file));
+    }
+
+    private static String load(File file) throws FileNotFoundException {
+        if (!file.exists() || !file.canRead())
+            throw new FileNotFoundException("file " + file.getAbsolutePath()
+                    + " does not exist or is not readable");
+        return FileUtils.loadFileContent(file.getAbsolutePath());
+    }
+
+    /**
+     * get the names of the registered imported grammars
+     *
+     * @return grammar names
+     */
+    public Set<String> getImportNames() {
+        return Collections.unmodifiableSet(new TreeSet<>(imports.keySet()));
+    }
+
+    /**
+     * get the names of the registered lexer grammars
+     *
+     * @return lexer grammar names
+     */
+    public Set<String> getLexerNames() {
+        return Collections.unmodifiableSet(new TreeSet<>(lexers.keySet()));
+    }
+
+    /**
+     * get the compiled class of a registered lexer
+     *
+     * @param name lexer grammar name
+     * @return lexer class or null if there is no such lexer
+     */
+    public Class<?> getLexerClass(String name) {
+        LexerEntry e = lexers.get(name);
+        return e != null ? e.sc.getCompiledClass(e.className) : null;
+    }
+
+    @Override
+    public void customize(Tool t) {
+        if (tlc != null)
+            tlc.customize(t);
+        if (!(t instanceof InmemantlrTool))
+            return;
+        InmemantlrTool tool = (InmemantlrTool) t;
+        imports.forEach(tool::addImportedGrammar);
+        lexers.forEach((name, e) -> tool.addTokenVocab(name, e.tokenVocab, e
+                .className));
+    }
+
+    /**
+     * link the compiled lexers into the compiler of a parser
+     *
+     * @param sc string compiler of a parser
+     */
+    void link(StringCompiler sc) {
+        lexers.values().forEach(e -> sc.link(e.sc));
+    }
+}
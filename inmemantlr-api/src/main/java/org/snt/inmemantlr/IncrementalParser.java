@@ -0,0 +1,372 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.inmemantlr.exceptions.IllegalWorkflowException;
+import org.snt.inmemantlr.exceptions.ParsingException;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+import org.snt.inmemantlr.token.TokenBuffer;
+import org.snt.inmemantlr.token.Tokenizer;
+import org.snt.inmemantlr.tree.ParseTree;
+import org.snt.inmemantlr.tree.ParseTreeNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * incremental parser for documents that are edited repeatedly; after an
+ * edit, only the innermost rule node that encloses the edit is re-lexed
+ * and re-parsed, and the resulting subtree is spliced into the previous
+ * parse tree. If the enclosing rule cannot be re-parsed in isolation so
+ * that it covers exactly the edited span, the next enclosing rule is tried
+ * and eventually the whole document is parsed again.
+ *
+ * Note that re-parsing a rule in isolation ignores the context of the
+ * rule; for grammars where the parse of a rule depends on its context
+ * (semantic predicates, lexer modes spanning the edit, etc.) a full
+ * reparse should be used instead.
+ */
+public class IncrementalParser {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalParser.class);
+
+    private final GenericParser gp;
+    private final DefaultTreeListener dlist;
+    private final String production;
+
+    private String text = null;
+    private ParseTree tree = null;
+    private TokenBuffer tokens = null;
+    private int reparsed = 0;
+
+    /**
+     * constructor
+     *
+     * @param gp         compiled generic parser whose listener is a
+     *                   {@link DefaultTreeListener}
+     * @param production production to parse documents with or null for the
+     *                   first rule
+     */
+    public IncrementalParser(GenericParser gp, String production) {
+        if (!(gp.getListener() instanceof DefaultTreeListener))
+            throw new IllegalArgumentException("gp must use a DefaultTreeListener");
+        this.gp = gp;
+        this.dlist = (DefaultTreeListener) gp.getListener();
+        this.production = production;
+    }
+
+    /**
+     * parse a complete document
+     *
+     * @param text document
+     * @return parse tree
+     * @throws IllegalWorkflowException if compilation did not take place
+     * @throws ParsingException         if an error occurs while parsing
+     */
+    public ParseTree parse(String text) throws IllegalWorkflowException,
+            ParsingException {
+        gp.parse(text, production, GenericParser.CaseSensitiveType.NONE);
+        this.tree = dlist.getParseTree();
+        this.tokens = getParsedTokens();
+        this.text = text;
+        this.reparsed = text.length();
+        return tree;
+    }
+
+    /**
+     * apply an edit to the document and update the parse tree; the tree
+     * returned by the previous call is updated in place
+     *
+     * @param offset   position of the edit
+     * @param deleted  number of deleted characters
+     * @param inserted inserted text
+     * @return updated parse tree
+     * @throws IllegalWorkflowException if no document was parsed yet
+     * @throws ParsingException         if the edited document cannot be
+     *                                  parsed; the previous state is kept
+     */
+    public ParseTree edit(int offset, int deleted, String inserted) throws
+            IllegalWorkflowException, ParsingException {
+        if (tree == null)
+            throw new IllegalWorkflowException("No document has been parsed");
+        if (offset < 0 || deleted < 0 || offset + deleted > text.length())
+            throw new IllegalArgumentException("edit out of bounds");
+
+        String ntext = text.substring(0, offset) + inserted + text.substring
+                (offset + deleted);
+        int delta = inserted.length() - deleted;
+
+        for (ParseTreeNode n : getCandidates(offset, offset + deleted)) {
+            if (reparse(n, ntext, offset + deleted, delta)) {
+                text = ntext;
+                return tree;
+            }
+        }
+
+        LOGGER.debug("fall back to full reparse");
+        return parse(ntext);
+    }
+
+    /**
+     * get the tokens of the most recent parse from the token stream of the
+     * parser, which avoids lexing the input a second time
+     *
+     * @return token buffer
+     */
+    private TokenBuffer getParsedTokens() {
+        TokenStream ts = dlist.getParser().getTokenStream();
+        TokenBuffer tb = new TokenBuffer(Math.max(1, ts.size()));
+        Tokenizer.tokenize(ts, tb);
+        tb.setInput(ts.getTokenSource().getInputStream());
+        return tb;
+    }
+
+    /**
+     * get the rule nodes that strictly enclose the edited region, innermost
+     * first
+     *
+     * @param start first edited character
+     * @param end   index after the last deleted character
+     * @return list of candidates
+     */
+    private List<ParseTreeNode> getCandidates(int start, int end) {
+        List<ParseTreeNode> path = new ArrayList<>();
+        ParseTreeNode cur = tree.getRoot();
+        boolean found = true;
+        while (found) {
+            found = false;
+            for (ParseTreeNode c : cur.getChildren()) {
+                if (!c.isTerminal() && c.getSidx() < start && end <= c.getEidx()) {
+                    path.add(0, c);
+                    cur = c;
+                    found = true;
+                    break;
+                }
+            }
+        }
+        return path;
+    }
+
+    /**
+     * get the length of the text of the default channel tokens that start
+     * in [from, to) of the current document
+     *
+     * @param from first character index
+     * @param to   character index after the range
+     * @return text length
+     */
+    private int getTextLength(int from, int to) {
+        int len = 0;
+        for (int i = tokens.search(from); i < tokens.size() && tokens
+                .getStart(i) < to; i++) {
+            if (tokens.getChannel(i) == Token.DEFAULT_CHANNEL)
+                len += tokens.getStop(i) - tokens.getStart(i) + 1;
+        }
+        return len;
+    }
+
+    /**
+     * try to re-parse the rule node n in isolation and splice the result
+     * into the tree
+     *
+     * @param n     rule node enclosing the edit
+     * @param ntext edited document
+     * @param end   index after the last deleted character (old document)
+     * @param delta length difference between new and old document
+     * @return true if the tree was updated, false otherwise
+     */
+    private boolean reparse(ParseTreeNode n, String ntext, int end, int
+            delta) throws IllegalWorkflowException {
+        int sidx = n.getSidx();
+        int oeidx = n.getEidx();
+        int eidx = oeidx + delta;
+        if (eidx < sidx)
+            return false;
+
+        String win = ntext.substring(sidx, eidx + 1);
+
+        ParserRuleContext ctx;
+        try {
+            ctx = gp.parse(win, n.getRule(), GenericParser.CaseSensitiveType
+                    .NONE);
+        } catch (ParsingException e) {
+            return false;
+        }
+
+        if (gp.getErrorListener().hasErrors())
+            return false;
+
+        // the rule has to cover exactly the same tokens as before
+        if (ctx == null || ctx.getStart() == null || ctx.getStop() == null ||
+                ctx.getStart().getStartIndex() != 0 || ctx.getStop()
+                .getStopIndex() != win.length() - 1)
+            return false;
+
+        ParseTreeNode sub = dlist.getParseTree().getRoot();
+        if (sub.getChildren().size() != 1 || !sub.getChild(0).getRule()
+                .equals(n.getRule()))
+            return false;
+        sub = sub.getChild(0);
+        TokenBuffer wtok = getParsedTokens();
+
+        // the labels of the ancestors contain the label of n
+        String olabel = n.getLabel();
+        List<ParseTreeNode> anc = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        for (ParseTreeNode a = n.getParent(); a != null && a.hasParent(); a
+                = a.getParent()) {
+            int p = getTextLength(a.getSidx(), sidx);
+            if (!a.getLabel().startsWith(olabel, p))
+                return false;
+            anc.add(a);
+            labels.add(a.getLabel().substring(0, p) + sub.getLabel() + a
+                    .getLabel().substring(p + olabel.length()));
+        }
+
+        // splice the tokens of the window; the replaced token range is
+        // determined by the indices of n before the tree is updated
+        int first = tokens.search(sidx);
+        int last = tokens.search(oeidx + 1);
+        int line = tokens.getLine(first);
+        int col = tokens.getColumn(first);
+        TokenBuffer ntok = new TokenBuffer(tokens.size() - (last - first) +
+                wtok.size() + 1);
+        for (int i = 0; i < first; i++) {
+            copy(tokens, i, ntok, 0, tokens.getLine(i), tokens.getColumn(i));
+        }
+        for (int i = 0; i < wtok.size(); i++) {
+            int l = wtok.getLine(i);
+            copy(wtok, i, ntok, sidx, line + l - 1, l == 1 ? col + wtok
+                    .getColumn(i) : wtok.getColumn(i));
+        }
+        // tokens after the window move by the number of added lines; the
+        // ones on the line where the window ends also change their column
+        int ldelta = count(win) - count(text.substring(sidx, oeidx + 1));
+        int cdelta = getColumn(ntext, eidx + 1) - getColumn(text, oeidx + 1);
+        int nl = text.indexOf('\n', oeidx + 1);
+        for (int i = last; i < tokens.size(); i++) {
+            boolean sameLine = nl < 0 || tokens.getStart(i) <= nl;
+            copy(tokens, i, ntok, delta, tokens.getLine(i) + ldelta, tokens
+                    .getColumn(i) + (sameLine ? cdelta : 0));
+        }
+
+        tree.shiftIndices(end, delta);
+        tree.replaceNode(n, sub, sidx);
+        for (int i = 0; i < anc.size(); i++) {
+            tree.setLabel(anc.get(i), labels.get(i));
+        }
+        tokens = ntok;
+
+        reparsed = win.length();
+        LOGGER.debug("reparsed {} ({} characters)", n.getRule(), reparsed);
+        return true;
+    }
+
+    /**
+     * append a token to a token buffer
+     *
+     * @param from   source buffer
+     * @param i      token index
+     * @param to     target buffer
+     * @param shift  offset added to start and stop index
+     * @param line   line of the token
+     * @param column column of the token
+     */
+    private static void copy(TokenBuffer from, int i, TokenBuffer to, int
+            shift, int line, int column) {
+        to.token(from.getType(i), from.getChannel(i), from.getStart(i) +
+                shift, from.getStop(i) + shift, line, column);
+    }
+
+    /**
+     * count the line breaks in a string like the lexer does
+     *
+     * @param s string
+     * @return number of line breaks
+     */
+    private static int count(String s) {
+        int n = 0;
+        for (int i = s.indexOf('\n'); i >= 0; i = s.indexOf('\n', i + 1)) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * get the column of a character index like the lexer does
+     *
+     * @param s   string
+     * @param idx character index
+     * @return column
+     */
+    private static int getColumn(String s, int idx) {
+        return idx - (s.lastIndexOf('\n', idx - 1) + 1);
+    }
+
+    /**
+     * get the current document
+     *
+     * @return document
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * get the current parse tree
+     *
+     * @return parse tree or null if nothing was parsed yet
+     */
+    public ParseTree getParseTree() {
+        return tree;
+    }
+
+    /**
+     * get the tokens of the current document; the token text is only
+     * available after a complete parse
+     *
+     * @return token buffer or null if nothing was parsed yet
+     */
+    public TokenBuffer getTokens() {
+        return tokens;
+    }
+
+    /**
+     * get the number of characters that were parsed by the most recent
+     * call of parse or edit
+     *
+     * @return number of characters
+     */
+    public int getReparsedLength() {
+        return reparsed;
+    }
+}
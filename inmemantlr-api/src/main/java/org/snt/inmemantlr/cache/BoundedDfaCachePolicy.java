@@ -0,0 +1,68 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.cache;
+
+/**
+ * single DFA cache that is cleared as soon as it exceeds a given number of
+ * DFA states
+ */
+public class BoundedDfaCachePolicy implements DfaCachePolicy {
+
+    private final DfaCache cache = new DfaCache();
+    private final long maxStates;
+
+    /**
+     * constructor
+     *
+     * @param maxStates maximum number of lexer and parser DFA states
+     */
+    public BoundedDfaCachePolicy(long maxStates) {
+        if (maxStates <= 0)
+            throw new IllegalArgumentException("maxStates must be positive");
+        this.maxStates = maxStates;
+    }
+
+    @Override
+    public DfaCache getCache(String tenant) {
+        return cache;
+    }
+
+    @Override
+    public void afterParse(DfaCache cache) {
+        if (cache.getStates() > maxStates)
+            cache.clear();
+    }
+
+    /**
+     * get the cache
+     *
+     * @return DFA cache
+     */
+    public DfaCache getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.cache;
+
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.dfa.DFA;
+
+/**
+ * DFA and prediction context cache for a lexer/parser pair that is used
+ * instead of the static caches of the generated recognizers
+ */
+public class DfaCache {
+
+    private ATN lexerAtn = null;
+    private ATN parserAtn = null;
+    private DFA[] lexerDfa = null;
+    private DFA[] parserDfa = null;
+    private PredictionContextCache ctxCache = new PredictionContextCache();
+
+    private int clears = 0;
+
+    /**
+     * create an empty DFA for every decision of an ATN
+     *
+     * @param atn ATN
+     * @return array of DFAs
+     */
+    private static DFA[] newDfa(ATN atn) {
+        DFA[] dfas = new DFA[atn.getNumberOfDecisions()];
+        for (int d = 0; d < dfas.length; d++) {
+            dfas[d] = new DFA(atn.getDecisionState(d), d);
+        }
+        return dfas;
+    }
+
+    /**
+     * count the states of a DFA array
+     *
+     * @param dfas DFAs
+     * @return number of states
+     */
+    public static long countStates(DFA[] dfas) {
+        long n = 0;
+        if (dfas == null)
+            return n;
+        for (DFA d : dfas) {
+            n += d.states.size();
+        }
+        return n;
+    }
+
+    /**
+     * let a lexer use this cache
+     *
+     * @param lex lexer
+     */
+    public synchronized void apply(Lexer lex) {
+        ATN atn = lex.getATN();
+        if (lexerAtn != atn) {
+            lexerAtn = atn;
+            lexerDfa = newDfa(atn);
+        }
+        lex.setInterpreter(new LexerATNSimulator(lex, atn, lexerDfa,
+                ctxCache));
+    }
+
+    /**
+     * let a parser use this cache
+     *
+     * @param parser parser
+     */
+    public synchronized void apply(Parser parser) {
+        ATN atn = parser.getATN();
+        if (parserAtn != atn) {
+            parserAtn = atn;
+            parserDfa = newDfa(atn);
+        }
+        parser.setInterpreter(new ParserATNSimulator(parser, atn, parserDfa,
+                ctxCache));
+    }
+
+    /**
+     * get the number of lexer DFA states
+     *
+     * @return number of states
+     */
+    public synchronized long getLexerStates() {
+        return countStates(lexerDfa);
+    }
+
+    /**
+     * get the number of parser DFA states
+     *
+     * @return number of states
+     */
+    public synchronized long getParserStates() {
+        return countStates(parserDfa);
+    }
+
+    /**
+     * get the number of lexer and parser DFA states
+     *
+     * @return number of states
+     */
+    public synchronized long getStates() {
+        return countStates(lexerDfa) + countStates(parserDfa);
+    }
+
+    /**
+     * get the number of cached prediction contexts
+     *
+     * @return number of prediction contexts
+     */
+    public synchronized int getContextCacheSize() {
+        return ctxCache.size();
+    }
+
+    /**
+     * get the number of times the cache was cleared
+     *
+     * @return number of clears
+     */
+    public synchronized int getClears() {
+        return clears;
+    }
+
+    /**
+     * discard all DFA states and prediction contexts; recognizers that are
+     * currently using the cache keep the old states until they are applied
+     * again
+     */
+    public synchronized void clear() {
+        if (lexerAtn != null)
+            lexerDfa = newDfa(lexerAtn);
+        if (parserAtn != null)
+            parserDfa = newDfa(parserAtn);
+        ctxCache = new PredictionContextCache();
+        clears++;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "lexer states: " + getLexerStates() + ", parser states: " +
+                getParserStates() + ", contexts: " + getContextCacheSize() +
+                ", clears: " + clears;
+    }
+}
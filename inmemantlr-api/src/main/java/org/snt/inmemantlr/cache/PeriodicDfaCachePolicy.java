@@ -0,0 +1,70 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * single DFA cache that is cleared after a fixed number of parses
+ */
+public class PeriodicDfaCachePolicy implements DfaCachePolicy {
+
+    private final DfaCache cache = new DfaCache();
+    private final long interval;
+    private final AtomicLong parses = new AtomicLong();
+
+    /**
+     * constructor
+     *
+     * @param interval number of parses after which the cache is cleared
+     */
+    public PeriodicDfaCachePolicy(long interval) {
+        if (interval <= 0)
+            throw new IllegalArgumentException("interval must be positive");
+        this.interval = interval;
+    }
+
+    @Override
+    public DfaCache getCache(String tenant) {
+        return cache;
+    }
+
+    @Override
+    public void afterParse(DfaCache cache) {
+        if (parses.incrementAndGet() % interval == 0)
+            cache.clear();
+    }
+
+    /**
+     * get the cache
+     *
+     * @return DFA cache
+     */
+    public DfaCache getCache() {
+        return cache;
+    }
+}
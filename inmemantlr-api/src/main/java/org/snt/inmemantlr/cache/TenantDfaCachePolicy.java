@@ -0,0 +1,105 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.cache;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * isolated DFA cache per tenant so that the input of one tenant cannot
+ * inflate the caches of the others; every cache is cleared as soon as it
+ * exceeds a given number of DFA states
+ */
+public class TenantDfaCachePolicy implements DfaCachePolicy {
+
+    // key for parses without tenant
+    private static final String DEFAULT_TENANT = "";
+
+    private final ConcurrentMap<String, DfaCache> caches = new
+            ConcurrentHashMap<>();
+    private final long maxStates;
+
+    /**
+     * constructor for unbounded per-tenant caches
+     */
+    public TenantDfaCachePolicy() {
+        this(0);
+    }
+
+    /**
+     * constructor
+     *
+     * @param maxStates maximum number of DFA states per tenant; 0 for no
+     *                  limit
+     */
+    public TenantDfaCachePolicy(long maxStates) {
+        if (maxStates < 0)
+            throw new IllegalArgumentException("maxStates must not be negative");
+        this.maxStates = maxStates;
+    }
+
+    @Override
+    public DfaCache getCache(String tenant) {
+        return caches.computeIfAbsent(tenant == null ? DEFAULT_TENANT :
+                tenant, t -> new DfaCache());
+    }
+
+    @Override
+    public void afterParse(DfaCache cache) {
+        if (maxStates > 0 && cache.getStates() > maxStates)
+            cache.clear();
+    }
+
+    /**
+     * get the tenants that have a cache
+     *
+     * @return set of tenants
+     */
+    public Set<String> getTenants() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    /**
+     * drop the cache of a tenant
+     *
+     * @param tenant tenant
+     */
+    public void remove(String tenant) {
+        caches.remove(tenant == null ? DEFAULT_TENANT : tenant);
+    }
+
+    /**
+     * get the total number of DFA states of all tenants
+     *
+     * @return number of states
+     */
+    public long getStates() {
+        return caches.values().stream().mapToLong(DfaCache::getStates).sum();
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.comp;
+
+import javax.tools.*;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * file manager that memoizes the listings of class path and platform
+ * locations; these do not change between compilations, so a compiler that
+ * is kept warm does not have to rescan them, e.g. for the types of the
+ * antlr runtime
+ */
+class CachingJavaFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+    private final ConcurrentMap<String, List<JavaFileObject>> listings = new
+            ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * constructor
+     *
+     * @param fm file manager to delegate to
+     */
+    CachingJavaFileManager(JavaFileManager fm) {
+        super(fm);
+    }
+
+    @Override
+    public Iterable<JavaFileObject> list(Location location, String
+            packageName, Set<JavaFileObject.Kind> kinds, boolean recurse)
+            throws IOException {
+        if (location.isOutputLocation() || location == StandardLocation
+                .SOURCE_PATH)
+            return super.list(location, packageName, kinds, recurse);
+
+        String key = location.getName() + ":" + packageName + ":" + new
+                TreeSet<>(kinds) + ":" + recurse;
+        List<JavaFileObject> l = listings.get(key);
+        if (l != null) {
+            hits.increment();
+            return l;
+        }
+        l = new ArrayList<>();
+        for (JavaFileObject jfo : super.list(location, packageName, kinds,
+                recurse)) {
+            l.add(jfo);
+        }
+        l = Collections.unmodifiableList(l);
+        listings.putIfAbsent(key, l);
+        return l;
+    }
+
+    /**
+     * forget all listings
+     */
+    void clear() {
+        listings.clear();
+    }
+
+    /**
+     * get the number of listings that were served from the cache
+     *
+     * @return number of cache hits
+     */
+    long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * get the number of cached listings
+     *
+     * @return number of listings
+     */
+    int size() {
+        return listings.size();
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.comp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * long-lived compiler that keeps a number of warm compiler instances, each
+ * with its own file manager whose class path listings are cached across
+ * compilations. Every compilation borrows an instance exclusively, so the
+ * service can be shared by concurrent {@link StringCompiler}s
+ */
+public class CompilerService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompilerService.class);
+
+    /**
+     * a compiler together with its file manager
+     */
+    static class Worker {
+        final JavaCompiler javac;
+        final StandardJavaFileManager sjfm;
+        final CachingJavaFileManager fm;
+        private List<String> options = Collections.emptyList();
+
+        Worker(CompilerBackend backend) {
+            javac = backend.createCompiler();
+            sjfm = javac.getStandardFileManager(null, null, null);
+            fm = new CachingJavaFileManager(sjfm);
+        }
+
+        /**
+         * prepare the worker for a compilation with the given options;
+         * listings that were cached for other options are dropped
+         *
+         * @param opts compiler options
+         */
+        void setOptions(List<String> opts) {
+            if (!opts.equals(options)) {
+                fm.clear();
+                options = new ArrayList<>(opts);
+            }
+        }
+    }
+
+    private static volatile CompilerService shared = null;
+
+    private final CompilerBackend backend;
+    private final int maxWorkers;
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final List<Worker> workers = Collections.synchronizedList(new
+            ArrayList<>());
+    private final AtomicInteger created = new AtomicInteger();
+    private final LongAdder compilations = new LongAdder();
+    private final LongAdder compileTime = new LongAdder();
+
+    /**
+     * constructor; at most one ECJ instance per processor is created
+     */
+    public CompilerService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * constructor
+     *
+     * @param maxWorkers maximum number of ECJ instances, i.e.,
+     *                   concurrent compilations
+     */
+    public CompilerService(int maxWorkers) {
+        this(CompilerBackend.ECJ, maxWorkers);
+    }
+
+    /**
+     * constructor
+     *
+     * @param backend    compiler backend
+     * @param maxWorkers maximum number of compiler instances, i.e.,
+     *                   concurrent compilations
+     */
+    public CompilerService(CompilerBackend backend, int maxWorkers) {
+        if (maxWorkers <= 0)
+            throw new IllegalArgumentException("maxWorkers must be positive");
+        this.backend = Objects.requireNonNull(backend, "backend must not be null");
+        this.maxWorkers = maxWorkers;
+    }
+
+    /**
+     * get the compiler backend
+     *
+     * @return compiler backend
+     */
+    public CompilerBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * get a compiler service that is shared within the JVM
+     *
+     * @return shared compiler service
+     */
+    public static CompilerService getShared() {
+        CompilerService cs = shared;
+        if (cs == null) {
+            synchronized (CompilerService.class) {
+                if (shared == null)
+                    shared = new CompilerService();
+                cs = shared;
+            }
+        }
+        return cs;
+    }
+
+    /**
+     * borrow a compiler instance; blocks if all instances are in use
+     *
+     * @return compiler instance
+     */
+    Worker acquire() {
+        Worker w = idle.poll();
+        if (w != null)
+            return w;
+        if (created.incrementAndGet() <= maxWorkers) {
+            LOGGER.debug("create compiler instance {}", created.get());
+            w = new Worker(backend);
+            workers.add(w);
+            return w;
+        }
+        created.decrementAndGet();
+        try {
+            return idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for " +
+                    "a compiler", e);
+        }
+    }
+
+    /**
+     * return a borrowed compiler instance
+     *
+     * @param w       compiler instance
+     * @param elapsed duration of the compilation in nanoseconds
+     */
+    void release(Worker w, long elapsed) {
+        compilations.increment();
+        compileTime.add(elapsed);
+        idle.offer(w);
+    }
+
+    /**
+     * get the number of compiler instances created so far
+     *
+     * @return number of compiler instances
+     */
+    public int getWorkers() {
+        return workers.size();
+    }
+
+    /**
+     * get the number of compilations
+     *
+     * @return number of compilations
+     */
+    public long getCompilations() {
+        return compilations.sum();
+    }
+
+    /**
+     * get the total compilation time
+     *
+     * @return compilation time in nanoseconds
+     */
+    public long getCompileTime() {
+        return compileTime.sum();
+    }
+
+    /**
+     * get the number of class path listings that were served from the
+     * caches of the compiler instances
+     *
+     * @return number of cache hits
+     */
+    public long getListingHits() {
+        long hits = 0;
+        synchronized (workers) {
+            for (Worker w : workers) {
+                hits += w.fm.getHits();
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * drop the cached class path listings, e.g. after the class path has
+     * changed
+     */
+    public void clear() {
+        synchronized (workers) {
+            workers.forEach(w -> w.fm.clear());
+        }
+    }
+
+    /**
+     * close the file managers of all idle compiler instances and discard
+     * the instances
+     */
+    public void close() {
+        List<Worker> ws = new ArrayList<>();
+        idle.drainTo(ws);
+        for (Worker w : ws) {
+            try {
+                w.sjfm.close();
+            } catch (IOException e) {
+                LOGGER.debug("cannot close file manager: {}", e.getMessage());
+            }
+            workers.remove(w);
+            created.decrementAndGet();
+        }
+    }
+}
@@ -49,8 +49,12 @@ public class DefaultCompilerOptionsProvider implements CompilerOptionsProvider {
         //String cpstring = cp.stream().map(c -> c + ":").reduce(String::new);
         optionList.add("-source");
         optionList.add("1.7");
-        optionList.add("-classpath");
-        optionList.add(String.join(":", cp));
+        // without an explicit class path, the compilers fall back to the
+        // class path of the running JVM
+        if (!cp.isEmpty()) {
+            optionList.add("-classpath");
+            optionList.add(String.join(":", cp));
+        }
         return optionList;
     }
 }
@@ -30,8 +30,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snt.inmemantlr.memobjects.MemoryByteCode;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * extended class loader
@@ -40,7 +40,8 @@ class SpecialClassLoader extends ClassLoader {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SpecialClassLoader.class);
 
-    private Map<String, MemoryByteCode> m = new HashMap<>();
+    // classes may be added by parallel compilations
+    private Map<String, MemoryByteCode> m = new ConcurrentHashMap<>();
 
     public SpecialClassLoader(ClassLoader parent) {
         super(parent);
@@ -29,7 +29,10 @@ package org.snt.inmemantlr.comp;
 import org.snt.inmemantlr.memobjects.MemoryByteCode;
 
 import javax.tools.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Set;
 
@@ -46,10 +49,10 @@ class SpecialJavaFileManager extends ForwardingJavaFileManager<JavaFileManager>
     /**
      * constructor
      *
-     * @param sjfm a StandardJavaFileManager
+     * @param sjfm a JavaFileManager
      * @param xcl  a SpecialClassLoader
      */
-    public SpecialJavaFileManager(StandardJavaFileManager sjfm, SpecialClassLoader xcl) {
+    public SpecialJavaFileManager(JavaFileManager sjfm, SpecialClassLoader xcl) {
         super(sjfm);
         this.xcl = xcl;
     }
@@ -75,6 +78,43 @@ class SpecialJavaFileManager extends ForwardingJavaFileManager<JavaFileManager>
         return mbc;
     }
 
+    /**
+     * get a class file for input; its content is read right away since
+     * ECJ's archive file objects close their archive when they are
+     * finalized, which may happen while ECJ still reads from the stream of
+     * an object it does not reference anymore
+     *
+     * @param location  path
+     * @param className class name
+     * @param kind      file kind
+     * @return java file object or null if there is no such file
+     * @throws IOException if an error occurs reading the file
+     */
+    @Override
+    public JavaFileObject getJavaFileForInput(Location location, String
+            className, JavaFileObject.Kind kind) throws IOException {
+        JavaFileObject jfo = super.getJavaFileForInput(location, className,
+                kind);
+        if (jfo == null || kind != JavaFileObject.Kind.CLASS)
+            return jfo;
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (InputStream in = jfo.openInputStream()) {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                bos.write(buf, 0, n);
+            }
+        }
+        byte[] content = bos.toByteArray();
+        return new ForwardingJavaFileObject<JavaFileObject>(jfo) {
+            @Override
+            public InputStream openInputStream() {
+                return new ByteArrayInputStream(content);
+            }
+        };
+    }
+
     /**
      * get special class loader
      *
@@ -30,21 +30,33 @@ import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.Lexer;
 import org.antlr.v4.runtime.Parser;
-import org.eclipse.jdt.internal.compiler.tool.EclipseCompiler;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.dfa.DFA;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snt.inmemantlr.exceptions.CompilationErrorException;
 import org.snt.inmemantlr.memobjects.MemoryByteCode;
 import org.snt.inmemantlr.memobjects.MemorySource;
+import org.snt.inmemantlr.memobjects.MemoryTuple;
 import org.snt.inmemantlr.memobjects.MemoryTupleSet;
+import org.snt.inmemantlr.utils.HashUtils;
 
 import javax.tools.*;
+import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * a compiler for strings
@@ -55,33 +67,290 @@ public class StringCompiler {
     private static final String CONSTRUCTOR_ARG = "interface org.antlr" +
             ".v4.runtime.TokenStream";
 
-    private SpecialClassLoader cl = null;
-    private MemoryTupleSet mt = null;
+    /**
+     * generated classes together with their class loader; definitions may
+     * be shared by compilers of identical sources
+     */
+    private static class Definitions {
+        private final SpecialClassLoader cl = new SpecialClassLoader
+                (StringCompiler.class.getClassLoader());
+        private final MemoryTupleSet mt = new MemoryTupleSet();
+        private final Map<String, Class<?>> classes = new ConcurrentHashMap<>();
+    }
+
+    // shared definitions are only weakly referenced so that their class
+    // loaders can be collected once no compiler uses them anymore
+    private static final ConcurrentMap<String, WeakReference<Definitions>>
+            SHARED = new ConcurrentHashMap<>();
+
+    private Definitions defs = new Definitions();
+    private SpecialClassLoader cl = defs.cl;
+    private MemoryTupleSet mt = defs.mt;
     private Map<String, Lexer> lexer = null;
     private Map<String, Parser> parser = null;
-    private Map<String, Class<?>> classes = new HashMap<>();
+    private ClassLoader external = null;
+    private boolean shared = false;
+    private CompilerService service = null;
+    private CompilerBackend backend = CompilerBackend.ECJ;
+    private boolean parallel = false;
+    private boolean lean = false;
+    private final List<StringCompiler> linked = new ArrayList<>();
 
 
     /**
      * constructors
      */
     public StringCompiler() {
-        cl = new SpecialClassLoader(getClass().getClassLoader());
         lexer = new HashMap<>();
         parser = new HashMap<>();
-        mt = new MemoryTupleSet();
     }
 
     public void load(MemoryTupleSet mset) {
         if (mset == null || mset.size() == 0)
             throw new IllegalArgumentException("mset must not be null or empty");
 
+        String key = null;
+        if (shared && mt.size() == 0) {
+            List<MemorySource> srcs = new ArrayList<>();
+            mset.forEach(tup -> srcs.add(tup.getSource()));
+            key = getDefinitionKey(srcs);
+            if (adopt(key)) {
+                releaseSources();
+                return;
+            }
+        }
+
         mt.addAll(mset);
         mset.forEach(tup -> tup.getByteCodeObjects().forEach(bc -> cl.addClass(bc)));
+
+        if (key != null)
+            publish(key);
+        releaseSources();
+    }
+
+    /**
+     * discard the generated sources and the duplicate byte code buffers
+     * once classes are compiled or loaded; only the byte code is kept.
+     * If classes are already available, they are released immediately
+     *
+     * @param lean true to release sources, false otherwise
+     */
+    public void setLean(boolean lean) {
+        this.lean = lean;
+        releaseSources();
+    }
+
+    /**
+     * check whether sources are released after compilation
+     *
+     * @return true if sources are released, false otherwise
+     */
+    public boolean isLean() {
+        return lean;
+    }
+
+    /**
+     * release sources and duplicate byte code buffers if the lean mode is
+     * set. Shared definitions keep their sources for the other compilers
+     * that use them; a lean compiler only drops its own references to them
+     */
+    private void releaseSources() {
+        if (!lean)
+            return;
+        if (shared) {
+            // nothing to release yet, or released before
+            if (mt != defs.mt || mt.size() == 0)
+                return;
+            MemoryTupleSet own = new MemoryTupleSet();
+            for (MemoryTuple tup : mt) {
+                own.addMemoryTuple(new MemorySource(tup.getSource()
+                        .getClassName(), null), tup.getByteCodeObjects());
+            }
+            mt = own;
+            return;
+        }
+        for (MemoryTuple tup : mt) {
+            tup.getSource().release();
+            tup.getByteCodeObjects().forEach(MemoryByteCode::compact);
+        }
+    }
+
+    /**
+     * share the generated classes, and thereby the deserialized ATNs and
+     * the DFA caches of the recognizers, with all other sharing compilers
+     * that compile or load identical sources; this has to be set before
+     * compiling or loading
+     *
+     * @param shared true to share the generated classes, false otherwise
+     */
+    public void setShared(boolean shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * check whether generated classes are shared
+     *
+     * @return true if generated classes are shared, false otherwise
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * get the number of distinct sets of generated classes that are
+     * currently shared
+     *
+     * @return number of shared definitions
+     */
+    public static int getSharedDefinitionCount() {
+        SHARED.values().removeIf(r -> r.get() == null);
+        return SHARED.size();
+    }
+
+    /**
+     * compute the key under which the classes generated from a set of
+     * sources are shared
+     *
+     * @param srcs sources
+     * @return key
+     */
+    private static String getDefinitionKey(Collection<MemorySource> srcs) {
+        // the sources reflect grammar as well as tool customizations
+        TreeMap<String, String> sorted = new TreeMap<>();
+        for (MemorySource ms : srcs) {
+            sorted.put(ms.getClassName(), ms.getCharContent(false).toString());
+        }
+        List<String> parts = new ArrayList<>();
+        sorted.forEach((k, v) -> {
+            parts.add(k);
+            parts.add(v);
+        });
+        return HashUtils.sha256(parts);
+    }
+
+    /**
+     * use the shared definitions of a key if there are any
+     *
+     * @param key definition key
+     * @return true if shared definitions were adopted, false otherwise
+     */
+    private boolean adopt(String key) {
+        WeakReference<Definitions> ref = SHARED.get(key);
+        Definitions d = ref != null ? ref.get() : null;
+        if (d == null)
+            return false;
+        LOGGER.debug("share definitions {}", key);
+        defs = d;
+        cl = d.cl;
+        mt = d.mt;
+        return true;
+    }
+
+    /**
+     * offer the definitions of this compiler for sharing; if another
+     * compiler published definitions for the same key in the meantime,
+     * these are used instead
+     *
+     * @param key definition key
+     */
+    private void publish(String key) {
+        WeakReference<Definitions> mine = new WeakReference<>(defs);
+        WeakReference<Definitions> cur = SHARED.merge(key, mine, (o, n) ->
+                o.get() == null ? n : o);
+        if (cur != mine)
+            adopt(key);
+    }
+
+    /**
+     * load the generated classes through a class loader instead of from
+     * memory, e.g. from an exported JAR
+     *
+     * @param loader class loader
+     */
+    public void load(ClassLoader loader) {
+        external = Objects.requireNonNull(loader, "loader must not be null");
+    }
+
+    /**
+     * link the classes of another compiler, e.g. a lexer that is shared by
+     * several parsers; classes that are not defined by this compiler are
+     * looked up in the linked compilers
+     *
+     * @param other compiler whose classes should be linked
+     */
+    public void link(StringCompiler other) {
+        Objects.requireNonNull(other, "compiler must not be null");
+        if (other != this && !linked.contains(other))
+            linked.add(other);
+    }
+
+    /**
+     * get the compiled objects of all linked compilers
+     *
+     * @return memory tuple set
+     */
+    public MemoryTupleSet getLinkedObjects() {
+        MemoryTupleSet ret = new MemoryTupleSet();
+        linked.forEach(l -> ret.addAll(l.getAllCompiledObjects()));
+        return ret;
+    }
+
+    /**
+     * check whether a class was compiled or loaded by this compiler
+     *
+     * @param cname class name
+     * @return true if the class is defined by this compiler, false otherwise
+     */
+    private boolean defines(String cname) {
+        for (MemoryTuple tup : mt) {
+            if (tup.getClassName().equals(cname))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * check whether classes were compiled or loaded
+     *
+     * @return true if classes are available, false otherwise
+     */
+    public boolean isLoaded() {
+        return mt.size() > 0 || external != null;
     }
 
     private static final Class[] parameters = new Class[]{URL.class};
 
+    /**
+     * use a long-lived compiler service instead of creating a compiler for
+     * every compilation
+     *
+     * @param service compiler service or null
+     */
+    public void setCompilerService(CompilerService service) {
+        this.service = service;
+    }
+
+    /**
+     * set the compiler backend; it is not used if a compiler service is
+     * set
+     *
+     * @param backend compiler backend
+     */
+    public void setBackend(CompilerBackend backend) {
+        this.backend = Objects.requireNonNull(backend, "backend must not be null");
+    }
+
+    /**
+     * compile the lexer and the remaining classes in two parallel tasks;
+     * this is only done if there are no utility classes both might depend
+     * on
+     *
+     * @param parallel true to compile in parallel, false otherwise
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
     /**
      * do the compilation for the antlr artifacts
      * @param units string code generation pipeline
@@ -91,32 +360,110 @@ public class StringCompiler {
     public void compile(Set<CunitProvider> units, CompilerOptionsProvider oprov)
             throws
             CompilationErrorException {
-        JavaCompiler javac = new EclipseCompiler();
-
-        StandardJavaFileManager sjfm = javac.getStandardFileManager(null, null, null);
-        SpecialJavaFileManager fileManager = new SpecialJavaFileManager(sjfm, cl);
+        List<String> optionList = new ArrayList<>(oprov.getOptions());
+
+        String key = null;
+        if (shared && mt.size() == 0) {
+            List<MemorySource> srcs = new ArrayList<>();
+            units.forEach(u -> srcs.addAll(u.getItems()));
+            key = getDefinitionKey(srcs);
+            if (adopt(key)) {
+                releaseSources();
+                return;
+            }
+        }
 
-        List<MemorySource> cunit = new ArrayList<>();
-        Set<MemorySource> mset = new HashSet<>();
+        List<MemorySource> lexers = new ArrayList<>();
+        List<MemorySource> others = new ArrayList<>();
+        boolean split = parallel;
 
         for (CunitProvider sc : units) {
-            cunit.addAll(sc.getItems());
+            // utility classes might be used by lexer and parser
+            split &= !(sc instanceof FileProvider);
             for (MemorySource ms : sc.getItems()) {
                 LOGGER.debug(ms.toString());
+                if (ms.getClassName().endsWith("Lexer"))
+                    lexers.add(ms);
+                else
+                    others.add(ms);
             }
         }
 
-        mset.addAll(cunit);
+        Map<MemorySource, Set<MemoryByteCode>> bc;
+        if (split && !lexers.isEmpty() && !others.isEmpty()) {
+            CompletableFuture<Map<MemorySource, Set<MemoryByteCode>>> lf =
+                    CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return compile(lexers, optionList);
+                        } catch (CompilationErrorException e) {
+                            throw new CompletionException(e);
+                        }
+                    });
+            bc = compile(others, optionList);
+            try {
+                bc.putAll(lf.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof CompilationErrorException)
+                    throw (CompilationErrorException) e.getCause();
+                throw e;
+            }
+        } else {
+            lexers.addAll(others);
+            bc = compile(lexers, optionList);
+        }
 
-        DiagnosticListener<? super JavaFileObject> dlistener = null;
-        Iterable<String> classes = null;
+        // book keeping of source-bytecode tuples
+        bc.forEach(mt::addMemoryTuple);
 
-        Writer out = new StringWriter();
+        if (key != null)
+            publish(key);
+        releaseSources();
+    }
+
+    /**
+     * compile a set of sources with a compiler of the compiler service or
+     * a fresh compiler of the backend
+     *
+     * @param cunit      sources
+     * @param optionList compiler options
+     * @return map from sources to the corresponding byte code
+     * @throws CompilationErrorException if the compilation was not successful
+     */
+    private Map<MemorySource, Set<MemoryByteCode>> compile(List<MemorySource>
+            cunit, List<String> optionList) throws CompilationErrorException {
+        if (service != null) {
+            CompilerService.Worker w = service.acquire();
+            long t0 = System.nanoTime();
+            try {
+                w.setOptions(optionList);
+                return compile(cunit, optionList, w.javac, w.fm);
+            } finally {
+                service.release(w, System.nanoTime() - t0);
+            }
+        }
+
+        JavaCompiler javac = backend.createCompiler();
+        StandardJavaFileManager sjfm = javac.getStandardFileManager(null, null, null);
+        try {
+            return compile(cunit, optionList, javac, sjfm);
+        } finally {
+            try {
+                sjfm.close();
+            } catch (IOException e) {
+                LOGGER.debug("cannot close file manager: {}", e.getMessage());
+            }
+        }
+    }
 
-        List<String> optionList = new ArrayList<>();
+    private Map<MemorySource, Set<MemoryByteCode>> compile(List<MemorySource>
+            cunit, List<String> optionList, JavaCompiler javac,
+            JavaFileManager fm) throws CompilationErrorException {
+        SpecialJavaFileManager fileManager = new SpecialJavaFileManager(fm, cl);
 
-        optionList.addAll(oprov.getOptions());
+        DiagnosticListener<? super JavaFileObject> dlistener = null;
+        Iterable<String> classes = null;
 
+        Writer out = new StringWriter();
 
         JavaCompiler.CompilationTask compile = javac.getTask(out, fileManager,
                 dlistener, optionList, classes, cunit);
@@ -129,14 +476,14 @@ public class StringCompiler {
 
         // note that for the memory-source -- we just store the class name
         // the corresponding byte code
-        for (MemorySource ms : mset) {
+        Map<MemorySource, Set<MemoryByteCode>> bc = new LinkedHashMap<>();
+        for (MemorySource ms : new LinkedHashSet<>(cunit)) {
             Set<MemoryByteCode> mb = fileManager.getByteCodeFromClass(ms.getClassName());
             if (mb.size() == 0)
                 throw new IllegalArgumentException("MemoryByteCode must not be empty");
-
-            // book keeping of source-bytecode tuples
-            mt.addMemoryTuple(ms, mb);
+            bc.put(ms, mb);
         }
+        return bc;
     }
 
     /**
@@ -146,18 +493,29 @@ public class StringCompiler {
      * @return a class
      */
     private Class<?> findClass(String cname) {
-        Class clazz;
-        try {
-            if (classes.containsKey(cname)) {
-                clazz = classes.get(cname);
-            } else {
-                clazz = cl.findClass(cname);
-                classes.put(cname, clazz);
+        if (external == null && !linked.isEmpty() && !defines(cname)) {
+            for (StringCompiler l : linked) {
+                if (l.defines(cname))
+                    return l.findClass(cname);
             }
-        } catch (ClassNotFoundException e) {
-            return null;
         }
-
+        Map<String, Class<?>> classes = defs.classes;
+        Class<?> clazz = classes.get(cname);
+        if (clazz != null)
+            return clazz;
+        // shared definitions must not define a class twice
+        synchronized (defs) {
+            clazz = classes.get(cname);
+            if (clazz != null)
+                return clazz;
+            try {
+                clazz = external != null ? external.loadClass(cname) : cl
+                        .findClass(cname);
+            } catch (ClassNotFoundException e) {
+                return null;
+            }
+            classes.put(cname, clazz);
+        }
         return clazz;
     }
 
@@ -237,6 +595,96 @@ public class StringCompiler {
         return eparser;
     }
 
+    /**
+     * get a compiled class
+     *
+     * @param cname class name
+     * @return the class or null if there is no such class
+     */
+    public Class<?> getCompiledClass(String cname) {
+        return findClass(cname);
+    }
+
+    /**
+     * get a static field of a generated recognizer class
+     *
+     * @param className recognizer class name
+     * @param fieldName field name
+     * @return field value or null if class or field do not exist
+     */
+    private Object getStaticField(String className, String fieldName) {
+        Class<?> c = findClass(className);
+        if (c == null)
+            return null;
+        try {
+            Field f = c.getDeclaredField(fieldName);
+            if (!Modifier.isStatic(f.getModifiers()))
+                return null;
+            f.setAccessible(true);
+            return f.get(null);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * get the DFA cache that is shared by all instances of a generated
+     * lexer or parser
+     *
+     * @param className lexer or parser class name
+     * @return array of DFAs, one per decision, or null if there is no such
+     * class
+     */
+    public DFA[] getDecisionToDFA(String className) {
+        Object o = getStaticField(className, "_decisionToDFA");
+        return o instanceof DFA[] ? (DFA[]) o : null;
+    }
+
+    /**
+     * get the prediction context cache that is shared by all instances of
+     * a generated lexer or parser
+     *
+     * @param className lexer or parser class name
+     * @return prediction context cache or null if there is no such class
+     */
+    public PredictionContextCache getSharedContextCache(String className) {
+        Object o = getStaticField(className, "_sharedContextCache");
+        return o instanceof PredictionContextCache ? (PredictionContextCache)
+                o : null;
+    }
+
+    /**
+     * discard the DFA states and prediction contexts that are shared by all
+     * instances of a generated lexer or parser; this must not be done while
+     * an instance of the recognizer is in use, including instances owned by
+     * other compilers that share the class definitions
+     *
+     * @param className lexer or parser class name
+     */
+    public void clearSharedCaches(String className) {
+        DFA[] dfas = getDecisionToDFA(className);
+        Object atn = getStaticField(className, "_ATN");
+        if (dfas != null && atn instanceof ATN) {
+            for (int d = 0; d < dfas.length; d++) {
+                dfas[d] = new DFA(((ATN) atn).getDecisionState(d), d);
+            }
+        }
+
+        PredictionContextCache pcc = getSharedContextCache(className);
+        if (pcc == null)
+            return;
+        // the runtime offers no way to clear the cache, so we have to
+        // access the underlying map
+        try {
+            Field f = PredictionContextCache.class.getDeclaredField("cache");
+            f.setAccessible(true);
+            ((Map<?, ?>) f.get(pcc)).clear();
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            LOGGER.error("cannot clear prediction context cache of {}",
+                    className);
+        }
+    }
+
     /**
      * get all compiled antlr objects (lexer, parser, etc) in source and bytecode format
      *
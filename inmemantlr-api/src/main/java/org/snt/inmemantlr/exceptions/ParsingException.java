@@ -26,6 +26,11 @@
 
 package org.snt.inmemantlr.exceptions;
 
+import org.snt.inmemantlr.tool.ParseError;
+
+import java.util.Collections;
+import java.util.List;
+
 /**
  * this exception is thrown when a parsing error occurrs
  */
@@ -33,13 +38,26 @@ public class ParsingException extends Exception {
 
     private static final long serialVersionUID = -8475142705514927769L;
 
+    private final List<ParseError> errors;
+
     /**
      * constructor
      *
      * @param msg exception message
      */
     public ParsingException(String msg) {
+        this(msg, Collections.emptyList());
+    }
+
+    /**
+     * constructor
+     *
+     * @param msg    exception message
+     * @param errors syntax errors that caused the exception
+     */
+    public ParsingException(String msg, List<ParseError> errors) {
         super(msg);
+        this.errors = errors;
     }
 
     /**
@@ -50,5 +68,15 @@ public class ParsingException extends Exception {
      */
     public ParsingException(String msg, Throwable cause) {
         super(msg, cause);
+        this.errors = Collections.emptyList();
+    }
+
+    /**
+     * get the syntax errors that caused the exception
+     *
+     * @return list of syntax errors
+     */
+    public List<ParseError> getErrors() {
+        return errors;
     }
 }
\ No newline at end of file
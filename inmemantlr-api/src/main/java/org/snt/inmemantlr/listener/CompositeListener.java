@@ -0,0 +1,244 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.listener;
+
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.*;
+
+/**
+ * listener that dispatches the events of a single tree walk or parse to
+ * several listeners. A listener can subscribe to a set of rules; it then
+ * only receives the enter and exit events of these rules as well as the
+ * terminals and error nodes that are immediate children of their contexts
+ */
+public class CompositeListener extends DefaultListener {
+
+    private static final long serialVersionUID = -2714339461806553164L;
+
+    private static final DefaultListener[] NONE = new DefaultListener[0];
+
+    private final List<DefaultListener> listeners = new ArrayList<>();
+    // subscribed rule names per listener, null to receive all events
+    private final List<Set<String>> subscriptions = new ArrayList<>();
+
+    // listeners that receive all events
+    private DefaultListener[] unfiltered = NONE;
+    // listeners per rule index
+    private DefaultListener[][] byRule = new DefaultListener[0][];
+
+    /**
+     * constructor
+     *
+     * @param listeners listeners that receive all events
+     */
+    public CompositeListener(DefaultListener... listeners) {
+        for (DefaultListener l : listeners) {
+            addListener(l);
+        }
+    }
+
+    /**
+     * add a listener that receives all events
+     *
+     * @param l listener
+     */
+    public void addListener(DefaultListener l) {
+        addListener(l, (Set<String>) null);
+    }
+
+    /**
+     * add a listener that only receives the events of the given rules
+     *
+     * @param l     listener
+     * @param rules names of the rules the listener subscribes to
+     */
+    public void addListener(DefaultListener l, String... rules) {
+        if (rules.length == 0)
+            throw new IllegalArgumentException("rules must not be empty");
+        addListener(l, new HashSet<>(Arrays.asList(rules)));
+    }
+
+    /**
+     * add listener
+     *
+     * @param l     listener
+     * @param rules subscribed rule names or null for all events
+     */
+    private void addListener(DefaultListener l, Set<String> rules) {
+        Objects.requireNonNull(l, "listener must not be null");
+        if (l == this)
+            throw new IllegalArgumentException("listener must not be the " +
+                    "composite itself");
+        String[] ruleNames = null;
+        if (parser != null) {
+            ruleNames = parser.getRuleNames();
+            check(rules, ruleNames);
+            l.setParser(parser);
+        }
+        listeners.add(l);
+        subscriptions.add(rules);
+        dispatch(ruleNames);
+    }
+
+    /**
+     * check whether subscribed rules are known
+     *
+     * @param rules     subscribed rule names or null for all events
+     * @param ruleNames rule names of the parser
+     */
+    private static void check(Set<String> rules, String[] ruleNames) {
+        if (rules == null)
+            return;
+        List<String> known = Arrays.asList(ruleNames);
+        for (String r : rules) {
+            if (!known.contains(r))
+                throw new IllegalArgumentException("Rule " + r + " not found");
+        }
+    }
+
+    /**
+     * get the listeners in the order of their registration
+     *
+     * @return list of listeners
+     */
+    public List<DefaultListener> getListeners() {
+        return Collections.unmodifiableList(listeners);
+    }
+
+    /**
+     * compute the dispatch tables
+     *
+     * @param ruleNames rule names of the parser or null if unknown
+     */
+    private void dispatch(String[] ruleNames) {
+        List<DefaultListener> all = new ArrayList<>();
+        for (int i = 0; i < listeners.size(); i++) {
+            if (subscriptions.get(i) == null)
+                all.add(listeners.get(i));
+        }
+        unfiltered = all.toArray(NONE);
+
+        if (ruleNames == null) {
+            byRule = new DefaultListener[0][];
+            return;
+        }
+
+        byRule = new DefaultListener[ruleNames.length][];
+        for (int r = 0; r < ruleNames.length; r++) {
+            List<DefaultListener> ls = new ArrayList<>();
+            for (int i = 0; i < listeners.size(); i++) {
+                Set<String> rules = subscriptions.get(i);
+                if (rules == null || rules.contains(ruleNames[r]))
+                    ls.add(listeners.get(i));
+            }
+            byRule[r] = ls.toArray(NONE);
+        }
+    }
+
+    /**
+     * get the listeners interested in the events of a rule
+     *
+     * @param ruleIndex rule index
+     * @return listeners
+     */
+    private DefaultListener[] getListeners(int ruleIndex) {
+        if (ruleIndex >= 0 && ruleIndex < byRule.length)
+            return byRule[ruleIndex];
+        return unfiltered;
+    }
+
+    /**
+     * get the listeners interested in a terminal or error node
+     *
+     * @param node terminal or error node
+     * @return listeners
+     */
+    private DefaultListener[] getListeners(TerminalNode node) {
+        if (node.getParent() instanceof ParserRuleContext)
+            return getListeners(((ParserRuleContext) node.getParent())
+                    .getRuleIndex());
+        return unfiltered;
+    }
+
+    @Override
+    public void setParser(Parser p) {
+        for (Set<String> rules : subscriptions) {
+            check(rules, p.getRuleNames());
+        }
+        super.setParser(p);
+        for (DefaultListener l : listeners) {
+            l.setParser(p);
+        }
+        dispatch(p.getRuleNames());
+    }
+
+    @Override
+    public void reset() {
+        for (DefaultListener l : listeners) {
+            l.reset();
+        }
+    }
+
+    @Override
+    public void setErrorTolerant(boolean errorTolerant) {
+        for (DefaultListener l : listeners) {
+            l.setErrorTolerant(errorTolerant);
+        }
+    }
+
+    @Override
+    public void visitTerminal(TerminalNode terminalNode) {
+        for (DefaultListener l : getListeners(terminalNode)) {
+            l.visitTerminal(terminalNode);
+        }
+    }
+
+    @Override
+    public void visitErrorNode(ErrorNode errorNode) {
+        for (DefaultListener l : getListeners(errorNode)) {
+            l.visitErrorNode(errorNode);
+        }
+    }
+
+    @Override
+    public void enterEveryRule(ParserRuleContext ctx) {
+        for (DefaultListener l : getListeners(ctx.getRuleIndex())) {
+            l.enterEveryRule(ctx);
+        }
+    }
+
+    @Override
+    public void exitEveryRule(ParserRuleContext ctx) {
+        for (DefaultListener l : getListeners(ctx.getRuleIndex())) {
+            l.exitEveryRule(ctx);
+        }
+    }
+}
@@ -33,9 +33,6 @@ import org.antlr.v4.runtime.tree.ParseTreeListener;
 import org.antlr.v4.runtime.tree.TerminalNode;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
 
 /**
  * default tree listener
@@ -46,7 +43,7 @@ public class DefaultListener implements ParseTreeListener, Serializable {
 
     protected Parser parser;
 
-    private final Map<String, Integer> rmap = new HashMap<>();
+    private String[] rnames = new String[0];
 
     /**
      * constructor
@@ -62,11 +59,7 @@ public class DefaultListener implements ParseTreeListener, Serializable {
      * @return the corresponding rule name
      */
     public String getRuleByKey(int key) {
-        return rmap.entrySet().stream()
-                .filter(e -> Objects.equals(e.getValue(), key))
-                .map(Map.Entry::getKey)
-                .findFirst()
-                .orElse(null);
+        return key >= 0 && key < rnames.length ? rnames[key] : null;
     }
 
     /**
@@ -76,13 +69,32 @@ public class DefaultListener implements ParseTreeListener, Serializable {
      */
     public void setParser(Parser p) {
         parser = p;
-        rmap.clear();
-        rmap.putAll(parser.getRuleIndexMap());
+        rnames = parser.getRuleNames();
+    }
+
+    /**
+     * get the parser of the most recent parse
+     *
+     * @return parser or null if nothing was parsed yet
+     */
+    public Parser getParser() {
+        return parser;
     }
 
     public void reset() {
     }
 
+    /**
+     * notify the listener whether the parse it listens to tolerates syntax
+     * errors; generic parsers and parse contexts call this before every
+     * parse
+     *
+     * @param errorTolerant true if syntax errors are tolerated, false
+     *                      otherwise
+     */
+    public void setErrorTolerant(boolean errorTolerant) {
+    }
+
     @Override
     public void visitTerminal(TerminalNode terminalNode) {
     }
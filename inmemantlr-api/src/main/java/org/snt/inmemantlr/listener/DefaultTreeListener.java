@@ -26,16 +26,21 @@
 
 package org.snt.inmemantlr.listener;
 
+import org.antlr.v4.runtime.Parser;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
 import org.antlr.v4.runtime.tree.ErrorNode;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snt.inmemantlr.tree.ParseTree;
 import org.snt.inmemantlr.tree.ParseTreeNode;
+import org.snt.inmemantlr.tree.ParseTreeVocabulary;
 
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.Objects;
 import java.util.Set;
 import java.util.Stack;
 import java.util.function.Predicate;
@@ -55,6 +60,23 @@ public class DefaultTreeListener extends DefaultListener {
     protected ParseTreeNode nodeptr = null;
     protected Predicate<String> filter = null;
     protected boolean includeTerminals = false;
+    protected boolean indexed = false;
+    // true if the parse tolerates syntax errors
+    protected boolean errorTolerant = false;
+
+    private final RuleFilter rfilter;
+    // predicate of rfilter, filter differs from it once a subclass sets it
+    private final Predicate<String> rpred;
+    // indices of the rules that are kept, null if there is no parser yet
+    private BitSet kept = null;
+    // filter from which kept was resolved
+    private Predicate<String> keptFor = null;
+    // vocabulary of the grammar, null if there is no parser yet
+    private ParseTreeVocabulary vocabulary = null;
+
+    // most recently exited rule context and its node
+    private transient ParserRuleContext lastctx = null;
+    private transient ParseTreeNode lastnode = null;
 
     /**
      * constructor
@@ -68,8 +90,7 @@ public class DefaultTreeListener extends DefaultListener {
      * @param includeTerminals include terminal nodes in resulting tree
      */
     public DefaultTreeListener(boolean includeTerminals) {
-        this(x -> !x.isEmpty());
-        this.includeTerminals = includeTerminals;
+        this(RuleFilter.all(), includeTerminals);
     }
 
     /**
@@ -78,16 +99,79 @@ public class DefaultTreeListener extends DefaultListener {
      * @param filter condition that has to hold for every node
      */
     public DefaultTreeListener(Predicate<String> filter) {
+        this(RuleFilter.of(filter), false);
+    }
+
+    /**
+     * constructor
+     *
+     * @param filter           filter that selects the rules for which
+     *                         nodes are created
+     * @param includeTerminals include terminal nodes in resulting tree
+     */
+    public DefaultTreeListener(RuleFilter filter, boolean includeTerminals) {
         sctx.add("S");
         parseTree = new ParseTree("root", "root");
         nodeptr = parseTree.getRoot();
-        this.filter = filter;
+        this.rfilter = Objects.requireNonNull(filter, "filter must not be " +
+                "null");
+        this.rpred = filter::test;
+        this.filter = rpred;
+        this.includeTerminals = includeTerminals;
+    }
+
+    /**
+     * maintain an index from rule names and terminal labels to nodes
+     * while the tree is constructed (see {@link ParseTree#getNodesByRule})
+     *
+     * @param indexed true to index the resulting tree, false otherwise
+     */
+    public void setIndexed(boolean indexed) {
+        this.indexed = indexed;
+        parseTree.setIndexed(indexed);
+    }
+
+    @Override
+    public void setParser(Parser p) {
+        super.setParser(p);
+        kept = (filter == rpred ? rfilter : RuleFilter.of(filter))
+                .resolve(p.getRuleNames());
+        keptFor = filter;
+        ParseTreeVocabulary voc = ParseTreeVocabulary.of(p);
+        if (voc != vocabulary) {
+            vocabulary = voc;
+            // rule nodes of the tree refer to rule indices of the parser
+            if (parseTree.getNodes().size() == 1)
+                newParseTree();
+        }
+    }
+
+    /**
+     * start a new tree
+     */
+    private void newParseTree() {
+        parseTree = vocabulary != null ? new ParseTree("root", "root",
+                indexed, vocabulary) : new ParseTree("root", "root", indexed);
+        nodeptr = parseTree.getRoot();
+    }
+
+    /**
+     * check whether a node is created for a rule context
+     *
+     * @param ctx rule context
+     * @return true if a node is created for ctx, false otherwise
+     */
+    private boolean keeps(ParserRuleContext ctx) {
+        if (kept != null && filter == keptFor)
+            return kept.get(ctx.getRuleIndex());
+        return filter.test(getRuleByKey(ctx.getRuleIndex()));
     }
 
     @Override
     public void visitTerminal(TerminalNode terminalNode) {
         if(includeTerminals) {
-            ParseTreeNode n = parseTree.newNode(nodeptr,"",
+            ParseTreeNode n = parseTree.newTerminalNode(nodeptr,
+                    terminalNode.getSymbol().getType(),
                     terminalNode.toString(),
                     terminalNode.getSymbol().getStartIndex(),
                     terminalNode.getSymbol().getStopIndex());
@@ -95,30 +179,110 @@ public class DefaultTreeListener extends DefaultListener {
         }
     }
 
+    @Override
+    public void setErrorTolerant(boolean errorTolerant) {
+        this.errorTolerant = errorTolerant;
+    }
+
     @Override
     public void visitErrorNode(ErrorNode errorNode) {
+        // error nodes are leaves, which rule-only trees of strict parses
+        // do not have
+        if (!includeTerminals && !errorTolerant)
+            return;
+        ParseTreeNode n = parseTree.newErrorNode(nodeptr,
+                errorNode.getSymbol().getType(),
+                errorNode.getText(),
+                errorNode.getSymbol().getStartIndex(),
+                errorNode.getSymbol().getStopIndex());
+        nodeptr.addChild(n);
     }
 
     @Override
     public void enterEveryRule(ParserRuleContext ctx) {
-        String rule = getRuleByKey(ctx.getRuleIndex());
-        if (filter.test(rule)) {
-            Token s = ctx.getStart();
-            Token e = ctx.getStop();
-            ParseTreeNode n = parseTree.newNode(nodeptr, rule, ctx.getText(),
-                    s != null ? s.getStartIndex() : 0,
-                    e != null ? e.getStopIndex() : 0);
-            nodeptr.addChild(n);
+        if (keeps(ctx)) {
+            // label and indices are set when the rule is exited
+            ParseTreeNode n = parseTree.getVocabulary() == vocabulary ?
+                    parseTree.newNode(nodeptr, ctx.getRuleIndex(), "", 0, 0) :
+                    parseTree.newNode(nodeptr, getRuleByKey(ctx
+                            .getRuleIndex()), "", 0, 0);
+            if (lastctx != null && lastctx.getParent() == ctx) {
+                // as a parse listener, we are notified about a
+                // left-recursive invocation after the context that becomes
+                // its first child was exited
+                nodeptr.replaceChild(lastnode, n);
+                lastnode.setParent(n);
+                n.addChild(lastnode);
+            } else {
+                nodeptr.addChild(n);
+            }
             nodeptr = n;
         }
+        lastctx = null;
+        lastnode = null;
     }
 
     @Override
     public void exitEveryRule(ParserRuleContext ctx) {
-        String rule = getRuleByKey(ctx.getRuleIndex());
-        if (filter.test(rule)) {
+        if (keeps(ctx)) {
+            Token s = ctx.getStart();
+            Token e = getStop(ctx);
+            int sidx = s != null ? s.getStartIndex() : 0;
+            int eidx = e != null ? e.getStopIndex() : 0;
+            parseTree.completeNode(nodeptr, getText(ctx, e), sidx, eidx, ctx
+                    .exception != null);
+            lastctx = ctx;
+            lastnode = nodeptr;
             nodeptr = nodeptr.getParent();
+            if (rfilter.isCollapsing() && lastnode.getChildren().size() ==
+                    1 && !lastnode.getFirstChild().isTerminal() && !lastnode
+                    .isError()) {
+                ParseTreeNode c = lastnode.getFirstChild();
+                parseTree.collapseNode(lastnode);
+                lastnode = c;
+            }
+        }
+    }
+
+    /**
+     * get the last token of a rule context; as a parse listener, we are
+     * notified about the exit of a left-recursive context before its stop
+     * token is set
+     *
+     * @param ctx rule context
+     * @return last token or null if there is none
+     */
+    private Token getStop(ParserRuleContext ctx) {
+        // the parser is still in the context while we are notified
+        if (ctx.getStop() == null && parser != null && parser.getContext()
+                == ctx)
+            return parser.getTokenStream().LT(-1);
+        return ctx.getStop();
+    }
+
+    /**
+     * get the text of a rule context; a parser that does not build parse
+     * trees only adds terminals to the contexts, hence the text is taken
+     * from the token stream in this case
+     *
+     * @param ctx rule context
+     * @param e   last token of the rule context
+     * @return text of the rule context
+     */
+    private String getText(ParserRuleContext ctx, Token e) {
+        if (parser == null || parser.getBuildParseTree())
+            return ctx.getText();
+        Token s = ctx.getStart();
+        if (s == null || e == null || e.getTokenIndex() < s.getTokenIndex())
+            return "";
+        TokenStream ts = parser.getTokenStream();
+        StringBuilder sb = new StringBuilder();
+        for (int i = s.getTokenIndex(); i <= e.getTokenIndex(); i++) {
+            Token t = ts.get(i);
+            if (t.getChannel() == s.getChannel())
+                sb.append(t.getText());
         }
+        return sb.toString();
     }
 
     @Override
@@ -126,8 +290,9 @@ public class DefaultTreeListener extends DefaultListener {
         super.reset();
         sctx.clear();
         sctx.add("S");
-        parseTree = new ParseTree("root", "root");
-        nodeptr = parseTree.getRoot();
+        newParseTree();
+        lastctx = null;
+        lastnode = null;
         glob.delete(0, glob.length());
     }
 
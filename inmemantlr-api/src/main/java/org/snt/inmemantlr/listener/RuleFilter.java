@@ -0,0 +1,160 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.listener;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * filter that selects the rules for which a {@link DefaultTreeListener}
+ * creates nodes. The filter is resolved once against the rule names of a
+ * parser into a set of rule indices such that rule contexts are only
+ * checked by their index while the tree is constructed
+ */
+public final class RuleFilter {
+
+    private final Predicate<String> keep;
+    private final boolean collapse;
+
+    /**
+     * constructor
+     *
+     * @param keep     condition that has to hold for the name of every rule
+     *                 for which nodes are created
+     * @param collapse true to collapse single-child chains
+     */
+    private RuleFilter(Predicate<String> keep, boolean collapse) {
+        this.keep = Objects.requireNonNull(keep, "keep must not be null");
+        this.collapse = collapse;
+    }
+
+    /**
+     * create a filter that keeps all rules
+     *
+     * @return filter
+     */
+    public static RuleFilter all() {
+        return of(x -> !x.isEmpty());
+    }
+
+    /**
+     * create a filter from a condition on rule names
+     *
+     * @param keep condition that has to hold for the name of every rule for
+     *             which nodes are created
+     * @return filter
+     */
+    public static RuleFilter of(Predicate<String> keep) {
+        return new RuleFilter(keep, false);
+    }
+
+    /**
+     * create a filter that only keeps the given rules
+     *
+     * @param rules names of the rules to keep
+     * @return filter
+     */
+    public static RuleFilter keep(String... rules) {
+        Set<String> s = new HashSet<>(Arrays.asList(rules));
+        return of(s::contains);
+    }
+
+    /**
+     * create a filter that drops the rules whose names match a regular
+     * expression
+     *
+     * @param regex regular expression
+     * @return filter
+     */
+    public static RuleFilter drop(String regex) {
+        Pattern p = Pattern.compile(regex);
+        return of(x -> !x.isEmpty() && !p.matcher(x).matches());
+    }
+
+    /**
+     * combine this filter with another one
+     *
+     * @param other filter
+     * @return filter that keeps a rule if both filters keep it and that
+     * collapses single-child chains if one of them does
+     */
+    public RuleFilter and(RuleFilter other) {
+        return new RuleFilter(keep.and(other.keep), collapse || other
+                .collapse);
+    }
+
+    /**
+     * get a filter that additionally collapses single-child chains, i.e.,
+     * a node whose only child is a rule node (and which therefore spans
+     * the same text) is replaced by that child
+     *
+     * @return filter
+     */
+    public RuleFilter collapseChains() {
+        return new RuleFilter(keep, true);
+    }
+
+    /**
+     * check whether single-child chains are collapsed
+     *
+     * @return true if single-child chains are collapsed, false otherwise
+     */
+    public boolean isCollapsing() {
+        return collapse;
+    }
+
+    /**
+     * check whether nodes are created for a rule
+     *
+     * @param rule rule name
+     * @return true if nodes are created for the rule, false otherwise
+     */
+    public boolean test(String rule) {
+        return rule != null && keep.test(rule);
+    }
+
+    /**
+     * resolve the filter against the rule names of a parser
+     *
+     * @param ruleNames rule names, e.g. from {@link
+     *                  org.antlr.v4.runtime.Parser#getRuleNames()}
+     * @return set of the indices of the rules for which nodes are created
+     */
+    public BitSet resolve(String[] ruleNames) {
+        BitSet bs = new BitSet(ruleNames.length);
+        for (int i = 0; i < ruleNames.length; i++) {
+            if (test(ruleNames[i]))
+                bs.set(i);
+        }
+        return bs;
+    }
+}
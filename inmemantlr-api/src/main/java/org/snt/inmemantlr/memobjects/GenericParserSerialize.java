@@ -27,6 +27,8 @@
 package org.snt.inmemantlr.memobjects;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * an object that is used for serializing a generic
@@ -39,6 +41,8 @@ public class GenericParserSerialize implements Serializable {
     private MemoryTupleSet mset;
     private String parserName;
     private String lexerName;
+    // absent in objects stored by older versions
+    private List<String> samples;
 
     /**
      * constructor
@@ -48,12 +52,26 @@ public class GenericParserSerialize implements Serializable {
      * @param lexerName  lexer name
      */
     public GenericParserSerialize(MemoryTupleSet mset, String parserName, String lexerName) {
+        this(mset, parserName, lexerName, null);
+    }
+
+    /**
+     * constructor
+     *
+     * @param mset       set of source/byte code tuples
+     * @param parserName parser name
+     * @param lexerName  lexer name
+     * @param samples    sample inputs used to warm up the parser, may be null
+     */
+    public GenericParserSerialize(MemoryTupleSet mset, String parserName,
+                                  String lexerName, List<String> samples) {
         if (mset == null || mset.size() == 0)
             throw new IllegalArgumentException("mset must not be null or empty");
 
         this.mset = mset;
         this.parserName = parserName;
         this.lexerName = lexerName;
+        this.samples = samples == null ? null : new ArrayList<>(samples);
     }
 
     public MemoryTupleSet getMemoryTupleSet() {
@@ -67,4 +85,13 @@ public class GenericParserSerialize implements Serializable {
     public String getLexerName() {
         return lexerName;
     }
+
+    /**
+     * get sample inputs for warming up the parser
+     *
+     * @return list of samples (empty if none were stored)
+     */
+    public List<String> getSamples() {
+        return samples == null ? new ArrayList<>() : samples;
+    }
 }
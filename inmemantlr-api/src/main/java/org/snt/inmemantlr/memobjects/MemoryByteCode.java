@@ -91,10 +91,31 @@ public class MemoryByteCode extends MemoryFile implements Serializable {
      * @return byte array
      */
     public byte[] getBytes() {
-        if (bytebuf == null)
+        compact();
+        return bytebuf;
+    }
+
+    /**
+     * copy the content of the output stream into the byte buffer and
+     * discard the output stream, so that the byte code is not kept twice
+     */
+    public void compact() {
+        if (bytebuf == null && baos != null) {
             bytebuf = baos.toByteArray();
+            baos = null;
+        }
+    }
 
-        return bytebuf;
+    /**
+     * get the number of bytes that are retained by this object
+     *
+     * @return number of bytes in the output stream and the byte buffer
+     */
+    public long getRetainedSize() {
+        long size = bytebuf != null ? bytebuf.length : 0;
+        if (baos != null)
+            size += baos.size();
+        return size;
     }
 
     /**
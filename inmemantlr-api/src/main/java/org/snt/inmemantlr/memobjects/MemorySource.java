@@ -69,9 +69,38 @@ public class MemorySource extends MemoryFile implements Serializable {
      * @return source as char sequence
      */
     public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        if (src == null)
+            throw new IllegalStateException("source of " + cname + " was " +
+                    "released");
         return src;
     }
 
+    /**
+     * discard the source string once it is not needed anymore, e.g. after
+     * the compilation
+     */
+    public void release() {
+        src = null;
+    }
+
+    /**
+     * check whether the source string was discarded
+     *
+     * @return true if the source was released, false otherwise
+     */
+    public boolean isReleased() {
+        return src == null;
+    }
+
+    /**
+     * get the number of bytes that are retained by the source string
+     *
+     * @return number of bytes, 0 if the source was released
+     */
+    public long getRetainedSize() {
+        return src != null ? 2L * src.length() : 0;
+    }
+
     /**
      * open new output stream
      *
@@ -87,7 +116,8 @@ public class MemorySource extends MemoryFile implements Serializable {
      * @return input stream
      */
     public InputStream openInputStream() {
-        return new ByteArrayInputStream(src.getBytes());
+        return new ByteArrayInputStream(getCharContent(false).toString()
+                .getBytes());
     }
 
     @Override
@@ -82,6 +82,22 @@ public class MemoryTupleSet implements Serializable, Iterable<MemoryTuple> {
         mts.addAll(mset.mts);
     }
 
+    /**
+     * get the number of bytes that are retained by the sources and byte
+     * code objects of this set, not counting object overhead
+     *
+     * @return number of bytes
+     */
+    public long getRetainedSize() {
+        long size = 0;
+        for (MemoryTuple t : mts) {
+            size += t.getSource().getRetainedSize();
+            for (MemoryByteCode b : t.getByteCodeObjects())
+                size += b.getRetainedSize();
+        }
+        return size;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
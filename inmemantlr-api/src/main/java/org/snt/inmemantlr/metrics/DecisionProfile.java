@@ -0,0 +1,190 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.metrics;
+
+import org.antlr.v4.runtime.atn.DecisionInfo;
+
+import java.util.Comparator;
+
+/**
+ * prediction statistics of a single parser decision aggregated over
+ * multiple parses
+ */
+public class DecisionProfile {
+
+    public static final Comparator<DecisionProfile> BY_TIME = Comparator
+            .comparingLong(DecisionProfile::getTimeInPrediction).reversed();
+
+    public static final Comparator<DecisionProfile> BY_LL_FALLBACK =
+            Comparator.comparingLong(DecisionProfile::getLlFallback).reversed();
+
+    public static final Comparator<DecisionProfile> BY_MAX_LOOK = Comparator
+            .comparingLong(DecisionProfile::getMaxLook).reversed();
+
+    private final int decision;
+    private final String rule;
+    private final int line;
+
+    private long invocations = 0;
+    private long timeInPrediction = 0;
+    private long sllTotalLook = 0;
+    private long sllMaxLook = 0;
+    private long llTotalLook = 0;
+    private long llMaxLook = 0;
+    private long llFallback = 0;
+    private long ambiguities = 0;
+    private long contextSensitivities = 0;
+    private long errors = 0;
+    private long predicateEvals = 0;
+
+    /**
+     * constructor
+     *
+     * @param decision decision number
+     * @param rule     name of the rule that contains the decision
+     * @param line     grammar line of the decision or -1 if unknown
+     */
+    public DecisionProfile(int decision, String rule, int line) {
+        this.decision = decision;
+        this.rule = rule;
+        this.line = line;
+    }
+
+    /**
+     * add the statistics of a single parse
+     *
+     * @param di decision info of the profiling simulator
+     */
+    void add(DecisionInfo di) {
+        if (di.invocations == 0)
+            return;
+        invocations += di.invocations;
+        timeInPrediction += di.timeInPrediction;
+        sllTotalLook += di.SLL_TotalLook;
+        sllMaxLook = Math.max(sllMaxLook, di.SLL_MaxLook);
+        llTotalLook += di.LL_TotalLook;
+        llMaxLook = Math.max(llMaxLook, di.LL_MaxLook);
+        llFallback += di.LL_Fallback;
+        ambiguities += di.ambiguities.size();
+        contextSensitivities += di.contextSensitivities.size();
+        errors += di.errors.size();
+        predicateEvals += di.predicateEvals.size();
+    }
+
+    public int getDecision() {
+        return decision;
+    }
+
+    public String getRule() {
+        return rule;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public long getInvocations() {
+        return invocations;
+    }
+
+    /**
+     * get time spent in prediction
+     *
+     * @return time in nanoseconds
+     */
+    public long getTimeInPrediction() {
+        return timeInPrediction;
+    }
+
+    public long getSllTotalLook() {
+        return sllTotalLook;
+    }
+
+    public long getSllMaxLook() {
+        return sllMaxLook;
+    }
+
+    public long getLlTotalLook() {
+        return llTotalLook;
+    }
+
+    public long getLlMaxLook() {
+        return llMaxLook;
+    }
+
+    /**
+     * get maximum lookahead depth of SLL and full-context prediction
+     *
+     * @return maximum lookahead depth
+     */
+    public long getMaxLook() {
+        return Math.max(sllMaxLook, llMaxLook);
+    }
+
+    /**
+     * get number of fallbacks from SLL to full-context prediction
+     *
+     * @return number of fallbacks
+     */
+    public long getLlFallback() {
+        return llFallback;
+    }
+
+    public long getAmbiguities() {
+        return ambiguities;
+    }
+
+    public long getContextSensitivities() {
+        return contextSensitivities;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getPredicateEvals() {
+        return predicateEvals;
+    }
+
+    /**
+     * get the average lookahead depth per invocation
+     *
+     * @return average lookahead depth
+     */
+    public double getAvgLook() {
+        return invocations == 0 ? 0 : (double) (sllTotalLook + llTotalLook)
+                / invocations;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%5d %-24s %5s %10d %12d %8.2f %6d %8d %6d %6d",
+                decision, rule, line < 0 ? "?" : String.valueOf(line),
+                invocations, timeInPrediction, getAvgLook(), getMaxLook(),
+                llFallback, ambiguities, contextSensitivities);
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * lock-free histogram of non-negative values with power-of-two buckets
+ */
+public class Histogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long
+            .MAX_VALUE);
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long
+            .MIN_VALUE);
+
+    /**
+     * add a value; negative values are ignored
+     *
+     * @param v value
+     */
+    public void record(long v) {
+        if (v < 0)
+            return;
+        // bucket i holds values in [2^(i-1), 2^i - 1], bucket 0 holds 0
+        buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(v));
+        count.increment();
+        sum.add(v);
+        min.accumulate(v);
+        max.accumulate(v);
+    }
+
+    /**
+     * get number of recorded values
+     *
+     * @return number of values
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * get sum of recorded values
+     *
+     * @return sum
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * get mean of recorded values
+     *
+     * @return mean or 0 if nothing was recorded
+     */
+    public double getMean() {
+        long c = getCount();
+        return c == 0 ? 0 : (double) getSum() / c;
+    }
+
+    /**
+     * get smallest recorded value
+     *
+     * @return minimum or 0 if nothing was recorded
+     */
+    public long getMin() {
+        return getCount() == 0 ? 0 : min.get();
+    }
+
+    /**
+     * get largest recorded value
+     *
+     * @return maximum or 0 if nothing was recorded
+     */
+    public long getMax() {
+        return getCount() == 0 ? 0 : max.get();
+    }
+
+    /**
+     * get an approximation of a percentile, i.e., the upper bound of the
+     * bucket that contains the percentile
+     *
+     * @param p percentile between 0 and 100
+     * @return approximated percentile or 0 if nothing was recorded
+     */
+    public long getPercentile(double p) {
+        if (p < 0 || p > 100)
+            throw new IllegalArgumentException("p must be between 0 and 100");
+
+        long c = getCount();
+        if (c == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * c));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank)
+                return Math.min(i == 0 ? 0 : i >= 63 ? Long.MAX_VALUE : (1L
+                        << i) - 1, getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * reset the histogram
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        min.reset();
+        max.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() + " mean=" + String.format("%.1f",
+                getMean()) + " min=" + getMin() + " p50=" + getPercentile
+                (50) + " p99=" + getPercentile(99) + " max=" + getMax();
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * metrics collector that keeps in-memory histograms of phase durations and
+ * per-parse throughput figures; safe to share between parsers
+ */
+public class HistogramMetricsCollector implements MetricsCollector {
+
+    private final Map<Phase, Histogram> phases = new EnumMap<>(Phase.class);
+    private final Histogram inputSizes = new Histogram();
+    private final Histogram tokenCounts = new Histogram();
+    private final Histogram nodeCounts = new Histogram();
+    private final Histogram errorCounts = new Histogram();
+
+    /**
+     * constructor
+     */
+    public HistogramMetricsCollector() {
+        for (Phase p : Phase.values()) {
+            phases.put(p, new Histogram());
+        }
+    }
+
+    @Override
+    public void recordPhase(Phase phase, long nanos) {
+        phases.get(phase).record(nanos);
+    }
+
+    @Override
+    public void recordParse(int inputSize, int tokens, int nodes, int errors) {
+        inputSizes.record(inputSize);
+        tokenCounts.record(tokens);
+        nodeCounts.record(nodes);
+        errorCounts.record(errors);
+    }
+
+    /**
+     * get the histogram of durations (in nanoseconds) of a phase
+     *
+     * @param phase phase
+     * @return histogram
+     */
+    public Histogram getHistogram(Phase phase) {
+        return phases.get(phase);
+    }
+
+    /**
+     * get the histogram of input sizes (in characters)
+     *
+     * @return histogram
+     */
+    public Histogram getInputSizes() {
+        return inputSizes;
+    }
+
+    /**
+     * get the histogram of token counts
+     *
+     * @return histogram
+     */
+    public Histogram getTokenCounts() {
+        return tokenCounts;
+    }
+
+    /**
+     * get the histogram of parse tree node counts; parses for which the
+     * node count is unknown are not included
+     *
+     * @return histogram
+     */
+    public Histogram getNodeCounts() {
+        return nodeCounts;
+    }
+
+    /**
+     * get the histogram of syntax error counts
+     *
+     * @return histogram
+     */
+    public Histogram getErrorCounts() {
+        return errorCounts;
+    }
+
+    /**
+     * get the lexer throughput over all recorded parses
+     *
+     * @return tokens per second or 0 if nothing was recorded
+     */
+    public double getTokensPerSecond() {
+        long ns = phases.get(Phase.LEX).getSum();
+        return ns == 0 ? 0 : tokenCounts.getSum() * 1e9 / ns;
+    }
+
+    /**
+     * reset all histograms
+     */
+    public void reset() {
+        phases.values().forEach(Histogram::reset);
+        inputSizes.reset();
+        tokenCounts.reset();
+        nodeCounts.reset();
+        errorCounts.reset();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Phase, Histogram> e : phases.entrySet()) {
+            sb.append(e.getKey()).append(" [ns]: ").append(e.getValue())
+                    .append("\n");
+        }
+        sb.append("input size: ").append(inputSizes).append("\n");
+        sb.append("tokens: ").append(tokenCounts).append("\n");
+        sb.append("nodes: ").append(nodeCounts).append("\n");
+        sb.append("errors: ").append(errorCounts).append("\n");
+        return sb.toString();
+    }
+}
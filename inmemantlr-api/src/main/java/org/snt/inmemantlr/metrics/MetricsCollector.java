@@ -0,0 +1,71 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.metrics;
+
+/**
+ * service provider interface for collecting timing and throughput
+ * information of the generic parser; implementations have to be
+ * thread-safe if they are shared between parsers
+ */
+public interface MetricsCollector {
+
+    enum Phase {
+        // creation of the character stream from the input
+        CHAR_STREAM,
+        // lexing, i.e. filling the token stream
+        LEX,
+        // parsing including prediction and, for parse-time listeners, tree
+        // construction
+        PARSE,
+        // walking the parse tree with the listener
+        WALK,
+        // antlr code generation (InmemantlrTool.process())
+        CODEGEN,
+        // in-memory Java compilation (StringCompiler.compile())
+        COMPILE
+    }
+
+    /**
+     * record the duration of a phase
+     *
+     * @param phase phase
+     * @param nanos duration in nanoseconds
+     */
+    void recordPhase(Phase phase, long nanos);
+
+    /**
+     * record the throughput figures of a single parse; this is called for
+     * failed parses as well
+     *
+     * @param inputSize number of input characters
+     * @param tokens    number of tokens
+     * @param nodes     number of parse tree nodes created by the listener or
+     *                  -1 if unknown
+     * @param errors    number of syntax errors
+     */
+    void recordParse(int inputSize, int tokens, int nodes, int errors);
+}
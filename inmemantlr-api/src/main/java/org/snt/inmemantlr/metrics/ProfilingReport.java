@@ -0,0 +1,189 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.metrics;
+
+import org.antlr.runtime.tree.Tree;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.DecisionInfo;
+import org.antlr.v4.runtime.atn.DecisionState;
+import org.antlr.v4.runtime.atn.ParseInfo;
+import org.antlr.v4.tool.Grammar;
+import org.antlr.v4.tool.Rule;
+import org.antlr.v4.tool.ast.GrammarAST;
+
+import java.util.*;
+
+/**
+ * aggregates the decision statistics of antlr's profiling ATN simulator
+ * over many parses of the same grammar and maps decisions back to rule
+ * names and grammar lines
+ */
+public class ProfilingReport {
+
+    private final Map<Integer, DecisionProfile> decisions = new TreeMap<>();
+    private int parses = 0;
+
+    // grammar line per decision, null if the grammar is unknown
+    private Map<Integer, Integer> lines = null;
+
+    /**
+     * add the statistics of a parser that ran in profiling mode
+     *
+     * @param parser parser
+     * @param g      grammar the parser was generated from or null if not
+     *               available (e.g. for deserialized parsers)
+     */
+    public synchronized void add(Parser parser, Grammar g) {
+        ParseInfo pi = parser.getParseInfo();
+        if (pi == null)
+            throw new IllegalArgumentException("parser is not in profiling " +
+                    "mode");
+
+        if (lines == null && g != null)
+            lines = getDecisionLines(g);
+
+        String[] rules = parser.getRuleNames();
+
+        for (DecisionInfo di : pi.getDecisionInfo()) {
+            DecisionProfile dp = decisions.get(di.decision);
+            if (dp == null) {
+                DecisionState ds = parser.getATN().getDecisionState(di
+                        .decision);
+                int line = -1;
+                if (lines != null && lines.containsKey(di.decision))
+                    line = lines.get(di.decision);
+                dp = new DecisionProfile(di.decision, rules[ds.ruleIndex],
+                        line);
+                decisions.put(di.decision, dp);
+            }
+            dp.add(di);
+        }
+        parses++;
+    }
+
+    /**
+     * map decision numbers to the line of the grammar element they belong
+     * to; falls back to the line of the enclosing rule
+     *
+     * @param g grammar
+     * @return map of decision numbers to lines
+     */
+    private static Map<Integer, Integer> getDecisionLines(Grammar g) {
+        Map<Integer, Integer> ret = new HashMap<>();
+        Deque<Tree> todo = new ArrayDeque<>();
+        todo.push(g.ast);
+        while (!todo.isEmpty()) {
+            Tree t = todo.pop();
+            if (t instanceof GrammarAST) {
+                ATNState s = ((GrammarAST) t).atnState;
+                if (s instanceof DecisionState && ((DecisionState) s)
+                        .decision >= 0) {
+                    ret.putIfAbsent(((DecisionState) s).decision, t.getLine());
+                }
+            }
+            for (int i = t.getChildCount() - 1; i >= 0; i--) {
+                todo.push(t.getChild(i));
+            }
+        }
+
+        if (g.atn != null) {
+            for (DecisionState ds : g.atn.decisionToState) {
+                Rule r = g.getRule(ds.ruleIndex);
+                if (r != null && r.ast != null)
+                    ret.putIfAbsent(ds.decision, r.ast.getLine());
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * get number of recorded parses
+     *
+     * @return number of parses
+     */
+    public synchronized int getParses() {
+        return parses;
+    }
+
+    /**
+     * get all decisions that were invoked at least once
+     *
+     * @param order sort order, e.g. {@link DecisionProfile#BY_TIME}
+     * @return sorted list of decision profiles
+     */
+    public synchronized List<DecisionProfile> getDecisions(Comparator<DecisionProfile>
+                                                                   order) {
+        List<DecisionProfile> ret = new ArrayList<>();
+        for (DecisionProfile dp : decisions.values()) {
+            if (dp.getInvocations() > 0)
+                ret.add(dp);
+        }
+        ret.sort(order);
+        return ret;
+    }
+
+    /**
+     * get decisions sorted by time spent in prediction
+     *
+     * @return sorted list of decision profiles
+     */
+    public List<DecisionProfile> getDecisions() {
+        return getDecisions(DecisionProfile.BY_TIME);
+    }
+
+    /**
+     * get the profile of a single decision
+     *
+     * @param decision decision number
+     * @return decision profile or null if not recorded
+     */
+    public synchronized DecisionProfile getDecision(int decision) {
+        return decisions.get(decision);
+    }
+
+    /**
+     * discard all recorded statistics
+     */
+    public synchronized void reset() {
+        decisions.clear();
+        parses = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("parses: ").append(getParses()).append("\n");
+        sb.append(String.format("%5s %-24s %5s %10s %12s %8s %6s %8s %6s %6s",
+                "dec", "rule", "line", "invoc", "time[ns]", "avglook",
+                "maxlk", "fallback", "ambig", "ctxsns")).append("\n");
+        for (DecisionProfile dp : getDecisions()) {
+            sb.append(dp).append("\n");
+        }
+        return sb.toString();
+    }
+}
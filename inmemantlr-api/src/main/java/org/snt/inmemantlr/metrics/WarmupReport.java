@@ -0,0 +1,122 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.metrics;
+
+/**
+ * result of warming up the DFA caches of a generic parser
+ */
+public class WarmupReport {
+
+    private final int parses;
+    private final int failures;
+    private final long lexerStatesBefore;
+    private final long lexerStatesAfter;
+    private final long parserStatesBefore;
+    private final long parserStatesAfter;
+    private final long nanos;
+
+    /**
+     * constructor
+     *
+     * @param parses             number of parsed samples
+     * @param failures           number of samples that could not be parsed
+     * @param lexerStatesBefore  lexer DFA states before warm-up
+     * @param lexerStatesAfter   lexer DFA states after warm-up
+     * @param parserStatesBefore parser DFA states before warm-up
+     * @param parserStatesAfter  parser DFA states after warm-up
+     * @param nanos              duration of the warm-up
+     */
+    public WarmupReport(int parses, int failures, long lexerStatesBefore,
+                        long lexerStatesAfter, long parserStatesBefore,
+                        long parserStatesAfter, long nanos) {
+        this.parses = parses;
+        this.failures = failures;
+        this.lexerStatesBefore = lexerStatesBefore;
+        this.lexerStatesAfter = lexerStatesAfter;
+        this.parserStatesBefore = parserStatesBefore;
+        this.parserStatesAfter = parserStatesAfter;
+        this.nanos = nanos;
+    }
+
+    public int getParses() {
+        return parses;
+    }
+
+    /**
+     * get number of samples that raised a parsing exception; they
+     * contribute to the DFA nevertheless
+     *
+     * @return number of failed samples
+     */
+    public int getFailures() {
+        return failures;
+    }
+
+    public long getLexerStatesBefore() {
+        return lexerStatesBefore;
+    }
+
+    public long getLexerStatesAfter() {
+        return lexerStatesAfter;
+    }
+
+    public long getParserStatesBefore() {
+        return parserStatesBefore;
+    }
+
+    public long getParserStatesAfter() {
+        return parserStatesAfter;
+    }
+
+    /**
+     * get number of DFA states added by the warm-up
+     *
+     * @return number of lexer and parser DFA states added
+     */
+    public long getGrowth() {
+        return lexerStatesAfter - lexerStatesBefore + parserStatesAfter -
+                parserStatesBefore;
+    }
+
+    /**
+     * get duration of the warm-up
+     *
+     * @return duration in nanoseconds
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "parses: " + parses + " (" + failures + " failed), lexer " +
+                "DFA states: " + lexerStatesBefore + " -> " +
+                lexerStatesAfter + ", parser DFA states: " +
+                parserStatesBefore + " -> " + parserStatesAfter + ", " +
+                nanos / 1000000 + " ms";
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.query;
+
+import org.snt.inmemantlr.exceptions.QueryException;
+import org.snt.inmemantlr.tree.ParseTree;
+import org.snt.inmemantlr.tree.ParseTreeNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * a compiled XPath-like query over parse trees. A query is a sequence of
+ * location steps that are evaluated relative to the root of a parse tree:
+ *
+ * <ul>
+ * <li>'/test' matches the children of the current node</li>
+ * <li>'//test' matches all descendants of the current node</li>
+ * </ul>
+ *
+ * where test is either a rule name, '!rule' (any non-terminal but rule),
+ * '*' (any node) or a quoted terminal label such as 'while'. Every step
+ * may be followed by predicates: [n] selects the n-th (1-based) matching
+ * sibling, [last()] the last matching sibling and [@label='text'] restricts
+ * the label of the node. For example, '//whileStatement//expression' selects
+ * all expressions nested in while statements.
+ *
+ * Queries are compiled once and evaluated in a single pass; several queries
+ * can be evaluated together in one traversal with {@link QueryAutomaton}.
+ */
+public class Query {
+
+    private final String expression;
+    private final List<QueryStep> steps;
+    private QueryAutomaton automaton = null;
+
+    /**
+     * constructor
+     *
+     * @param expression query expression
+     * @param steps      location steps
+     */
+    private Query(String expression, List<QueryStep> steps) {
+        this.expression = expression;
+        this.steps = Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * compile a query expression
+     *
+     * @param expression query expression
+     * @return compiled query
+     * @throws QueryException if the expression is malformed
+     */
+    public static Query compile(String expression) throws QueryException {
+        if (expression == null)
+            throw new IllegalArgumentException("expression must not be null");
+
+        return new Query(expression, new QueryReader(expression).read());
+    }
+
+    /**
+     * get location steps
+     *
+     * @return list of location steps
+     */
+    List<QueryStep> getSteps() {
+        return steps;
+    }
+
+    /**
+     * get query expression
+     *
+     * @return the expression this query was compiled from
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * evaluate query on a parse tree
+     *
+     * @param tree parse tree
+     * @return matching nodes in pre-order
+     */
+    public List<ParseTreeNode> evaluate(ParseTree tree) {
+        if (automaton == null)
+            automaton = new QueryAutomaton(this);
+        return automaton.evaluate(tree).get(0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        steps.forEach(sb::append);
+        return sb.toString();
+    }
+
+    /**
+     * recursive descent reader for query expressions
+     */
+    private static class QueryReader {
+
+        private final String s;
+        private int pos = 0;
+
+        QueryReader(String s) {
+            this.s = s;
+        }
+
+        List<QueryStep> read() throws QueryException {
+            List<QueryStep> ret = new ArrayList<>();
+            skipWs();
+            while (pos < s.length()) {
+                ret.add(readStep());
+                skipWs();
+            }
+            if (ret.isEmpty())
+                throw error("empty query");
+            return ret;
+        }
+
+        private QueryStep readStep() throws QueryException {
+            expect('/');
+            QueryStep.Axis axis = QueryStep.Axis.CHILD;
+            if (peek() == '/') {
+                pos++;
+                axis = QueryStep.Axis.DESCENDANT;
+            }
+            skipWs();
+
+            QueryStep step;
+            char c = peek();
+            if (c == '*') {
+                pos++;
+                step = new QueryStep(axis, QueryStep.Test.ANY, null);
+            } else if (c == '\'') {
+                step = new QueryStep(axis, QueryStep.Test.TERMINAL, readQuoted());
+            } else if (c == '!') {
+                pos++;
+                step = new QueryStep(axis, QueryStep.Test.NOT_RULE, readName());
+            } else {
+                step = new QueryStep(axis, QueryStep.Test.RULE, readName());
+            }
+
+            skipWs();
+            while (peek() == '[') {
+                pos++;
+                readPredicate(step);
+                skipWs();
+                expect(']');
+                skipWs();
+            }
+            return step;
+        }
+
+        private void readPredicate(QueryStep step) throws QueryException {
+            skipWs();
+            char c = peek();
+            if (c == '@') {
+                pos++;
+                String attr = readName();
+                if (!"label".equals(attr))
+                    throw error("unknown attribute @" + attr);
+                skipWs();
+                expect('=');
+                skipWs();
+                step.label = readQuoted();
+            } else if (Character.isDigit(c)) {
+                int start = pos;
+                while (Character.isDigit(peek()))
+                    pos++;
+                int p;
+                try {
+                    p = Integer.parseInt(s.substring(start, pos));
+                } catch (NumberFormatException e) {
+                    pos = start;
+                    throw error("position out of range");
+                }
+                if (p < 1)
+                    throw error("positions start at 1");
+                step.position = p;
+            } else if (s.startsWith("last()", pos)) {
+                pos += "last()".length();
+                step.last = true;
+            } else {
+                throw error("unknown predicate");
+            }
+            skipWs();
+        }
+
+        private String readName() throws QueryException {
+            int start = pos;
+            while (pos < s.length() && (Character.isLetterOrDigit(s.charAt
+                    (pos)) || s.charAt(pos) == '_'))
+                pos++;
+            if (start == pos)
+                throw error("name expected");
+            return s.substring(start, pos);
+        }
+
+        private String readQuoted() throws QueryException {
+            expect('\'');
+            StringBuilder sb = new StringBuilder();
+            while (pos < s.length() && s.charAt(pos) != '\'') {
+                char c = s.charAt(pos++);
+                if (c == '\\' && pos < s.length())
+                    c = s.charAt(pos++);
+                sb.append(c);
+            }
+            expect('\'');
+            return sb.toString();
+        }
+
+        private char peek() {
+            return pos < s.length() ? s.charAt(pos) : '\0';
+        }
+
+        private void expect(char c) throws QueryException {
+            if (peek() != c)
+                throw error("'" + c + "' expected");
+            pos++;
+        }
+
+        private void skipWs() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos)))
+                pos++;
+        }
+
+        private QueryException error(String msg) {
+            return new QueryException(msg + " at position " + pos + " in " +
+                    "query " + s);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.query;
+
+import org.snt.inmemantlr.tree.ParseTree;
+import org.snt.inmemantlr.tree.ParseTreeNode;
+
+import java.util.*;
+
+/**
+ * automaton that combines the location steps of several queries and
+ * evaluates all of them in a single pre-order traversal of a parse tree.
+ *
+ * Every step of every query is a state; a state is active for a node if
+ * all preceding steps of its query were matched by ancestors of that node.
+ * Descendant steps stay active for the whole subtree, child steps only for
+ * the direct children. Subtrees for which no state is active are skipped.
+ * The automaton is immutable and can be shared between threads.
+ */
+public class QueryAutomaton {
+
+    private final List<Query> queries;
+
+    private final QueryStep[] steps;
+    // query index for the final state of a query, -1 otherwise
+    private final int[] finals;
+    private final BitSet initial = new BitSet();
+    private final BitSet positional = new BitSet();
+    private final boolean hasLast;
+
+    /**
+     * constructor
+     *
+     * @param queries queries to be evaluated together
+     */
+    public QueryAutomaton(Query... queries) {
+        this(Arrays.asList(queries));
+    }
+
+    /**
+     * constructor
+     *
+     * @param queries queries to be evaluated together
+     */
+    public QueryAutomaton(List<Query> queries) {
+        if (queries.isEmpty())
+            throw new IllegalArgumentException("queries must not be empty");
+
+        this.queries = Collections.unmodifiableList(new ArrayList<>(queries));
+
+        int size = queries.stream().mapToInt(q -> q.getSteps().size()).sum();
+        steps = new QueryStep[size];
+        finals = new int[size];
+
+        boolean last = false;
+        int s = 0;
+        for (int q = 0; q < queries.size(); q++) {
+            initial.set(s);
+            for (QueryStep st : queries.get(q).getSteps()) {
+                steps[s] = st;
+                finals[s] = -1;
+                if (st.isPositional())
+                    positional.set(s);
+                last |= st.last;
+                s++;
+            }
+            finals[s - 1] = q;
+        }
+        hasLast = last;
+    }
+
+    /**
+     * get the queries evaluated by this automaton
+     *
+     * @return list of queries
+     */
+    public List<Query> getQueries() {
+        return queries;
+    }
+
+    /**
+     * evaluate all queries on a parse tree in a single traversal
+     *
+     * @param tree parse tree
+     * @return list of results (matching nodes in pre-order) where the i-th
+     * entry corresponds to the i-th query
+     */
+    public List<List<ParseTreeNode>> evaluate(ParseTree tree) {
+        List<List<ParseTreeNode>> res = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            res.add(new ArrayList<>());
+        }
+        visit(tree.getRoot(), initial, res);
+        return res;
+    }
+
+    /**
+     * evaluate all queries on a parse tree in a single traversal
+     *
+     * @param tree parse tree
+     * @return map from query to the matching nodes in pre-order
+     */
+    public Map<Query, List<ParseTreeNode>> evaluateAll(ParseTree tree) {
+        List<List<ParseTreeNode>> res = evaluate(tree);
+        Map<Query, List<ParseTreeNode>> ret = new LinkedHashMap<>();
+        for (int i = 0; i < queries.size(); i++) {
+            ret.put(queries.get(i), res.get(i));
+        }
+        return ret;
+    }
+
+    /**
+     * match the children of n against the active states
+     *
+     * @param n      current node
+     * @param active states that are active for the children of n
+     * @param res    results
+     */
+    private void visit(ParseTreeNode n, BitSet active, List<List<ParseTreeNode>> res) {
+        List<ParseTreeNode> cld = n.getChildren();
+        if (cld.isEmpty())
+            return;
+
+        // per-state counters for positional predicates among siblings
+        int[] cnt = null;
+        int[] total = null;
+        if (active.intersects(positional)) {
+            cnt = new int[steps.length];
+            if (hasLast) {
+                total = new int[steps.length];
+                for (int s = active.nextSetBit(0); s >= 0; s = active
+                        .nextSetBit(s + 1)) {
+                    if (steps[s].last) {
+                        for (ParseTreeNode c : cld) {
+                            if (steps[s].matches(c))
+                                total[s]++;
+                        }
+                    }
+                }
+            }
+        }
+
+        for (ParseTreeNode c : cld) {
+            BitSet next = new BitSet(steps.length);
+            for (int s = active.nextSetBit(0); s >= 0; s = active.nextSetBit
+                    (s + 1)) {
+                QueryStep st = steps[s];
+
+                if (st.axis == QueryStep.Axis.DESCENDANT)
+                    next.set(s);
+
+                if (!st.matches(c))
+                    continue;
+
+                if (cnt != null && st.isPositional()) {
+                    cnt[s]++;
+                    if (st.position > 0 && cnt[s] != st.position)
+                        continue;
+                    if (st.last && cnt[s] != total[s])
+                        continue;
+                }
+
+                if (finals[s] >= 0) {
+                    res.get(finals[s]).add(c);
+                } else {
+                    next.set(s + 1);
+                }
+            }
+            if (!next.isEmpty())
+                visit(c, next, res);
+        }
+    }
+}
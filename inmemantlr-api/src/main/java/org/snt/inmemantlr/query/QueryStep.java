@@ -0,0 +1,147 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.query;
+
+import org.snt.inmemantlr.tree.ParseTreeNode;
+
+/**
+ * a single location step of a query, e.g. '//expr[2]'
+ */
+class QueryStep {
+
+    enum Axis {
+        CHILD,
+        DESCENDANT
+    }
+
+    enum Test {
+        // any node
+        ANY,
+        // non-terminal with a given rule name
+        RULE,
+        // non-terminal whose rule name differs from a given one
+        NOT_RULE,
+        // terminal with a given label
+        TERMINAL
+    }
+
+    final Axis axis;
+    final Test test;
+    final String name;
+
+    // label predicate, null if absent
+    String label = null;
+    // position predicate (1-based), 0 if absent
+    int position = 0;
+    // last() position predicate
+    boolean last = false;
+
+    /**
+     * constructor
+     *
+     * @param axis axis of the step
+     * @param test node test
+     * @param name rule name or terminal label the node test refers to
+     */
+    QueryStep(Axis axis, Test test, String name) {
+        this.axis = axis;
+        this.test = test;
+        this.name = name;
+    }
+
+    /**
+     * check whether the step has a positional predicate
+     *
+     * @return true if the step has a positional predicate, false otherwise
+     */
+    boolean isPositional() {
+        return position > 0 || last;
+    }
+
+    /**
+     * check node test and label predicate (but not the position)
+     *
+     * @param n node to check
+     * @return true if n satisfies the node test and label predicate
+     */
+    boolean matches(ParseTreeNode n) {
+        switch (test) {
+            case RULE:
+                if (!name.equals(n.getRule()))
+                    return false;
+                break;
+            case NOT_RULE:
+                if (n.isTerminal() || name.equals(n.getRule()))
+                    return false;
+                break;
+            case TERMINAL:
+                if (!n.isTerminal() || !name.equals(n.getLabel()))
+                    return false;
+                break;
+            case ANY:
+                break;
+        }
+        return label == null || label.equals(n.getLabel());
+    }
+
+    /**
+     * escape quotes and backslashes of quoted strings
+     *
+     * @param s string to escape
+     * @return escaped string
+     */
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("'", "\\'");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(axis == Axis.CHILD ? "/" : "//");
+        switch (test) {
+            case ANY:
+                sb.append("*");
+                break;
+            case RULE:
+                sb.append(name);
+                break;
+            case NOT_RULE:
+                sb.append("!").append(name);
+                break;
+            case TERMINAL:
+                sb.append("'").append(escape(name)).append("'");
+                break;
+        }
+        if (label != null)
+            sb.append("[@label='").append(escape(label)).append("']");
+        if (position > 0)
+            sb.append("[").append(position).append("]");
+        if (last)
+            sb.append("[last()]");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.service;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.TokenStream;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.exceptions.IllegalWorkflowException;
+import org.snt.inmemantlr.stream.StreamProvider;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.*;
+
+/**
+ * immutable handle to a compiled grammar: the constructors of the
+ * generated lexer and parser and the entry methods of all parser rules.
+ * Instances can be shared between threads; every parse creates its own
+ * recognizers by means of a {@link ParseContext}
+ */
+public final class CompiledGrammar {
+
+    private final String name;
+    private final Constructor<? extends Lexer> lexer;
+    private final Constructor<? extends Parser> parser;
+    private final List<String> rules;
+    private final Map<String, Method> entries;
+    private final StreamProvider provider;
+
+    /**
+     * constructor
+     *
+     * @param name name of the grammar
+     * @param gp   generic parser that holds the compiled grammar; it is
+     *             only used during construction
+     * @throws IllegalWorkflowException if compilation did not take place
+     */
+    public CompiledGrammar(String name, GenericParser gp) throws
+            IllegalWorkflowException {
+        this.name = Objects.requireNonNull(name, "name must not be null");
+        try {
+            lexer = gp.getLexerClass().getConstructor(CharStream.class);
+            Class<? extends Parser> pc = gp.getParserClass();
+            parser = pc.getConstructor(TokenStream.class);
+            String[] rnames = (String[]) pc.getField("ruleNames").get(null);
+            rules = Collections.unmodifiableList(Arrays.asList(rnames
+                    .clone()));
+            Map<String, Method> m = new HashMap<>();
+            for (String r : rules) {
+                Method e = pc.getDeclaredMethod(r);
+                if (ParserRuleContext.class.isAssignableFrom(e
+                        .getReturnType()))
+                    m.put(r, e);
+            }
+            entries = Collections.unmodifiableMap(m);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalWorkflowException("Generated recognizers of " +
+                    name + " are not usable", e);
+        }
+        provider = gp.getStreamProvider();
+    }
+
+    /**
+     * get the name of the grammar
+     *
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * get the parser rule names in the order of their definition
+     *
+     * @return list of rule names
+     */
+    public List<String> getRuleNames() {
+        return rules;
+    }
+
+    /**
+     * get the stream provider that turns input strings into character
+     * streams
+     *
+     * @return stream provider
+     */
+    public StreamProvider getStreamProvider() {
+        return provider;
+    }
+
+    /**
+     * get the entry method of a parser rule
+     *
+     * @param rule rule name, null for the first rule
+     * @return entry method
+     */
+    Method getEntry(String rule) {
+        Method m = entries.get(rule == null ? rules.get(0) : rule);
+        if (m == null)
+            throw new IllegalArgumentException("Rule " + rule + " not found");
+        return m;
+    }
+
+    /**
+     * create a new lexer instance
+     *
+     * @param input character stream
+     * @return lexer
+     */
+    Lexer newLexer(CharStream input) {
+        try {
+            return lexer.newInstance(input);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("cannot instantiate lexer of " +
+                    name, e);
+        }
+    }
+
+    /**
+     * create a new parser instance
+     *
+     * @param input token stream
+     * @return parser
+     */
+    Parser newParser(TokenStream input) {
+        try {
+            return parser.newInstance(input);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("cannot instantiate parser of " +
+                    name, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,339 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.exceptions.CompilationException;
+import org.snt.inmemantlr.exceptions.IllegalWorkflowException;
+import org.snt.inmemantlr.memobjects.MemoryByteCode;
+import org.snt.inmemantlr.memobjects.MemoryTuple;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * registry of compiled grammars keyed by the hash of their contents.
+ * Grammars are compiled on first use; concurrent requests for the same
+ * grammar wait for a single compilation. When the number of grammars or
+ * the size of their byte code exceeds the budget, the least recently used
+ * grammars are dropped so that their class loaders can be collected
+ */
+public class GrammarRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrammarRegistry.class);
+
+    private static class Entry {
+        private final CompletableFuture<CompiledGrammar> grammar = new
+                CompletableFuture<>();
+        private volatile long lastAccess;
+        private volatile long size = 0;
+    }
+
+    private final ConcurrentMap<String, Entry> entries = new
+            ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long maxBytes;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder compileTime = new LongAdder();
+
+    /**
+     * constructor
+     *
+     * @param maxEntries maximum number of compiled grammars
+     * @param maxBytes   maximum size of the byte code of all compiled
+     *                   grammars; 0 for no limit
+     */
+    public GrammarRegistry(int maxEntries, long maxBytes) {
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("maxEntries must be positive");
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("maxBytes must not be negative");
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * get a compiled grammar, compiling it if it is not registered yet
+     *
+     * @param gcontent grammar contents
+     * @return compiled grammar
+     * @throws CompilationException if the grammar cannot be compiled
+     */
+    public CompiledGrammar get(String... gcontent) throws
+            CompilationException {
+        return get(Arrays.asList(gcontent));
+    }
+
+    /**
+     * get a compiled grammar, compiling it if it is not registered yet
+     *
+     * @param gcontent grammar contents
+     * @return compiled grammar
+     * @throws CompilationException if the grammar cannot be compiled
+     */
+    public CompiledGrammar get(Collection<String> gcontent) throws
+            CompilationException {
+        String hash = GenericParser.computeGrammarHash(gcontent);
+
+        Entry e = entries.get(hash);
+        if (e == null) {
+            Entry ne = new Entry();
+            e = entries.putIfAbsent(hash, ne);
+            if (e == null) {
+                misses.increment();
+                ne.lastAccess = clock.incrementAndGet();
+                compile(hash, ne, gcontent);
+                return await(ne);
+            }
+        }
+        hits.increment();
+        e.lastAccess = clock.incrementAndGet();
+        return await(e);
+    }
+
+    /**
+     * get a compiled grammar by the hash of its contents without compiling
+     * it
+     *
+     * @param hash grammar hash
+     * @return compiled grammar or null if there is no such grammar or it
+     * is still being compiled
+     */
+    public CompiledGrammar getByHash(String hash) {
+        Entry e = entries.get(hash);
+        if (e == null || !e.grammar.isDone() || e.grammar
+                .isCompletedExceptionally())
+            return null;
+        e.lastAccess = clock.incrementAndGet();
+        return e.grammar.join();
+    }
+
+    /**
+     * create a new parse context for a grammar, compiling the grammar if
+     * it is not registered yet
+     *
+     * @param gcontent grammar contents
+     * @return parse context
+     * @throws CompilationException if the grammar cannot be compiled
+     */
+    public ParseContext newContext(String... gcontent) throws
+            CompilationException {
+        return new ParseContext(get(gcontent));
+    }
+
+    private void compile(String hash, Entry e, Collection<String> gcontent) {
+        long t0 = System.nanoTime();
+        try {
+            GenericParser gp = new GenericParser(gcontent.toArray(new
+                    String[0]));
+            gp.compile();
+            long size = 0;
+            for (MemoryTuple t : gp.getAllCompiledObjects()) {
+                for (MemoryByteCode bc : t.getByteCodeObjects()) {
+                    size += bc.getBytes().length;
+                }
+            }
+            CompiledGrammar g = new CompiledGrammar(gp.getParserName(), gp);
+            // account for the size before the entry becomes evictable
+            add(hash, e, size);
+            e.grammar.complete(g);
+        } catch (CompilationException | IllegalWorkflowException |
+                RuntimeException ex) {
+            failures.increment();
+            // let later requests retry
+            entries.remove(hash, e);
+            e.grammar.completeExceptionally(ex);
+            return;
+        } finally {
+            compileTime.add(System.nanoTime() - t0);
+        }
+    }
+
+    /**
+     * account for the byte code of a freshly compiled grammar and drop the
+     * least recently used grammars until the registry is within its budget
+     * again; this is only done after compilations, so hits never block
+     *
+     * @param hash grammar hash
+     * @param e    registry entry
+     * @param size byte code size
+     */
+    private synchronized void add(String hash, Entry e, long size) {
+        // the grammar might have been removed in the meantime
+        if (entries.get(hash) != e)
+            return;
+        e.size = size;
+        bytes.addAndGet(size);
+        evict(hash);
+    }
+
+    private static CompiledGrammar await(Entry e) throws
+            CompilationException {
+        try {
+            return e.grammar.join();
+        } catch (CompletionException ex) {
+            Throwable c = ex.getCause();
+            if (c instanceof CompilationException)
+                throw (CompilationException) c;
+            throw new CompilationException(c.getMessage(), c);
+        }
+    }
+
+    private void evict(String keep) {
+        while (entries.size() > maxEntries || (maxBytes > 0 && bytes.get()
+                > maxBytes && entries.size() > 1)) {
+            String lru = null;
+            long min = Long.MAX_VALUE;
+            for (Map.Entry<String, Entry> me : entries.entrySet()) {
+                Entry e = me.getValue();
+                // grammars that are being compiled are not accounted yet
+                if (me.getKey().equals(keep) || !e.grammar.isDone())
+                    continue;
+                if (e.lastAccess < min) {
+                    min = e.lastAccess;
+                    lru = me.getKey();
+                }
+            }
+            if (lru == null)
+                break;
+            Entry e = entries.remove(lru);
+            bytes.addAndGet(-e.size);
+            evictions.increment();
+            LOGGER.debug("evict grammar {}", lru);
+        }
+    }
+
+    /**
+     * remove a compiled grammar
+     *
+     * @param hash grammar hash
+     * @return true if the grammar was removed, false otherwise
+     */
+    public synchronized boolean remove(String hash) {
+        Entry e = entries.remove(hash);
+        if (e == null)
+            return false;
+        bytes.addAndGet(-e.size);
+        return true;
+    }
+
+    /**
+     * check whether a grammar is registered
+     *
+     * @param hash grammar hash
+     * @return true if the grammar is registered or being compiled
+     */
+    public boolean contains(String hash) {
+        return entries.containsKey(hash);
+    }
+
+    /**
+     * get the number of registered grammars
+     *
+     * @return number of grammars
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * get the size of the byte code of all registered grammars
+     *
+     * @return size in bytes
+     */
+    public long getByteCodeSize() {
+        return bytes.get();
+    }
+
+    /**
+     * get the number of requests that found their grammar registered
+     *
+     * @return number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * get the number of requests that triggered a compilation
+     *
+     * @return number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * get the number of grammars dropped because of the budget
+     *
+     * @return number of evictions
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * get the number of failed compilations
+     *
+     * @return number of failures
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * get the total compilation time
+     *
+     * @return compilation time in nanoseconds
+     */
+    public long getCompileTime() {
+        return compileTime.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("grammars %d (%d bytes), hits %d, misses %d, " +
+                        "evictions %d, failures %d, compile time %d ms",
+                size(), getByteCodeSize(), getHits(), getMisses(),
+                getEvictions(), getFailures(), getCompileTime() / 1000000);
+    }
+}
@@ -0,0 +1,276 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.service;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.snt.inmemantlr.exceptions.ParsingException;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+import org.snt.inmemantlr.metrics.MetricsCollector;
+import org.snt.inmemantlr.metrics.MetricsCollector.Phase;
+import org.snt.inmemantlr.metrics.NoopMetricsCollector;
+import org.snt.inmemantlr.tool.InmemantlrErrorListener;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Objects;
+
+/**
+ * per-caller parse context with its own lexer, parser and tree listener.
+ * Apart from the DFA caches of the generated recognizers, which ANTLR
+ * shares between all instances, a context does not share mutable state
+ * with other contexts. A context can be reused for subsequent parses but
+ * must not be used by several threads at the same time
+ */
+public class ParseContext {
+
+    private final CompiledGrammar grammar;
+    private final Lexer lexer;
+    private final Parser parser;
+    private final DefaultTreeListener listener;
+    private final ParseTreeWalker walker = new ParseTreeWalker();
+
+    private MetricsCollector metrics = NoopMetricsCollector.INSTANCE;
+    private int maxErrors = InmemantlrErrorListener.DEFAULT_MAX_ERRORS;
+    private int failFastThreshold = 0;
+    private boolean errorTolerant = false;
+    private InmemantlrErrorListener errorListener = null;
+
+    /**
+     * constructor
+     *
+     * @param grammar compiled grammar
+     */
+    public ParseContext(CompiledGrammar grammar) {
+        this(grammar, new DefaultTreeListener());
+    }
+
+    /**
+     * constructor
+     *
+     * @param grammar  compiled grammar
+     * @param listener tree listener that builds the parse trees; it must
+     *                 not be used by another context
+     */
+    public ParseContext(CompiledGrammar grammar, DefaultTreeListener
+            listener) {
+        this.grammar = Objects.requireNonNull(grammar, "grammar must not " +
+                "be null");
+        this.listener = Objects.requireNonNull(listener, "listener must " +
+                "not be null");
+        lexer = grammar.newLexer(CharStreams.fromString(""));
+        parser = grammar.newParser(new CommonTokenStream(lexer));
+        parser.getInterpreter().setPredictionMode(PredictionMode
+                .LL_EXACT_AMBIG_DETECTION);
+        parser.setBuildParseTree(true);
+        listener.setParser(parser);
+    }
+
+    /**
+     * get the compiled grammar
+     *
+     * @return compiled grammar
+     */
+    public CompiledGrammar getGrammar() {
+        return grammar;
+    }
+
+    /**
+     * set the metrics collector; it must be thread-safe if it is shared
+     * with other contexts
+     *
+     * @param metrics metrics collector
+     */
+    public void setMetricsCollector(MetricsCollector metrics) {
+        this.metrics = Objects.requireNonNull(metrics, "metrics must not " +
+                "be null");
+    }
+
+    /**
+     * set the maximum number of syntax errors to keep
+     *
+     * @param maxErrors maximum number of syntax errors
+     */
+    public void setMaxErrors(int maxErrors) {
+        if (maxErrors < 0)
+            throw new IllegalArgumentException("maxErrors must not be negative");
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * set the number of syntax errors after which parsing is aborted;
+     * 0 to never abort
+     *
+     * @param failFastThreshold number of syntax errors
+     */
+    public void setFailFastThreshold(int failFastThreshold) {
+        if (failFastThreshold < 0)
+            throw new IllegalArgumentException("failFastThreshold must not be negative");
+        this.failFastThreshold = failFastThreshold;
+    }
+
+    /**
+     * return partial parse trees instead of throwing an exception when
+     * syntax errors are encountered
+     *
+     * @param errorTolerant true to tolerate syntax errors, false otherwise
+     */
+    public void setErrorTolerant(boolean errorTolerant) {
+        this.errorTolerant = errorTolerant;
+    }
+
+    /**
+     * build the tree while parsing instead of walking an antlr parse tree
+     * afterwards; since parse results only carry the tree of the listener,
+     * the antlr parse tree is not built at all in this mode
+     *
+     * @param parseTimeListener true to build the tree while parsing
+     */
+    public void setParseTimeListener(boolean parseTimeListener) {
+        parser.removeParseListeners();
+        if (parseTimeListener)
+            parser.addParseListener(listener);
+        parser.setBuildParseTree(!parseTimeListener);
+    }
+
+    /**
+     * check whether the tree is built while parsing
+     *
+     * @return true if the tree is built while parsing, false otherwise
+     */
+    public boolean isParseTimeListener() {
+        return !parser.getBuildParseTree();
+    }
+
+    /**
+     * get the error listener of the last parse
+     *
+     * @return error listener or null if nothing was parsed yet
+     */
+    public InmemantlrErrorListener getErrorListener() {
+        return errorListener;
+    }
+
+    /**
+     * parse a string with the first rule of the grammar
+     *
+     * @param toParse string to parse
+     * @return parse result
+     * @throws ParsingException if an error occurs while parsing
+     */
+    public ParseResult parse(String toParse) throws ParsingException {
+        return parse(toParse, null);
+    }
+
+    /**
+     * parse a string
+     *
+     * @param toParse    string to parse
+     * @param production production name, null for the first rule
+     * @return parse result
+     * @throws ParsingException if an error occurs while parsing
+     */
+    public ParseResult parse(String toParse, String production) throws
+            ParsingException {
+        InmemantlrErrorListener el = new InmemantlrErrorListener(maxErrors,
+                failFastThreshold);
+        errorListener = el;
+        listener.setErrorTolerant(errorTolerant);
+
+        MetricsCollector mc = metrics;
+        int ntokens = 0;
+        int nnodes = -1;
+
+        try {
+            long t0 = System.nanoTime();
+            CharStream input = grammar.getStreamProvider().getCharStream
+                    (toParse);
+            mc.recordPhase(Phase.CHAR_STREAM, System.nanoTime() - t0);
+            Objects.requireNonNull(input, "char stream must not be null");
+
+            lexer.setInputStream(input);
+            lexer.removeErrorListeners();
+            lexer.addErrorListener(el);
+
+            CommonTokenStream tokens = new CommonTokenStream(lexer);
+            t0 = System.nanoTime();
+            try {
+                tokens.fill();
+            } catch (ParseCancellationException e) {
+                throw new ParsingException(el.getErrorMessage(), el.getErrors());
+            } finally {
+                mc.recordPhase(Phase.LEX, System.nanoTime() - t0);
+                ntokens = tokens.size();
+            }
+
+            parser.setTokenStream(tokens);
+            parser.removeErrorListeners();
+            parser.addErrorListener(el);
+
+            boolean attached = isParseTimeListener();
+            if (attached)
+                listener.reset();
+
+            ParserRuleContext data;
+            t0 = System.nanoTime();
+            try {
+                data = (ParserRuleContext) grammar.getEntry(production)
+                        .invoke(parser);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof ParseCancellationException)
+                    throw new ParsingException(el.getErrorMessage(), el.getErrors());
+                throw new ParsingException("parser failed", e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new ParsingException("parser failed", e);
+            } finally {
+                mc.recordPhase(Phase.PARSE, System.nanoTime() - t0);
+            }
+
+            if (el.hasErrors() && !errorTolerant) {
+                throw new ParsingException(el.getErrorMessage(), el.getErrors());
+            }
+
+            if (!attached) {
+                t0 = System.nanoTime();
+                listener.reset();
+                walker.walk(listener, data);
+                mc.recordPhase(Phase.WALK, System.nanoTime() - t0);
+            }
+
+            nnodes = listener.getParseTree().getNodes().size();
+            return new ParseResult(listener.getParseTree(), el.getErrors(),
+                    el.getCount(InmemantlrErrorListener.Type.SYNTAX_ERROR));
+        } finally {
+            // do not keep the input reachable from an idle context
+            lexer.setInputStream(CharStreams.fromString(""));
+            parser.setTokenStream(new CommonTokenStream(lexer));
+            mc.recordParse(toParse.length(), ntokens, nnodes, el.getCount
+                    (InmemantlrErrorListener.Type.SYNTAX_ERROR));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.service;
+
+import org.snt.inmemantlr.tool.ParseError;
+import org.snt.inmemantlr.tree.ParseTree;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * result of a parse: the parse tree and the syntax errors that were
+ * tolerated while it was created
+ */
+public final class ParseResult {
+
+    private final ParseTree tree;
+    private final List<ParseError> errors;
+    private final int errorCount;
+
+    /**
+     * constructor
+     *
+     * @param tree   parse tree
+     * @param errors syntax errors
+     */
+    public ParseResult(ParseTree tree, List<ParseError> errors) {
+        this(tree, errors, errors.size());
+    }
+
+    /**
+     * constructor
+     *
+     * @param tree       parse tree
+     * @param errors     syntax errors that were kept
+     * @param errorCount total number of syntax errors, which may exceed
+     *                   the number of kept errors
+     */
+    public ParseResult(ParseTree tree, List<ParseError> errors, int
+            errorCount) {
+        if (errorCount < errors.size())
+            throw new IllegalArgumentException("errorCount must not be " +
+                    "smaller than the number of errors");
+        this.tree = tree;
+        this.errors = Collections.unmodifiableList(errors);
+        this.errorCount = errorCount;
+    }
+
+    /**
+     * get the parse tree
+     *
+     * @return parse tree
+     */
+    public ParseTree getParseTree() {
+        return tree;
+    }
+
+    /**
+     * get the syntax errors that were kept; only error tolerant contexts
+     * produce results with errors. The list is bounded by the maximum
+     * number of errors of the context (see {@link #getErrorCount()})
+     *
+     * @return list of syntax errors
+     */
+    public List<ParseError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * check whether there were syntax errors
+     *
+     * @return true if there were syntax errors, false otherwise
+     */
+    public boolean hasErrors() {
+        return errorCount > 0;
+    }
+
+    /**
+     * get the total number of syntax errors, including the ones that were
+     * not kept
+     *
+     * @return number of syntax errors
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+}
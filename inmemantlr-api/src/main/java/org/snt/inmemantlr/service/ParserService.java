@@ -0,0 +1,221 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.service;
+
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.exceptions.IllegalWorkflowException;
+import org.snt.inmemantlr.exceptions.ParsingException;
+import org.snt.inmemantlr.metrics.MetricsCollector;
+import org.snt.inmemantlr.metrics.NoopMetricsCollector;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * service facade that owns compiled grammars and parses documents on
+ * behalf of concurrent callers. Every call gets its own
+ * {@link ParseContext}, so calls do not contend for shared state; the
+ * registry is a concurrent map and the hot path does not take any locks,
+ * which makes the service suitable for executors that run a thread per
+ * request. Asynchronous calls run on the executor the service was
+ * created with
+ */
+public class ParserService {
+
+    private final ConcurrentMap<String, CompiledGrammar> grammars = new
+            ConcurrentHashMap<>();
+    private final Executor executor;
+    private volatile MetricsCollector metrics = NoopMetricsCollector.INSTANCE;
+
+    /**
+     * constructor; asynchronous calls run on the common fork/join pool
+     */
+    public ParserService() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * constructor
+     *
+     * @param executor executor that runs asynchronous calls
+     */
+    public ParserService(Executor executor) {
+        this.executor = Objects.requireNonNull(executor, "executor must " +
+                "not be null");
+    }
+
+    /**
+     * register the grammar of a compiled generic parser; the generic
+     * parser is not used by the service afterwards
+     *
+     * @param name name of the grammar
+     * @param gp   compiled generic parser
+     * @return compiled grammar
+     * @throws IllegalWorkflowException if compilation did not take place
+     */
+    public CompiledGrammar register(String name, GenericParser gp) throws
+            IllegalWorkflowException {
+        return register(new CompiledGrammar(name, gp));
+    }
+
+    /**
+     * register a compiled grammar; an existing grammar of the same name
+     * is replaced, calls that are in flight finish with the old one
+     *
+     * @param grammar compiled grammar
+     * @return compiled grammar
+     */
+    public CompiledGrammar register(CompiledGrammar grammar) {
+        grammars.put(grammar.getName(), grammar);
+        return grammar;
+    }
+
+    /**
+     * remove a grammar
+     *
+     * @param name name of the grammar
+     * @return the removed grammar or null if there was none
+     */
+    public CompiledGrammar unregister(String name) {
+        return grammars.remove(name);
+    }
+
+    /**
+     * get a registered grammar
+     *
+     * @param name name of the grammar
+     * @return compiled grammar
+     */
+    public CompiledGrammar getGrammar(String name) {
+        CompiledGrammar g = grammars.get(name);
+        if (g == null)
+            throw new IllegalArgumentException("Grammar " + name + " not " +
+                    "registered");
+        return g;
+    }
+
+    /**
+     * get the names of the registered grammars
+     *
+     * @return set of grammar names
+     */
+    public Set<String> getGrammarNames() {
+        return Collections.unmodifiableSet(grammars.keySet());
+    }
+
+    /**
+     * set the metrics collector that all parses report to; it must be
+     * thread-safe
+     *
+     * @param metrics metrics collector
+     */
+    public void setMetricsCollector(MetricsCollector metrics) {
+        this.metrics = Objects.requireNonNull(metrics, "metrics must not " +
+                "be null");
+    }
+
+    /**
+     * get the metrics collector
+     *
+     * @return metrics collector
+     */
+    public MetricsCollector getMetricsCollector() {
+        return metrics;
+    }
+
+    /**
+     * create a new parse context for a registered grammar; the context
+     * may be kept and reused by a single caller
+     *
+     * @param name name of the grammar
+     * @return parse context
+     */
+    public ParseContext newContext(String name) {
+        ParseContext ctx = new ParseContext(getGrammar(name));
+        ctx.setMetricsCollector(metrics);
+        return ctx;
+    }
+
+    /**
+     * parse a string with a registered grammar on the calling thread
+     *
+     * @param name       name of the grammar
+     * @param toParse    string to parse
+     * @param production production name, null for the first rule
+     * @return parse result
+     * @throws ParsingException if an error occurs while parsing
+     */
+    public ParseResult parse(String name, String toParse, String
+            production) throws ParsingException {
+        return newContext(name).parse(toParse, production);
+    }
+
+    /**
+     * parse a string with a registered grammar on the executor of the
+     * service
+     *
+     * @param name       name of the grammar
+     * @param toParse    string to parse
+     * @param production production name, null for the first rule
+     * @return future parse result; it completes exceptionally with a
+     * {@link ParsingException} if an error occurs while parsing and with an
+     * {@link IllegalArgumentException} if the grammar is not registered or
+     * the production does not exist
+     */
+    public CompletableFuture<ParseResult> parseAsync(String name, String
+            toParse, String production) {
+        return parseAsync(name, toParse, production, executor);
+    }
+
+    /**
+     * parse a string with a registered grammar on a given executor
+     *
+     * @param name       name of the grammar
+     * @param toParse    string to parse
+     * @param production production name, null for the first rule
+     * @param executor   executor that runs the parse
+     * @return future parse result; it completes exceptionally with a
+     * {@link ParsingException} if an error occurs while parsing and with an
+     * {@link IllegalArgumentException} if the grammar is not registered or
+     * the production does not exist
+     */
+    public CompletableFuture<ParseResult> parseAsync(String name, String
+            toParse, String production, Executor executor) {
+        CompletableFuture<ParseResult> f = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                ParseContext ctx = newContext(name);
+                f.complete(ctx.parse(toParse, production));
+            } catch (ParsingException | RuntimeException e) {
+                f.completeExceptionally(e);
+            }
+        });
+        return f;
+    }
+}
@@ -0,0 +1,255 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.token;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.util.Arrays;
+
+/**
+ * compact token buffer that keeps token attributes in parallel int
+ * arrays instead of one token object per token
+ */
+public class TokenBuffer implements TokenCallback {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] type;
+    private int[] channel;
+    private int[] start;
+    private int[] stop;
+    private int[] line;
+    private int[] column;
+    private int size = 0;
+
+    private CharStream input = null;
+
+    /**
+     * constructor
+     */
+    public TokenBuffer() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * constructor
+     *
+     * @param capacity initial capacity
+     */
+    public TokenBuffer(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be positive");
+        type = new int[capacity];
+        channel = new int[capacity];
+        start = new int[capacity];
+        stop = new int[capacity];
+        line = new int[capacity];
+        column = new int[capacity];
+    }
+
+    /**
+     * grow the arrays
+     */
+    private void grow() {
+        int cap = type.length << 1;
+        type = Arrays.copyOf(type, cap);
+        channel = Arrays.copyOf(channel, cap);
+        start = Arrays.copyOf(start, cap);
+        stop = Arrays.copyOf(stop, cap);
+        line = Arrays.copyOf(line, cap);
+        column = Arrays.copyOf(column, cap);
+    }
+
+    @Override
+    public void token(int type, int channel, int start, int stop, int line,
+                      int column) {
+        if (size == this.type.length)
+            grow();
+        this.type[size] = type;
+        this.channel[size] = channel;
+        this.start[size] = start;
+        this.stop[size] = stop;
+        this.line[size] = line;
+        this.column[size] = column;
+        size++;
+    }
+
+    /**
+     * set the character stream the tokens refer to
+     *
+     * @param input character stream
+     */
+    public void setInput(CharStream input) {
+        this.input = input;
+    }
+
+    /**
+     * get number of tokens
+     *
+     * @return number of tokens
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * check index
+     *
+     * @param i token index
+     */
+    private void check(int i) {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("index " + i + " out of " +
+                    "range [0," + size + ")");
+    }
+
+    public int getType(int i) {
+        check(i);
+        return type[i];
+    }
+
+    public int getChannel(int i) {
+        check(i);
+        return channel[i];
+    }
+
+    public int getStart(int i) {
+        check(i);
+        return start[i];
+    }
+
+    public int getStop(int i) {
+        check(i);
+        return stop[i];
+    }
+
+    public int getLine(int i) {
+        check(i);
+        return line[i];
+    }
+
+    public int getColumn(int i) {
+        check(i);
+        return column[i];
+    }
+
+    /**
+     * get the text of a token
+     *
+     * @param i token index
+     * @return token text
+     */
+    public String getText(int i) {
+        check(i);
+        if (input == null)
+            throw new IllegalStateException("no input available");
+        return input.getText(Interval.of(start[i], stop[i]));
+    }
+
+    /**
+     * get the index of the first token that starts at or after a given
+     * character index; tokens are sorted by their start index
+     *
+     * @param charIdx character index
+     * @return token index or size() if there is no such token
+     */
+    public int search(int charIdx) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (start[mid] < charIdx)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * get a copy of the token types
+     *
+     * @return array of token types
+     */
+    public int[] getTypes() {
+        return Arrays.copyOf(type, size);
+    }
+
+    /**
+     * get a copy of the token channels
+     *
+     * @return array of channels
+     */
+    public int[] getChannels() {
+        return Arrays.copyOf(channel, size);
+    }
+
+    /**
+     * get a copy of the token start indices
+     *
+     * @return array of start indices
+     */
+    public int[] getStarts() {
+        return Arrays.copyOf(start, size);
+    }
+
+    /**
+     * get a copy of the token stop indices
+     *
+     * @return array of stop indices
+     */
+    public int[] getStops() {
+        return Arrays.copyOf(stop, size);
+    }
+
+    /**
+     * get a copy of the token lines
+     *
+     * @return array of lines
+     */
+    public int[] getLines() {
+        return Arrays.copyOf(line, size);
+    }
+
+    /**
+     * get a copy of the token columns
+     *
+     * @return array of columns
+     */
+    public int[] getColumns() {
+        return Arrays.copyOf(column, size);
+    }
+
+    /**
+     * remove all tokens but keep the allocated arrays
+     */
+    public void clear() {
+        size = 0;
+        input = null;
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.token;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.Pair;
+
+/**
+ * runs a lexer without creating a token object per token
+ */
+public final class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    /**
+     * token that is overwritten for every token the lexer emits
+     */
+    private static class ReusableToken extends CommonToken {
+
+        private static final long serialVersionUID = 1L;
+
+        ReusableToken() {
+            super(Token.INVALID_TYPE);
+        }
+
+        void set(Pair<TokenSource, CharStream> source, int type, String
+                text, int channel, int start, int stop, int line, int
+                charPositionInLine) {
+            this.source = source;
+            this.type = type;
+            this.text = text;
+            this.channel = channel;
+            this.start = start;
+            this.stop = stop;
+            this.line = line;
+            this.charPositionInLine = charPositionInLine;
+            this.index = -1;
+        }
+    }
+
+    /**
+     * token factory that always hands out the same token
+     */
+    private static class ReusableTokenFactory implements
+            TokenFactory<CommonToken> {
+
+        private final ReusableToken tok = new ReusableToken();
+
+        @Override
+        public CommonToken create(Pair<TokenSource, CharStream> source, int
+                type, String text, int channel, int start, int stop, int
+                line, int charPositionInLine) {
+            tok.set(source, type, text, channel, start, stop, line,
+                    charPositionInLine);
+            return tok;
+        }
+
+        @Override
+        public CommonToken create(int type, String text) {
+            tok.set(null, type, text, Token.DEFAULT_CHANNEL, -1, -1, 0, -1);
+            return tok;
+        }
+    }
+
+    /**
+     * run a lexer to the end of its input and pass every token except EOF
+     * to a callback; the token factory of the lexer is restored afterwards
+     *
+     * @param lex lexer
+     * @param cb  callback
+     * @return number of tokens
+     */
+    public static int tokenize(Lexer lex, TokenCallback cb) {
+        TokenFactory<?> fac = lex.getTokenFactory();
+        lex.setTokenFactory(new ReusableTokenFactory());
+        int n = 0;
+        try {
+            for (Token t = lex.nextToken(); t.getType() != Token.EOF; t = lex
+                    .nextToken()) {
+                cb.token(t.getType(), t.getChannel(), t.getStartIndex(), t
+                        .getStopIndex(), t.getLine(), t
+                        .getCharPositionInLine());
+                n++;
+            }
+        } finally {
+            lex.setTokenFactory(fac);
+        }
+        return n;
+    }
+
+    /**
+     * pass every token of an already filled token stream except EOF to a
+     * callback, e.g., to keep the tokens of a parse without lexing the
+     * input again
+     *
+     * @param ts token stream
+     * @param cb callback
+     * @return number of tokens
+     */
+    public static int tokenize(TokenStream ts, TokenCallback cb) {
+        int n = 0;
+        for (int i = 0; i < ts.size(); i++) {
+            Token t = ts.get(i);
+            if (t.getType() == Token.EOF)
+                break;
+            cb.token(t.getType(), t.getChannel(), t.getStartIndex(), t
+                    .getStopIndex(), t.getLine(), t.getCharPositionInLine());
+            n++;
+        }
+        return n;
+    }
+}
@@ -26,21 +26,19 @@
 
 package org.snt.inmemantlr.tool;
 
-import org.antlr.v4.runtime.BaseErrorListener;
-import org.antlr.v4.runtime.Parser;
-import org.antlr.v4.runtime.RecognitionException;
-import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.atn.ATNConfigSet;
 import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.BitSet;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 /**
- * This class is used in order to report parsing errors
+ * This class is used in order to report parsing errors. Syntax errors are
+ * kept as structured records in a bounded list; ambiguity and context
+ * reports are only counted.
  */
 public class InmemantlrErrorListener extends BaseErrorListener {
 
@@ -54,7 +52,38 @@ public class InmemantlrErrorListener extends BaseErrorListener {
         CTX_SSTV
     }
 
-    Map<Type,String> log = new HashMap<>();
+    public static final int DEFAULT_MAX_ERRORS = 100;
+
+    private final int maxErrors;
+    private final int failFastThreshold;
+
+    private final List<ParseError> errors = new ArrayList<>();
+    private final int[] counts = new int[Type.values().length];
+
+    /**
+     * constructor
+     */
+    public InmemantlrErrorListener() {
+        this(DEFAULT_MAX_ERRORS, 0);
+    }
+
+    /**
+     * constructor
+     *
+     * @param maxErrors         maximum number of syntax errors to keep;
+     *                          further errors are only counted
+     * @param failFastThreshold number of syntax errors after which parsing
+     *                          is aborted by means of a
+     *                          {@link ParseCancellationException}; 0 to
+     *                          never abort
+     */
+    public InmemantlrErrorListener(int maxErrors, int failFastThreshold) {
+        if (maxErrors < 0 || failFastThreshold < 0)
+            throw new IllegalArgumentException("limits must not be negative");
+
+        this.maxErrors = maxErrors;
+        this.failFastThreshold = failFastThreshold;
+    }
 
     @Override
     public void syntaxError(Recognizer<?, ?> recognizer,
@@ -64,8 +93,35 @@ public class InmemantlrErrorListener extends BaseErrorListener {
                             String msg,
                             RecognitionException e)
     {
-        log.put(Type.SYNTAX_ERROR, "(line " + line + ",char " +
-                charPositionInLine + "): " + msg);
+        int cnt = ++counts[Type.SYNTAX_ERROR.ordinal()];
+
+        if (errors.size() < maxErrors) {
+            String txt = null;
+            int sidx = -1;
+            int eidx = -1;
+            if (offendingSymbol instanceof Token) {
+                Token t = (Token) offendingSymbol;
+                txt = t.getText();
+                sidx = t.getStartIndex();
+                eidx = t.getStopIndex();
+            }
+
+            List<String> stack = null;
+            ParseError.Source src = ParseError.Source.LEXER;
+            if (recognizer instanceof Parser) {
+                stack = ((Parser) recognizer).getRuleInvocationStack();
+                src = ParseError.Source.PARSER;
+            }
+
+            errors.add(new ParseError(src, line, charPositionInLine, txt,
+                    sidx, eidx, stack, msg));
+        }
+
+        if (failFastThreshold > 0 && cnt >= failFastThreshold) {
+            LOGGER.debug("abort after {} syntax errors", cnt);
+            throw new ParseCancellationException("aborted after " + cnt +
+                    " syntax errors");
+        }
     }
 
     @Override
@@ -77,7 +133,7 @@ public class InmemantlrErrorListener extends BaseErrorListener {
                                 BitSet ambigAlts,
                                 ATNConfigSet configs)
     {
-        log.put(Type.AMBIGUITY, "Ambiguity " + startIndex + " " + stopIndex);
+        counts[Type.AMBIGUITY.ordinal()]++;
     }
 
     @Override
@@ -88,8 +144,7 @@ public class InmemantlrErrorListener extends BaseErrorListener {
                                             BitSet conflictingAlts,
                                             ATNConfigSet configs)
     {
-        log.put(Type.FULL_CTX, "Attempting full Context " + startIndex + " " +
-                stopIndex);
+        counts[Type.FULL_CTX.ordinal()]++;
     }
 
     @Override
@@ -100,12 +155,93 @@ public class InmemantlrErrorListener extends BaseErrorListener {
                                          int prediction,
                                          ATNConfigSet configs)
     {
-        log.put(Type.CTX_SSTV, "Context Sensitivity " + startIndex + " " +
-                stopIndex);
+        counts[Type.CTX_SSTV.ordinal()]++;
+    }
+
+    /**
+     * add the errors and counts recorded by another error listener, e.g.
+     * one that was used for parsing another part of the same input
+     *
+     * @param other error listener
+     */
+    public void addAll(InmemantlrErrorListener other) {
+        for (ParseError err : other.errors) {
+            if (errors.size() >= maxErrors)
+                break;
+            errors.add(err);
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+    }
+
+    /**
+     * get the recorded syntax errors in the order of their appearance;
+     * at most maxErrors are kept
+     *
+     * @return list of syntax errors
+     */
+    public List<ParseError> getErrors() {
+        return Collections.unmodifiableList(errors);
     }
 
+    /**
+     * get the number of reports of a given type, including syntax errors
+     * that were not kept because the bound was reached
+     *
+     * @param t report type
+     * @return number of reports
+     */
+    public int getCount(Type t) {
+        return counts[t.ordinal()];
+    }
+
+    /**
+     * check whether syntax errors were reported
+     *
+     * @return true if there were syntax errors, false otherwise
+     */
+    public boolean hasErrors() {
+        return getCount(Type.SYNTAX_ERROR) > 0;
+    }
+
+    /**
+     * get a summary of all recorded syntax errors
+     *
+     * @return error summary
+     */
+    public String getErrorMessage() {
+        StringBuilder sb = new StringBuilder();
+        for (ParseError err : errors) {
+            if (sb.length() > 0)
+                sb.append("\n");
+            sb.append(err);
+        }
+        int omitted = getCount(Type.SYNTAX_ERROR) - errors.size();
+        if (omitted > 0)
+            sb.append("\n... ").append(omitted).append(" more syntax errors");
+        return sb.toString();
+    }
 
+    /**
+     * get a log that maps every report type to a message
+     *
+     * @return map of report types to messages
+     * @deprecated use {@link #getErrors()} and {@link #getCount(Type)}
+     */
+    @Deprecated
     public Map<Type, String> getLog() {
+        Map<Type, String> log = new EnumMap<>(Type.class);
+        if (!errors.isEmpty())
+            log.put(Type.SYNTAX_ERROR, errors.get(errors.size() - 1).toString());
+        if (getCount(Type.AMBIGUITY) > 0)
+            log.put(Type.AMBIGUITY, "Ambiguity " + getCount(Type.AMBIGUITY));
+        if (getCount(Type.FULL_CTX) > 0)
+            log.put(Type.FULL_CTX, "Attempting full Context " + getCount(Type
+                    .FULL_CTX));
+        if (getCount(Type.CTX_SSTV) > 0)
+            log.put(Type.CTX_SSTV, "Context Sensitivity " + getCount(Type
+                    .CTX_SSTV));
         return log;
     }
 
@@ -63,6 +63,9 @@ public class InmemantlrTool extends org.antlr.v4.Tool {
     private Map<String, GrammarRootAST> ast = new HashMap<>();
 
     private Map<String, String> tokvok = new HashMap<>();
+    // lexers and imported grammars that are provided by a grammar library
+    private Map<String, String> linkedLexers = new HashMap<>();
+    private Map<String, String> linkedImports = new HashMap<>();
 
     private List<String> order = new Vector<>();
     private Set<String> imported = new HashSet<>();
@@ -160,7 +163,56 @@ public class InmemantlrTool extends org.antlr.v4.Tool {
         if (pip.containsKey(name))
             return pip.get(name).getG();
 
-        return null;
+        String content = linkedImports.get(name);
+        if (content == null)
+            return null;
+
+        LOGGER.debug("load linked grammar {}", name);
+        GrammarAST t = parseGrammarFromString(content);
+        if (t instanceof GrammarASTErrorNode || ((GrammarRootAST) t).hasErrors)
+            return null;
+        GrammarRootAST root = (GrammarRootAST) t;
+        root.fileName = name;
+        Grammar ig = createGrammar(root);
+        ig.fileName = name;
+        return ig;
+    }
+
+    /**
+     * make a grammar available for import statements of the grammars
+     * processed by this tool; grammars with the same name that are
+     * processed by this tool take precedence
+     *
+     * @param name    grammar name
+     * @param content grammar content
+     */
+    public void addImportedGrammar(String name, String content) {
+        linkedImports.put(name, content);
+    }
+
+    /**
+     * make the token vocabulary of a lexer that was compiled elsewhere
+     * available to grammars that refer to it through the tokenVocab option;
+     * if no lexer is processed by this tool, the linked lexer is used
+     *
+     * @param name      lexer grammar name
+     * @param tokenVocab token vocabulary
+     * @param className class name of the compiled lexer
+     */
+    public void addTokenVocab(String name, String tokenVocab, String
+            className) {
+        tokvok.put(name, tokenVocab);
+        linkedLexers.put(name, className);
+    }
+
+    /**
+     * get the token vocabulary of a lexer grammar
+     *
+     * @param name lexer grammar name
+     * @return token vocabulary or null if there is none
+     */
+    public String getTokenVocab(String name) {
+        return tokvok.get(name);
     }
 
     /**
@@ -250,7 +302,44 @@ public class InmemantlrTool extends org.antlr.v4.Tool {
      * @return tuple of lexer and parser names
      */
     public Tuple<String, String> process() {
+        String linked = processPipelines();
+
+        // the lexer is provided by a grammar library
+        if (lexerName.isEmpty() && linked != null)
+            lexerName = linkedLexers.get(linked);
+
+        if (lexerName.isEmpty())
+            throw new IllegalArgumentException("lexerName must not be empty");
+
+        if (parserName.isEmpty())
+            throw new IllegalArgumentException("parserName must not be empty");
+
+        return new Tuple<>(parserName, lexerName);
+    }
+
+    /**
+     * process the code generation pipelines of lexer grammars only
+     *
+     * @return lexer name
+     */
+    public String processLexer() {
+        processPipelines();
+
+        if (lexerName.isEmpty() || !parserName.isEmpty())
+            throw new IllegalArgumentException("there must be a lexer " +
+                    "grammar only");
+
+        return lexerName;
+    }
+
+    /**
+     * process all code generation pipelines in order
+     *
+     * @return name of a linked lexer whose token vocabulary was used or null
+     */
+    private String processPipelines() {
         LOGGER.debug("process grammars");
+        String linked = null;
         StringCodeGenPipeline last = null;
         // order is important here
         Set<StringCodeGenPipeline> pip = getPipelines();
@@ -267,6 +356,8 @@ public class InmemantlrTool extends org.antlr.v4.Tool {
                     && tokvok.containsKey(s)
                     && tokvok.get(s) != null) {
                 LOGGER.debug("get {}", s);
+                if (linkedLexers.containsKey(s))
+                    linked = s;
                 String tokvoc = tokvok.get(s);
                 if (g instanceof InmemantlrGrammar) {
                     LOGGER.debug("import from {}", tokvoc);
@@ -285,17 +376,11 @@ public class InmemantlrTool extends org.antlr.v4.Tool {
                 if (p.hasTokenVocab()) {
                     LOGGER.debug("put tokvok {}", g.name);
                     tokvok.put(g.name, p.getTokenVocabString());
+                    linkedLexers.remove(g.name);
                 }
             }
         }
-
-        if (lexerName.isEmpty())
-            throw new IllegalArgumentException("lexerName must not be empty");
-
-        if (parserName.isEmpty())
-            throw new IllegalArgumentException("parserName must not be empty");
-
-        return new Tuple<>(parserName, lexerName);
+        return linked;
     }
 
     /**
@@ -0,0 +1,157 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.tool;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * structured record of a syntax error reported by the lexer or the parser
+ */
+public class ParseError implements Serializable {
+
+    private static final long serialVersionUID = -2713484632145796316L;
+
+    public enum Source {
+        LEXER,
+        PARSER
+    }
+
+    private final Source source;
+    private final int line;
+    private final int column;
+    private final String offendingText;
+    private final int startIdx;
+    private final int stopIdx;
+    private final List<String> ruleStack;
+    private final String msg;
+
+    /**
+     * constructor
+     *
+     * @param source        recognizer that reported the error
+     * @param line          line number (starting with 1)
+     * @param column        character position within the line
+     * @param offendingText text of the offending token or null if there
+     *                      is no offending token
+     * @param startIdx      start index of the offending token or -1
+     * @param stopIdx       stop index of the offending token or -1
+     * @param ruleStack     rule invocation stack, innermost rule first
+     * @param msg           error message
+     */
+    public ParseError(Source source, int line, int column, String
+            offendingText, int startIdx, int stopIdx, List<String>
+            ruleStack, String msg) {
+        this.source = source;
+        this.line = line;
+        this.column = column;
+        this.offendingText = offendingText;
+        this.startIdx = startIdx;
+        this.stopIdx = stopIdx;
+        this.ruleStack = ruleStack != null ? Collections.unmodifiableList
+                (ruleStack) : Collections.emptyList();
+        this.msg = msg;
+    }
+
+    /**
+     * get the recognizer type that reported the error
+     *
+     * @return lexer or parser
+     */
+    public Source getSource() {
+        return source;
+    }
+
+    /**
+     * get line number
+     *
+     * @return line number (starting with 1)
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * get column
+     *
+     * @return character position within the line
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * get text of the offending token
+     *
+     * @return offending text or null if there is no offending token
+     */
+    public String getOffendingText() {
+        return offendingText;
+    }
+
+    /**
+     * get start index of the offending token
+     *
+     * @return start index or -1 if there is no offending token
+     */
+    public int getStartIdx() {
+        return startIdx;
+    }
+
+    /**
+     * get stop index of the offending token
+     *
+     * @return stop index or -1 if there is no offending token
+     */
+    public int getStopIdx() {
+        return stopIdx;
+    }
+
+    /**
+     * get the rule invocation stack at the time the error was reported
+     *
+     * @return list of rule names, innermost rule first
+     */
+    public List<String> getRuleStack() {
+        return ruleStack;
+    }
+
+    /**
+     * get error message
+     *
+     * @return error message
+     */
+    public String getMessage() {
+        return msg;
+    }
+
+    @Override
+    public String toString() {
+        return "(line " + line + ",char " + column + "): " + msg;
+    }
+}
@@ -35,6 +35,7 @@ public class JsonProcessor extends ParseTreeProcessor<StringBuilder, StringBuild
     private static final Logger LOGGER = LoggerFactory.getLogger(JsonProcessor.class);
 
     private boolean idxOnly = false;
+    private boolean ruleIds = false;
 
     /**
      * constructor
@@ -43,8 +44,23 @@ public class JsonProcessor extends ParseTreeProcessor<StringBuilder, StringBuild
      * @param idxOnly print index only
      */
     public JsonProcessor(ParseTree parseTree, boolean idxOnly) {
+        this(parseTree, idxOnly, false);
+    }
+
+    /**
+     * constructor
+     *
+     * @param parseTree abstract syntax tree to process
+     * @param idxOnly   print index only
+     * @param ruleIds   print rule ids instead of rule names; the names are
+     *                  printed once in a 'rules' array that is indexed by
+     *                  the ids, and the tree is printed as 'tree'
+     */
+    public JsonProcessor(ParseTree parseTree, boolean idxOnly, boolean
+            ruleIds) {
         super(parseTree);
         this.idxOnly = idxOnly;
+        this.ruleIds = ruleIds;
     }
 
     /**
@@ -58,7 +74,23 @@ public class JsonProcessor extends ParseTreeProcessor<StringBuilder, StringBuild
 
     @Override
     public StringBuilder getResult() {
-        return smap.get(parseTree.getRoot());
+        StringBuilder res = smap.get(parseTree.getRoot());
+        if (!ruleIds)
+            return res;
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"rules\":[");
+        for (int i = 0; i < parseTree.getRuleIdCount(); i++) {
+            if (i > 0)
+                sb.append(",");
+            sb.append("\"");
+            sb.append(parseTree.getRuleName(i));
+            sb.append("\"");
+        }
+        sb.append("],\"tree\":");
+        sb.append(res);
+        sb.append("}");
+        return sb;
     }
 
     @Override
@@ -77,9 +109,15 @@ public class JsonProcessor extends ParseTreeProcessor<StringBuilder, StringBuild
         }
 
         sb.append("{");
-        sb.append("\"nt\":\"");
-        sb.append(n.getRule());
-        sb.append("\",\"ran\":\"");
+        if (ruleIds) {
+            sb.append("\"nt\":");
+            sb.append(n.getRuleIndex());
+            sb.append(",\"ran\":\"");
+        } else {
+            sb.append("\"nt\":\"");
+            sb.append(n.getRule());
+            sb.append("\",\"ran\":\"");
+        }
         sb.append(n.getSidx());
         sb.append(",");
         sb.append(n.getEidx());
@@ -39,8 +39,22 @@ public class ParseTree {
 
     private ParseTreeNode root = null;
     List<ParseTreeNode> nodes = null;
-
-    private ParseTree() {
+    // nodes by id; ids are unique within a tree
+    private ParseTreeNode[] byId = new ParseTreeNode[16];
+    private int idcnt = 0;
+    private final ParseTreeVocabulary vocabulary;
+    // names that are not grammar rules, e.g. of the root node; their ids
+    // follow the ids of the grammar rules
+    private final List<String> extNames = new ArrayList<>(1);
+    private final Map<String, Integer> extIds = new HashMap<>(2);
+
+    // optional indices from rule name and terminal text to nodes
+    private Map<String, List<ParseTreeNode>> ruleIdx = null;
+    private Map<String, List<ParseTreeNode>> termIdx = null;
+
+    private ParseTree(ParseTreeVocabulary vocabulary) {
+        this.vocabulary = Objects.requireNonNull(vocabulary, "vocabulary " +
+                "must not be null");
         nodes = new Vector<>();
     }
 
@@ -53,7 +67,38 @@ public class ParseTree {
      * @param label value of root non-terminal node
      */
     public ParseTree(String nt, String label) {
-        this();
+        this(nt, label, false);
+    }
+
+    /**
+     * constructor
+     *
+     * create a new abstract syntax tree
+     *
+     * @param nt      name of root non-terminal node
+     * @param label   value of root non-terminal node
+     * @param indexed true to maintain an index from rule names and
+     *                terminal labels to nodes, false otherwise
+     */
+    public ParseTree(String nt, String label, boolean indexed) {
+        this(nt, label, indexed, new ParseTreeVocabulary());
+    }
+
+    /**
+     * constructor
+     *
+     * create a new abstract syntax tree
+     *
+     * @param nt         name of root non-terminal node
+     * @param label      value of root non-terminal node
+     * @param indexed    true to maintain an index from rule names and
+     *                   terminal labels to nodes, false otherwise
+     * @param vocabulary vocabulary for rule ids and token types
+     */
+    public ParseTree(String nt, String label, boolean indexed,
+                     ParseTreeVocabulary vocabulary) {
+        this(vocabulary);
+        setIndexed(indexed);
         root = newNode(null, nt, label,0,0);
     }
 
@@ -65,8 +110,10 @@ public class ParseTree {
      * @param tree tree to be duplicated
      */
     public ParseTree(ParseTree tree) {
-        this();
+        this(tree.vocabulary);
+        idcnt = tree.idcnt;
         root = newNode(tree.getRoot());
+        setIndexed(tree.isIndexed());
     }
 
     /**
@@ -76,8 +123,65 @@ public class ParseTree {
      * @param nod root node
      */
     private ParseTree(ParseTreeNode nod) {
-        this();
+        this(nod.getTree().vocabulary);
+        idcnt = nod.getTree().idcnt;
         root = newNode(nod);
+        setIndexed(nod.getTree().isIndexed());
+    }
+
+    /**
+     * get the vocabulary that maps rule ids to rule names
+     *
+     * @return vocabulary
+     */
+    public ParseTreeVocabulary getVocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * get the id of a rule name; names that are not rules of the grammar
+     * get an id of this tree after the ids of the grammar rules when they
+     * are used for the first time, so they do not affect other trees that
+     * share the vocabulary
+     *
+     * @param name rule name, empty or null for terminals
+     * @return rule id
+     */
+    public int getRuleId(String name) {
+        if (name == null || name.isEmpty() || vocabulary.hasRule(name))
+            return vocabulary.getRuleId(name);
+        Integer id = extIds.get(name);
+        if (id == null) {
+            id = vocabulary.getRuleCount() + extNames.size();
+            extNames.add(name);
+            extIds.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * get the name of a rule id
+     *
+     * @param id rule id
+     * @return rule name, the empty string for terminals
+     */
+    public String getRuleName(int id) {
+        int e = id - vocabulary.getRuleCount();
+        if (e < 0)
+            return vocabulary.getRuleName(id);
+        if (e >= extNames.size())
+            throw new IllegalArgumentException("unknown rule id " + id);
+        return extNames.get(e);
+    }
+
+    /**
+     * get the number of rule ids in use, i.e., of the grammar rules and of
+     * all other names used in this tree
+     *
+     * @return number of rule ids
+     */
+    public int getRuleIdCount() {
+        return vocabulary.getRuleCount() + extNames.size();
     }
 
     /**
@@ -89,6 +193,169 @@ public class ParseTree {
         return root;
     }
 
+    /**
+     * enable or disable the rule name and terminal label index; when
+     * enabled, the index is built from the present nodes and maintained
+     * for all nodes added or removed afterwards
+     *
+     * @param indexed true to enable the index, false to drop it
+     */
+    public void setIndexed(boolean indexed) {
+        if (!indexed) {
+            ruleIdx = null;
+            termIdx = null;
+        } else if (!isIndexed()) {
+            ruleIdx = new HashMap<>();
+            termIdx = new HashMap<>();
+            nodes.forEach(this::index);
+        }
+    }
+
+    /**
+     * check whether this tree maintains a rule name and terminal label index
+     *
+     * @return true if the index is enabled, false otherwise
+     */
+    public boolean isIndexed() {
+        return ruleIdx != null;
+    }
+
+    /**
+     * add node to the index
+     *
+     * @param n node to be indexed
+     */
+    private void index(ParseTreeNode n) {
+        if (n.getRule() == null || n.getRule().isEmpty()) {
+            termIdx.computeIfAbsent(n.getLabel(), k -> new ArrayList<>()).add(n);
+        } else {
+            ruleIdx.computeIfAbsent(n.getRule(), k -> new ArrayList<>()).add(n);
+        }
+    }
+
+    /**
+     * get all nodes with a given rule name; uses the index if enabled
+     *
+     * @param rule rule name
+     * @return unmodifiable list of nodes in the order of their creation
+     */
+    public List<ParseTreeNode> getNodesByRule(String rule) {
+        if (isIndexed()) {
+            return Collections.unmodifiableList(ruleIdx.getOrDefault(rule,
+                    Collections.emptyList()));
+        }
+        return Collections.unmodifiableList(nodes.stream()
+                .filter(n -> rule.equals(n.getRule()))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * get all terminal nodes with a given label; uses the index if enabled
+     *
+     * @param label terminal text
+     * @return unmodifiable list of nodes in the order of their creation
+     */
+    public List<ParseTreeNode> getTerminalsByLabel(String label) {
+        if (isIndexed()) {
+            return Collections.unmodifiableList(termIdx.getOrDefault(label,
+                    Collections.emptyList()));
+        }
+        return Collections.unmodifiableList(nodes.stream()
+                .filter(n -> (n.getRule() == null || n.getRule().isEmpty()) &&
+                        label.equals(n.getLabel()))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * get the root nodes of the dominating subtrees with a given rule name,
+     * i.e., nodes of that rule that have no ancestor with the same rule;
+     * in contrast to {@link #getDominatingSubtrees(Predicate)}, the
+     * subtrees are not copied
+     *
+     * @param rule rule name
+     * @return list of dominating nodes
+     */
+    public List<ParseTreeNode> getDominatingNodesByRule(String rule) {
+        return getNodesByRule(rule).stream()
+                .filter(n -> {
+                    for (ParseTreeNode a = n.getParent(); a != null; a = a
+                            .getParent()) {
+                        if (rule.equals(a.getRule()))
+                            return false;
+                    }
+                    return true;
+                }).collect(Collectors.toList());
+    }
+
+    /**
+     * get the root nodes of the subtrees identified by p without copying
+     * the subtrees; in contrast to {@link #getSubtrees(Predicate)}, the
+     * returned nodes are live views on this tree
+     *
+     * @param p predicate for identifying the root node
+     * @return list of matching nodes
+     */
+    public List<ParseTreeNode> getSubtreeRoots(Predicate<ParseTreeNode> p) {
+        return nodes.stream().filter(p).collect(Collectors.toList());
+    }
+
+    /**
+     * get the root nodes of the dominating subtrees without copying the
+     * subtrees
+     *
+     * @param p predicate to search for the dominating subtree root node
+     * @return list of dominating nodes in pre-order
+     */
+    public List<ParseTreeNode> getDominatingSubtreeRoots(Predicate<ParseTreeNode> p) {
+        List<ParseTreeNode> selected = new ArrayList<>();
+        searchDominatingNodes(root, selected, p);
+        return selected;
+    }
+
+    /**
+     * allocate a fresh node identifier
+     *
+     * @return identifier that is unique within this tree
+     */
+    int nextId() {
+        return idcnt++;
+    }
+
+    /**
+     * get the number of node identifiers allocated by this tree, i.e., an
+     * upper bound (exclusive) for the ids of all nodes in this tree. Note
+     * that copies and subtrees preserve the ids of the tree they were
+     * created from.
+     *
+     * @return number of allocated ids
+     */
+    public int getIdCount() {
+        return idcnt;
+    }
+
+    /**
+     * register a node that was created for this tree
+     *
+     * @param n node to be added
+     */
+    void addNode(ParseTreeNode n) {
+        nodes.add(n);
+        if (n.getId() >= byId.length)
+            byId = Arrays.copyOf(byId, Math.max(2 * byId.length, n.getId()
+                    + 1));
+        byId[n.getId()] = n;
+    }
+
+    /**
+     * unregister a node that was removed from this tree
+     *
+     * @param n node to be removed
+     */
+    private void dropNode(ParseTreeNode n) {
+        if (n.getId() < byId.length && byId[n.getId()] == n)
+            byId[n.getId()] = null;
+    }
+
     /**
      * create new ast node
      *
@@ -97,7 +364,7 @@ public class ParseTree {
      */
     private ParseTreeNode newNode(ParseTreeNode parent) {
         ParseTreeNode rn = new ParseTreeNode(this, parent);
-        nodes.add(rn);
+        addNode(rn);
         return rn;
     }
 
@@ -114,10 +381,98 @@ public class ParseTree {
     public ParseTreeNode newNode(ParseTreeNode parent, String nt, String label, int sidx,
                                  int eidx) {
         ParseTreeNode rn = new ParseTreeNode(this, parent, nt, label, sidx, eidx);
-        nodes.add(rn);
+        addNode(rn);
+        if (isIndexed())
+            index(rn);
+        return rn;
+    }
+
+    /**
+     * create new rule node
+     *
+     * @param parent parent node
+     * @param rule   rule id, e.g. the rule index of the parser
+     * @param label  value of node to be created
+     * @param sidx   start index
+     * @param eidx   end index
+     * @return newly created node
+     */
+    public ParseTreeNode newNode(ParseTreeNode parent, int rule, String
+            label, int sidx, int eidx) {
+        // fail early on unknown ids
+        getRuleName(rule);
+        ParseTreeNode rn = new ParseTreeNode(this, parent, rule, label, sidx,
+                eidx);
+        addNode(rn);
+        if (isIndexed())
+            index(rn);
         return rn;
     }
 
+    /**
+     * create new terminal node
+     *
+     * @param parent parent node
+     * @param ttype  token type
+     * @param label  value of node to be created
+     * @param sidx   start index
+     * @param eidx   end index
+     * @return newly created node
+     */
+    public ParseTreeNode newTerminalNode(ParseTreeNode parent, int ttype,
+                                         String label, int sidx, int eidx) {
+        ParseTreeNode rn = newNode(parent, ParseTreeVocabulary.NO_RULE,
+                label, sidx, eidx);
+        rn.setTokenType(ttype);
+        return rn;
+    }
+
+    /**
+     * create new terminal error node, i.e., a terminal that stems from
+     * syntax error recovery
+     *
+     * @param parent parent node
+     * @param ttype  token type
+     * @param label  value of node to be created
+     * @param sidx   start index
+     * @param eidx   end index
+     * @return newly created node
+     */
+    public ParseTreeNode newErrorNode(ParseTreeNode parent, int ttype, String
+            label, int sidx, int eidx) {
+        ParseTreeNode rn = newTerminalNode(parent, ttype, label, sidx, eidx);
+        rn.setError(true);
+        return rn;
+    }
+
+    /**
+     * create new error node, i.e., a node that stems from syntax error
+     * recovery
+     *
+     * @param parent parent node
+     * @param nt     name of node to be created
+     * @param label  value of node to be created
+     * @param sidx   start index
+     * @param eidx   end index
+     * @return newly created node
+     */
+    public ParseTreeNode newErrorNode(ParseTreeNode parent, String nt, String
+            label, int sidx, int eidx) {
+        ParseTreeNode rn = newNode(parent, nt, label, sidx, eidx);
+        rn.setError(true);
+        return rn;
+    }
+
+    /**
+     * get the nodes that stem from syntax error recovery
+     *
+     * @return list of error nodes
+     */
+    public List<ParseTreeNode> getErrorNodes() {
+        return nodes.stream().filter(ParseTreeNode::isError).collect
+                (Collectors.toList());
+    }
+
     /**
      * get leaf nodes
      *
@@ -166,21 +521,185 @@ public class ParseTree {
 
 
     /**
-     * replace oldTree by newTree
+     * copy node and its descendants into this tree; the copies are
+     * assigned fresh identifiers
+     *
+     * @param parent parent of the copy
+     * @param nod    node to be copied
+     * @return the copy of nod
+     */
+    private ParseTreeNode importNode(ParseTreeNode parent, ParseTreeNode nod) {
+        return importNode(parent, nod, 0);
+    }
+
+    /**
+     * copy a node and its descendants into this tree and shift the start
+     * and end indices of the copies
+     *
+     * @param parent parent of the copy
+     * @param nod    node to be copied
+     * @param shift  offset added to the start and end indices
+     * @return the copy of nod
+     */
+    private ParseTreeNode importNode(ParseTreeNode parent, ParseTreeNode nod,
+                                     int shift) {
+        ParseTreeNode cp = newNode(parent, nod.getRule(), nod.getLabel(),
+                nod.getSidx() + shift, nod.getEidx() + shift);
+        cp.setError(nod.isError());
+        cp.setTokenType(nod.getTokenType());
+        for (ParseTreeNode c : nod.getChildren()) {
+            cp.addChild(importNode(cp, c, shift));
+        }
+        return cp;
+    }
+
+    /**
+     * append a copy of the subtree rooted at r, which may belong to another
+     * tree, to the children of a node of this tree; the copies get fresh
+     * identifiers
+     *
+     * @param parent node of this tree
+     * @param r      root of the subtree to be copied
+     * @return the copy of r
+     */
+    public ParseTreeNode addSubtree(ParseTreeNode parent, ParseTreeNode r) {
+        if (parent.getTree() != this)
+            throw new IllegalArgumentException("parent must be a node of " +
+                    "this tree");
+        ParseTreeNode cp = importNode(parent, r, 0);
+        parent.addChild(cp);
+        return cp;
+    }
+
+    /**
+     * replace the subtree rooted at node n of this tree by a copy of the
+     * subtree rooted at r, which may belong to another tree; the copies get
+     * fresh identifiers
+     *
+     * @param n     node of this tree to be replaced
+     * @param r     root of the replacement
+     * @param shift offset added to the start and end indices of the copies
+     * @return the copy of r
+     */
+    public ParseTreeNode replaceNode(ParseTreeNode n, ParseTreeNode r, int
+            shift) {
+        if (n.getTree() != this || !n.hasParent())
+            throw new IllegalArgumentException("n must be a non-root node of" +
+                    " this tree");
+        ParseTreeNode par = n.getParent();
+        ParseTreeNode cp = importNode(par, r, shift);
+        par.replaceChild(n, cp);
+        removeNodes(n);
+        return cp;
+    }
+
+    /**
+     * shift start and end indices of all nodes, e.g. after text was
+     * inserted or deleted; indices smaller than from remain unchanged
+     *
+     * @param from  first index to be shifted
+     * @param delta offset to be added
+     */
+    public void shiftIndices(int from, int delta) {
+        if (delta == 0)
+            return;
+        for (ParseTreeNode n : nodes) {
+            n.setIndices(n.getSidx() >= from ? n.getSidx() + delta : n
+                    .getSidx(), n.getEidx() >= from ? n.getEidx() + delta :
+                    n.getEidx());
+        }
+    }
+
+    /**
+     * change the label of a node of this tree
+     *
+     * @param n     node
+     * @param label new label
+     */
+    public void setLabel(ParseTreeNode n, String label) {
+        if (n.getTree() != this)
+            throw new IllegalArgumentException("n must be a node of this tree");
+        boolean reindex = isIndexed() && (n.getRule() == null || n.getRule()
+                .isEmpty());
+        if (reindex) {
+            List<ParseTreeNode> l = termIdx.get(n.getLabel());
+            if (l != null)
+                l.remove(n);
+        }
+        n.setLabel(label);
+        if (reindex)
+            index(n);
+    }
+
+    /**
+     * set label, indices and error flag of a node of this tree, e.g. of a
+     * rule node that was created before the rule was fully parsed
+     *
+     * @param n     node
+     * @param label new label
+     * @param sidx  start index
+     * @param eidx  end index
+     * @param error true if the node stems from syntax error recovery
+     */
+    public void completeNode(ParseTreeNode n, String label, int sidx, int
+            eidx, boolean error) {
+        setLabel(n, label);
+        n.setIndices(sidx, eidx);
+        n.setError(error);
+    }
+
+    /**
+     * remove a node that has a single child from this tree; the child takes
+     * the place of the node
+     *
+     * @param n node to be removed
+     */
+    public void collapseNode(ParseTreeNode n) {
+        if (n.getTree() != this || !n.hasParent() || n.getChildren().size()
+                != 1)
+            throw new IllegalArgumentException("n must be a non-root node " +
+                    "of this tree with a single child");
+        ParseTreeNode c = n.getFirstChild();
+        n.getParent().replaceChild(n, c);
+        // nodes are usually collapsed right after their descendants were
+        // created, hence we search from the end
+        removeLast(nodes, n);
+        dropNode(n);
+        if (isIndexed() && ruleIdx.containsKey(n.getRule()))
+            removeLast(ruleIdx.get(n.getRule()), n);
+    }
+
+    /**
+     * remove the last occurrence of a node from a list by identity
+     *
+     * @param l list
+     * @param n node
+     */
+    private static void removeLast(List<ParseTreeNode> l, ParseTreeNode n) {
+        for (int i = l.size() - 1; i >= 0; i--) {
+            if (l.get(i) == n) {
+                l.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * replace oldTree by newTree; the nodes of newTree are copied into
+     * this tree such that node ids remain unique
      *
      * @param oldTree tree to be replaced
      * @param newTree tree replacement
      * @return true when subtree replacement was successful, false otherwise
      */
     public boolean replaceSubtree(ParseTree oldTree, ParseTree newTree) {
-        if (hasSubtree(oldTree)) {
-            nodes.stream()
-                    .filter(n -> oldTree.getRoot().equals(n))
-                    .forEach(n -> n.getParent().replaceChild(oldTree.getRoot(), newTree.getRoot()));
-            nodes.addAll(newTree.nodes);
-            return nodes.removeAll(oldTree.nodes);
-        }
-        return false;
+        ParseTreeNode n = findNode(oldTree.getRoot());
+        if (n == null || !n.hasParent())
+            return false;
+
+        ParseTreeNode par = n.getParent();
+        par.replaceChild(n, importNode(par, newTree.getRoot()));
+        return removeNodes(n);
     }
 
     /**
@@ -190,13 +709,52 @@ public class ParseTree {
      * @return true when removal was succesful, false otherwise
      */
     public boolean removeSubtree(ParseTree subtree) {
-        if (hasSubtree(subtree)) {
-            nodes.stream()
-                    .filter(n -> subtree.getRoot().equals(n))
-                    .forEach(n -> n.getParent().delChild(n));
-            return nodes.removeAll(subtree.nodes);
+        ParseTreeNode n = findNode(subtree.getRoot());
+        if (n == null || !n.hasParent())
+            return false;
+
+        n.getParent().delChild(n);
+        return removeNodes(n);
+    }
+
+    /**
+     * remove node n and all its descendants from the node list
+     *
+     * @param n root of the subtree to be removed
+     * @return true if nodes were removed, false otherwise
+     */
+    private boolean removeNodes(ParseTreeNode n) {
+        Set<ParseTreeNode> del = Collections.newSetFromMap(new
+                IdentityHashMap<>());
+        Deque<ParseTreeNode> wl = new ArrayDeque<>();
+        wl.push(n);
+        while (!wl.isEmpty()) {
+            ParseTreeNode c = wl.pop();
+            del.add(c);
+            c.getChildren().forEach(wl::push);
         }
-        return false;
+        if (isIndexed()) {
+            ruleIdx.values().forEach(l -> l.removeIf(del::contains));
+            termIdx.values().forEach(l -> l.removeIf(del::contains));
+        }
+        del.forEach(this::dropNode);
+        return nodes.removeIf(del::contains);
+    }
+
+    /**
+     * find the node in this tree that is equal to n; since ids are unique
+     * within a tree, the only candidate is the node with the id of n
+     *
+     * @param n node to look for
+     * @return the node of this tree that is equal to n or null if there
+     * is no such node
+     */
+    private ParseTreeNode findNode(ParseTreeNode n) {
+        int id = n.getId();
+        if (id < 0 || id >= byId.length)
+            return null;
+        ParseTreeNode c = byId[id];
+        return c != null && c.equals(n) ? c : null;
     }
 
     /**
@@ -207,9 +765,8 @@ public class ParseTree {
      * @return set of dominating subtrees
      */
     public Set<ParseTree> getDominatingSubtrees(Predicate<ParseTreeNode> p) {
-        Set<ParseTreeNode> selected = new HashSet<>();
-        searchDominatingNodes(root, selected, p);
-        return getSubtrees(selected::contains);
+        return getDominatingSubtreeRoots(p).stream().map(ParseTree::new)
+                .collect(toSet());
     }
 
     /**
@@ -219,7 +776,7 @@ public class ParseTree {
      * @param selected set to keep track of visited nodes
      * @param p        predicate to search for the dominating subtree root node
      */
-    private void searchDominatingNodes(ParseTreeNode n, Set<ParseTreeNode> selected, Predicate<ParseTreeNode> p) {
+    private void searchDominatingNodes(ParseTreeNode n, Collection<ParseTreeNode> selected, Predicate<ParseTreeNode> p) {
         if (p.test(n)) {
             selected.add(n);
         } else {
@@ -244,8 +801,7 @@ public class ParseTree {
      * @return true if subtree is present in actual one, false otherwise
      */
     public boolean hasSubtree(ParseTree subtree) {
-        Set<ParseTree> subtrees = getSubtrees(n -> subtree.getRoot().equals(n));
-        return subtrees.stream().filter(subtree::equals).count() > 0;
+        return findNode(subtree.getRoot()) != null;
     }
 
     /**
@@ -255,13 +811,87 @@ public class ParseTree {
      * @return subree
      */
     public ParseTree getSubtree(ParseTree subtree) {
-        Set<ParseTree> subtrees = getSubtrees(n -> n.equals(subtree.getRoot()));
-        return subtrees.stream().filter(subtree::equals).findFirst().orElse(null);
+        ParseTreeNode n = findNode(subtree.getRoot());
+        return n != null ? new ParseTree(n) : null;
+    }
+
+    /**
+     * find all nodes of this tree whose subtree is structurally identical
+     * to the subtree rooted at n (see
+     * {@link ParseTreeNode#isStructurallyEqual(ParseTreeNode)}); n may
+     * belong to a different tree
+     *
+     * @param n root of the subtree to look for
+     * @return list of matching nodes in topological order
+     */
+    public List<ParseTreeNode> findIdenticalSubtrees(ParseTreeNode n) {
+        int h = n.getStructuralHash();
+        return nodes.stream()
+                .filter(c -> c.getStructuralHash() == h && c
+                        .isStructurallyEqual(n))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * group the nodes of this tree that root structurally identical
+     * subtrees, e.g., for detecting clones
+     *
+     * @param p predicate that has to hold for the root nodes to consider
+     * @return groups of at least two nodes rooting identical subtrees
+     */
+    public Collection<List<ParseTreeNode>> getIdenticalSubtrees
+    (Predicate<ParseTreeNode> p) {
+        return getIdenticalSubtrees(p, Collections.singleton(this));
     }
 
+    /**
+     * group the nodes of the given trees that root structurally identical
+     * subtrees, e.g., for detecting clones across multiple files
+     *
+     * @param p     predicate that has to hold for the root nodes to consider
+     * @param trees trees to search in
+     * @return groups of at least two nodes rooting identical subtrees
+     */
+    public static Collection<List<ParseTreeNode>> getIdenticalSubtrees
+    (Predicate<ParseTreeNode> p, Collection<ParseTree> trees) {
+        Map<Integer, List<List<ParseTreeNode>>> buckets = new HashMap<>();
+
+        for (ParseTree t : trees) {
+            for (ParseTreeNode n : t.getNodes()) {
+                if (!p.test(n))
+                    continue;
+
+                List<List<ParseTreeNode>> bucket = buckets.computeIfAbsent(n
+                        .getStructuralHash(), k -> new ArrayList<>());
+
+                // resolve hash collisions
+                List<ParseTreeNode> grp = bucket.stream()
+                        .filter(g -> g.get(0).isStructurallyEqual(n))
+                        .findFirst().orElse(null);
+
+                if (grp == null) {
+                    grp = new ArrayList<>();
+                    bucket.add(grp);
+                }
+                grp.add(n);
+            }
+        }
+
+        return buckets.values().stream()
+                .flatMap(List::stream)
+                .filter(g -> g.size() > 1)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * hash code that is consistent with {@link #equals(Object)}, i.e.,
+     * the structural hash of the root node
+     *
+     * @return hash code
+     */
     @Override
     public int hashCode() {
-        return root.getId();
+        return root.getStructuralHash();
     }
 
 
@@ -287,6 +917,13 @@ public class ParseTree {
         this.nodes = nods;
     }
 
+    /**
+     * check whether another tree is equal to this one, i.e., whether their
+     * root nodes are equal (see {@link ParseTreeNode#equals(Object)})
+     *
+     * @param o object to compare with
+     * @return true if both trees are equal, false otherwise
+     */
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof ParseTree))
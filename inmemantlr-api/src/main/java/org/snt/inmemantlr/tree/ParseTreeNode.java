@@ -29,12 +29,16 @@ package org.snt.inmemantlr.tree;
 import org.snt.inmemantlr.utils.EscapeUtils;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Vector;
 
 public class ParseTreeNode {
 
     private String label;
-    private String ntype;
+    // rule id within the vocabulary of the tree
+    private int rule;
+    // token type of terminals, 0 if unknown
+    private int ttype = 0;
     private ParseTreeNode parent;
     private ParseTree tree;
     private int id;
@@ -42,17 +46,24 @@ public class ParseTreeNode {
     private int sidx = 0;
     private int eidx = 0;
 
+    // node that stems from syntax error recovery
+    private boolean error = false;
+
     private List<ParseTreeNode> children;
-    private static int cnt = 0;
+
+    // memoized structural hash of the subtree rooted at this node
+    private int shash = 0;
+    private boolean shashValid = false;
 
     /**
      * constructor
      *
      * @param tree tree to whom the node belongs to
+     * @param id   identifier of the node within tree
      */
-    private ParseTreeNode(ParseTree tree) {
+    private ParseTreeNode(ParseTree tree, int id) {
         this.tree = tree;
-        id = cnt++;
+        this.id = id;
         children = new Vector<>();
     }
 
@@ -68,8 +79,23 @@ public class ParseTreeNode {
      */
     protected ParseTreeNode(ParseTree tree, ParseTreeNode parent, String nt, String label, int
             sidx, int eidx) {
-        this(tree);
-        ntype = nt;
+        this(tree, parent, tree.getRuleId(nt), label, sidx, eidx);
+    }
+
+    /**
+     * constructor
+     *
+     * @param tree   tree to whom the node belongs to
+     * @param parent parent node
+     * @param rule   rule id
+     * @param sidx   start index
+     * @param eidx   end index
+     * @param label  label
+     */
+    protected ParseTreeNode(ParseTree tree, ParseTreeNode parent, int rule,
+                            String label, int sidx, int eidx) {
+        this(tree, tree.nextId());
+        this.rule = rule;
         this.label = label;
         this.parent = parent;
         this.sidx = sidx;
@@ -83,16 +109,19 @@ public class ParseTreeNode {
      * @param nod  node to duplication
      */
     protected ParseTreeNode(ParseTree tree, ParseTreeNode nod) {
-        this(tree);
-        id = nod.id;
-        ntype = nod.ntype;
+        this(tree, nod.id);
+        rule = tree.getVocabulary() == nod.tree.getVocabulary() && nod.rule
+                < tree.getVocabulary().getRuleCount() ? nod.rule : tree
+                .getRuleId(nod.getRule());
+        ttype = nod.ttype;
         label = nod.label;
         this.eidx = nod.eidx;
         this.sidx = nod.sidx;
+        this.error = nod.error;
         for (ParseTreeNode c : nod.children) {
             ParseTreeNode cnod = new ParseTreeNode(tree, c);
             cnod.parent = this;
-            this.tree.nodes.add(cnod);
+            this.tree.addNode(cnod);
             children.add(cnod);
         }
     }
@@ -186,6 +215,18 @@ public class ParseTreeNode {
      */
     public void addChild(ParseTreeNode n) {
         children.add(n);
+        invalidate();
+    }
+
+    /**
+     * insert child node at a given position
+     *
+     * @param pos position at which n is inserted
+     * @param n   child node to be added
+     */
+    public void addChild(int pos, ParseTreeNode n) {
+        children.add(pos, n);
+        invalidate();
     }
 
     /**
@@ -194,7 +235,8 @@ public class ParseTreeNode {
      * @param n child node to be deleted
      */
     public void delChild(ParseTreeNode n) {
-        children.remove(n);
+        if (children.remove(n))
+            invalidate();
     }
 
     /**
@@ -207,25 +249,147 @@ public class ParseTreeNode {
         if (children.contains(oldNode)) {
             children.set(children.indexOf(oldNode), newNode);
             newNode.parent = this;
+            invalidate();
+        }
+    }
+
+    /**
+     * invalidate the memoized structural hash of this node and its
+     * ancestors; has to be called after the children of this node have
+     * been modified directly through {@link #getChildren()}
+     */
+    public void invalidate() {
+        for (ParseTreeNode n = this; n != null && n.shashValid; n = n.parent) {
+            n.shashValid = false;
         }
     }
 
     /**
-     * gt identifier
+     * get structural hash, i.e., a hash over the rule, the label and the
+     * structural hashes of all children; ids and indices are not taken into
+     * account such that identical subtrees share the same hash regardless
+     * of the tree they belong to. The hash is memoized and recomputed only
+     * after the subtree was modified.
      *
-     * @return id which identifies node uniquely
+     * @return structural hash
+     */
+    public int getStructuralHash() {
+        if (!shashValid) {
+            int h = 31 * getRule().hashCode() +
+                    (label != null ? label.hashCode() : 0);
+            for (ParseTreeNode c : children) {
+                h = 31 * h + c.getStructuralHash();
+            }
+            // spread bits
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            shash = h;
+            shashValid = true;
+        }
+        return shash;
+    }
+
+    /**
+     * check whether the subtree rooted at this node is structurally
+     * identical to the subtree rooted at n, i.e., whether both have the
+     * same shape, rules and labels
+     *
+     * @param n node to compare with
+     * @return true if both subtrees are structurally identical, false
+     * otherwise
+     */
+    public boolean isStructurallyEqual(ParseTreeNode n) {
+        if (n == this)
+            return true;
+
+        if (n == null || n.getStructuralHash() != getStructuralHash() ||
+                n.children.size() != children.size() ||
+                !hasSameRule(n) ||
+                !Objects.equals(n.label, label))
+            return false;
+
+        for (int i = 0; i < children.size(); i++) {
+            if (!children.get(i).isStructurallyEqual(n.children.get(i)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * get identifier
+     *
+     * @return id which identifies node uniquely within its tree; ids are
+     * allocated densely from zero so that they can be used as array indices
+     * (see {@link ParseTree#getIdCount()})
      */
     public int getId() {
         return id;
     }
 
+    /**
+     * get the tree to whom the node belongs to
+     *
+     * @return tree
+     */
+    ParseTree getTree() {
+        return tree;
+    }
+
     /**
      * get non-terminal rule of that node
      *
      * @return non-terminal rule
      */
     public String getRule() {
-        return ntype;
+        return tree.getRuleName(rule);
+    }
+
+    /**
+     * get the id of the rule of this node; for trees built by a
+     * {@link org.snt.inmemantlr.listener.DefaultTreeListener}, this is the
+     * rule index of the parser (see {@link ParseTreeVocabulary}); names that
+     * are not grammar rules have ids of the tree (see
+     * {@link ParseTree#getRuleId(String)})
+     *
+     * @return rule id or {@link ParseTreeVocabulary#NO_RULE} for terminals
+     */
+    public int getRuleIndex() {
+        return rule;
+    }
+
+    /**
+     * get the token type of a terminal node
+     *
+     * @return token type or 0 if unknown
+     */
+    public int getTokenType() {
+        return ttype;
+    }
+
+    /**
+     * set token type
+     *
+     * @param ttype token type
+     */
+    void setTokenType(int ttype) {
+        this.ttype = ttype;
+    }
+
+    /**
+     * check whether this node and another one have the same rule; rule ids
+     * are only compared if both nodes share a vocabulary and the ids are
+     * grammar rules or belong to the same tree
+     *
+     * @param n node to compare with
+     * @return true if both nodes have the same rule, false otherwise
+     */
+    public boolean hasSameRule(ParseTreeNode n) {
+        int rc = tree.getVocabulary().getRuleCount();
+        if (tree.getVocabulary() == n.tree.getVocabulary() && (tree == n
+                .tree || (rule < rc && n.rule < rc)))
+            return rule == n.rule;
+        return getRule().equals(n.getRule());
     }
 
     /**
@@ -253,12 +417,55 @@ public class ParseTreeNode {
         return eidx;
     }
 
+    /**
+     * set start and end index
+     *
+     * @param sidx start index
+     * @param eidx end index
+     */
+    void setIndices(int sidx, int eidx) {
+        this.sidx = sidx;
+        this.eidx = eidx;
+    }
+
+    /**
+     * check whether the node stems from syntax error recovery, i.e., it is
+     * a token that was skipped or conjured up by the parser, or a rule that
+     * was left because of a syntax error
+     *
+     * @return true if the node is an error node, false otherwise
+     */
+    public boolean isError() {
+        return error;
+    }
+
+    /**
+     * mark node as error node
+     *
+     * @param error true to mark the node as error node
+     */
+    void setError(boolean error) {
+        this.error = error;
+    }
+
+    /**
+     * set label
+     *
+     * @param label label
+     */
+    void setLabel(String label) {
+        this.label = label;
+        invalidate();
+    }
+
 
     /**
      * check whether node is terminal
      * @return true if node is a terminal node
      */
-    public boolean isTerminal() { return isLeaf() && getRule().isEmpty(); }
+    public boolean isTerminal() {
+        return isLeaf() && rule == ParseTreeVocabulary.NO_RULE;
+    }
 
     /**
      * get label
@@ -269,24 +476,41 @@ public class ParseTreeNode {
         return label;
     }
 
+    /**
+     * hash code, i.e., the identifier of the node; since identifiers are
+     * allocated per tree, nodes of different trees may share hash codes
+     *
+     * @return hash code
+     */
     @Override
     public int hashCode() {
         return id;
     }
 
+    /**
+     * check whether another node is equal to this one, i.e., whether both
+     * have the same identifier, rule and label and equal children. Since
+     * identifiers are allocated per tree, nodes of different trees can be
+     * equal, e.g. the nodes of a tree and of its copy
+     *
+     * @param o object to compare with
+     * @return true if both nodes are equal, false otherwise
+     */
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof ParseTreeNode))
             return false;
 
         ParseTreeNode n = (ParseTreeNode) o;
-        return n.getId() == getId() && n.ntype.equals(ntype) &&
+        return n.getId() == getId() &&
+                n.getStructuralHash() == getStructuralHash() &&
+                hasSameRule(n) &&
                 n.label.equals(label) && children.equals(n.children);
     }
 
     @Override
     public String toString() {
-        return id + " " + ntype + " " + label;
+        return id + " " + getRule() + " " + label;
     }
 
     /**
@@ -44,7 +44,8 @@ public abstract class ParseTreeProcessor<R, T> {
     protected Map<ParseTreeNode, T> smap;
     protected LinkedList<ParseTreeNode> active;
 
-    private Map<ParseTreeNode, Integer> nmap;
+    // number of unprocessed children indexed by node id
+    private int[] nmap;
 
     /**
      * constructor
@@ -53,7 +54,7 @@ public abstract class ParseTreeProcessor<R, T> {
      */
     public ParseTreeProcessor(ParseTree parseTree) {
         this.parseTree = parseTree;
-        nmap = new HashMap<>();
+        nmap = new int[0];
         smap = new HashMap<>();
         active = new LinkedList<>();
     }
@@ -72,8 +73,10 @@ public abstract class ParseTreeProcessor<R, T> {
 
         initialize();
 
+        nmap = new int[parseTree.getIdCount()];
+
         for (ParseTreeNode rn : parseTree.getNodes()) {
-            nmap.put(rn, rn.getChildren().size());
+            nmap[rn.getId()] = rn.getChildren().size();
         }
 
         active.addAll(parseTree.getLeafs());
@@ -85,11 +88,8 @@ public abstract class ParseTreeProcessor<R, T> {
 
             ParseTreeNode parent = rn.getParent();
 
-            if (parent != null) {
-                nmap.replace(parent, nmap.get(parent) - 1);
-                if (nmap.get(parent) == 0) {
-                    active.add(parent);
-                }
+            if (parent != null && --nmap[parent.getId()] == 0) {
+                active.add(parent);
             }
         }
 
@@ -111,8 +111,9 @@ public abstract class ParseTreeProcessor<R, T> {
 
         sb.append(".....Nmap......\n");
 
-        for (Map.Entry<ParseTreeNode, Integer> e : nmap.entrySet()) {
-            sb.append(e.getKey().getId()).append(" :: ").append(e.getValue()).append("\n");
+        for (ParseTreeNode n : parseTree.getNodes()) {
+            sb.append(n.getId()).append(" :: ").append(nmap.length > n.getId() ?
+                    nmap[n.getId()] : 0).append("\n");
         }
 
         return sb.toString();
@@ -0,0 +1,161 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.inmemantlr.tree;
+
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.Vocabulary;
+import org.antlr.v4.runtime.VocabularyImpl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * maps the rule names of parse tree nodes to integer ids and token types to
+ * token names. The ids of the rules of a grammar are the rule indices of
+ * its parser. Vocabularies are immutable and shared by all trees built
+ * with parsers of the same grammar; other names, e.g. of the root node, are
+ * mapped by the tree that uses them (see {@link ParseTree#getRuleId(String)})
+ */
+public final class ParseTreeVocabulary {
+
+    // id of nodes without rule, i.e., of terminals
+    public static final int NO_RULE = -1;
+
+    // vocabularies by the rule name array of the generated parser
+    private static final Map<String[], ParseTreeVocabulary> SHARED = new
+            WeakHashMap<>();
+
+    private final Vocabulary tokens;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final String[] names;
+
+    /**
+     * constructor for a vocabulary without grammar rules and tokens
+     */
+    public ParseTreeVocabulary() {
+        this(new String[0], VocabularyImpl.EMPTY_VOCABULARY);
+    }
+
+    /**
+     * constructor
+     *
+     * @param ruleNames rule names of the grammar
+     * @param tokens    token vocabulary of the grammar
+     */
+    public ParseTreeVocabulary(String[] ruleNames, Vocabulary tokens) {
+        this.tokens = Objects.requireNonNull(tokens, "tokens must not be " +
+                "null");
+        this.names = ruleNames.clone();
+        for (int i = 0; i < names.length; i++) {
+            ids.putIfAbsent(names[i], i);
+        }
+    }
+
+    /**
+     * get the vocabulary shared by all parsers of the same grammar
+     *
+     * @param p parser
+     * @return vocabulary
+     */
+    public static ParseTreeVocabulary of(Parser p) {
+        // generated parsers return their static rule name array
+        String[] rules = p.getRuleNames();
+        synchronized (SHARED) {
+            return SHARED.computeIfAbsent(rules, k -> new
+                    ParseTreeVocabulary(k, p.getVocabulary()));
+        }
+    }
+
+    /**
+     * get the number of grammar rules
+     *
+     * @return number of grammar rules
+     */
+    public int getRuleCount() {
+        return names.length;
+    }
+
+    /**
+     * check whether a name is a rule of the grammar
+     *
+     * @param name rule name
+     * @return true if name is a grammar rule, false otherwise
+     */
+    public boolean hasRule(String name) {
+        return ids.containsKey(name);
+    }
+
+    /**
+     * get the id of a grammar rule
+     *
+     * @param name rule name, empty or null for terminals
+     * @return rule id
+     */
+    public int getRuleId(String name) {
+        if (name == null || name.isEmpty())
+            return NO_RULE;
+        Integer id = ids.get(name);
+        if (id == null)
+            throw new IllegalArgumentException("unknown rule " + name);
+        return id;
+    }
+
+    /**
+     * get the name of a rule id
+     *
+     * @param id rule id
+     * @return rule name, the empty string for terminals
+     */
+    public String getRuleName(int id) {
+        if (id == NO_RULE)
+            return "";
+        if (id < 0 || id >= names.length)
+            throw new IllegalArgumentException("unknown rule id " + id);
+        return names[id];
+    }
+
+    /**
+     * get the symbolic name of a token type, e.g. 'SEMI'
+     *
+     * @param ttype token type
+     * @return symbolic name or null if there is none
+     */
+    public String getTokenName(int ttype) {
+        return tokens.getSymbolicName(ttype);
+    }
+
+    /**
+     * get the token vocabulary of the grammar
+     *
+     * @return token vocabulary
+     */
+    public Vocabulary getTokenVocabulary() {
+        return tokens;
+    }
+}
@@ -36,6 +36,7 @@ public class XmlProcessor extends ParseTreeProcessor<StringBuilder, StringBuilde
     private static final Logger LOGGER = LoggerFactory.getLogger(XmlProcessor.class);
 
     private boolean idxOnly = false;
+    private boolean ruleIds = false;
 
     /**
      * constructor
@@ -44,8 +45,24 @@ public class XmlProcessor extends ParseTreeProcessor<StringBuilder, StringBuilde
      * @param idxOnly print index only
      */
     public XmlProcessor(ParseTree parseTree, boolean idxOnly) {
+        this(parseTree, idxOnly, false);
+    }
+
+    /**
+     * constructor
+     *
+     * @param parseTree abstract syntax tree to process
+     * @param idxOnly   print index only
+     * @param ruleIds   print rule ids instead of rule names; the names are
+     *                  printed once in a 'rules' element whose 'r' children
+     *                  are indexed by the ids, and the tree is wrapped in a
+     *                  'tree' element
+     */
+    public XmlProcessor(ParseTree parseTree, boolean idxOnly, boolean
+            ruleIds) {
         super(parseTree);
         this.idxOnly = idxOnly;
+        this.ruleIds = ruleIds;
     }
 
     /**
@@ -61,6 +78,18 @@ public class XmlProcessor extends ParseTreeProcessor<StringBuilder, StringBuilde
     @Override
     public StringBuilder getResult() {
         StringBuilder root = smap.get(parseTree.getRoot());
+        if (ruleIds) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("<tree><rules>");
+            for (int i = 0; i < parseTree.getRuleIdCount(); i++) {
+                sb.append("<r>");
+                sb.append(StringEscapeUtils.escapeXml10(parseTree.getRuleName(i)));
+                sb.append("</r>");
+            }
+            sb.append("</rules>");
+            root.insert(0, sb);
+            root.append("</tree>");
+        }
         root.insert(0,"<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
         return root;
     }
@@ -81,9 +110,15 @@ public class XmlProcessor extends ParseTreeProcessor<StringBuilder, StringBuilde
         }
 
         sb.append("<nt>");
-        sb.append("<name>");
-        sb.append(n.getRule());
-        sb.append("</name>");
+        if (ruleIds) {
+            sb.append("<rule>");
+            sb.append(n.getRuleIndex());
+            sb.append("</rule>");
+        } else {
+            sb.append("<name>");
+            sb.append(n.getRule());
+            sb.append("</name>");
+        }
         sb.append("<ran>");
         sb.append(n.getSidx());
         sb.append(",");
@@ -59,10 +59,10 @@ public enum ParseTreeManipulator {
 
         switch (injectionPoint.getPosition()) {
             case BEFORE:
-                par.getChildren().add(pos, nn);
+                par.addChild(pos, nn);
                 break;
             case AFTER:
-                par.getChildren().add(pos + 1, nn);
+                par.addChild(pos + 1, nn);
                 break;
         }
 
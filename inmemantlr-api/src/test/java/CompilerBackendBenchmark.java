@@ -0,0 +1,99 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.comp.CompilerBackend;
+import org.snt.inmemantlr.comp.JavacBackend;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+
+import java.io.File;
+
+/**
+ * compile latency and parse throughput of the compiler backends; this is
+ * a benchmark harness that is started by hand with the test class path
+ * and not part of the unit tests (see {@link TestCompilerBackend} for the
+ * correctness check)
+ */
+public class CompilerBackendBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger
+            (CompilerBackendBenchmark.class);
+
+    private static final int PARSES = 500;
+
+    private static File[] files() {
+        ClassLoader cl = CompilerBackendBenchmark.class.getClassLoader();
+        return new File[]{
+                new File(cl.getResource("inmemantlr/MySQLLexer.g4")
+                        .getFile()),
+                new File(cl.getResource("inmemantlr/MySQLParser.g4")
+                        .getFile())
+        };
+    }
+
+    /**
+     * compile the MySQL grammar with a backend and parse a statement
+     * repeatedly; compile latency and parse throughput are logged
+     */
+    private static void run(CompilerBackend backend, boolean parallel)
+            throws Exception {
+        GenericParser gp = new GenericParser(files());
+        gp.setCompilerBackend(backend);
+        gp.setParallelCompilation(parallel);
+
+        long t0 = System.nanoTime();
+        gp.compile();
+        long compile = System.nanoTime() - t0;
+
+        gp.setListener(new DefaultTreeListener());
+        t0 = System.nanoTime();
+        for (int i = 0; i < PARSES; i++) {
+            gp.parse("select a from b" + i + ";");
+        }
+        long parse = System.nanoTime() - t0;
+
+        LOGGER.info("{}{}: compile {} ms, {} parses/s", backend.getName(),
+                parallel ? " (parallel)" : "", compile / 1000000, PARSES *
+                        1000000000L / parse);
+    }
+
+    public static void main(String[] args) throws Exception {
+        // warm-up
+        run(CompilerBackend.ECJ, false);
+
+        run(CompilerBackend.ECJ, false);
+        run(CompilerBackend.ECJ, true);
+        if (((JavacBackend) CompilerBackend.JAVAC).isAvailable()) {
+            run(CompilerBackend.JAVAC, false);
+            run(CompilerBackend.JAVAC, true);
+        } else {
+            LOGGER.info("{} is not available", CompilerBackend.JAVAC
+                    .getName());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.metrics.HistogramMetricsCollector;
+import org.snt.inmemantlr.metrics.MetricsCollector;
+import org.snt.inmemantlr.service.ParseResult;
+import org.snt.inmemantlr.service.ParserService;
+import org.snt.inmemantlr.utils.FileUtils;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * load run of the parser service with thousands of parses in flight at
+ * once on a single thread and on a pool of threads; this is a benchmark
+ * harness that is started by hand with the test class path and not part
+ * of the unit tests (see {@link TestParserService})
+ */
+public class ParserServiceLoadBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger
+            (ParserServiceLoadBenchmark.class);
+
+    private static final int PARSES = 5000;
+
+    private static String document(int i) {
+        StringBuilder sb = new StringBuilder();
+        for (int j = 0; j <= i % 10; j++) {
+            sb.append("PRINT a").append(i).append(" + b").append(j)
+                    .append("\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * submit n parses at once and wait for all of them
+     *
+     * @return elapsed time in nanoseconds
+     */
+    private static long load(ParserService service, int threads, int n) {
+        ExecutorService ex = Executors.newFixedThreadPool(threads);
+        try {
+            List<CompletableFuture<ParseResult>> fs = new ArrayList<>(n);
+            long t0 = System.nanoTime();
+            // all parses are in flight at once
+            for (int i = 0; i < n; i++) {
+                fs.add(service.parseAsync("simple", document(i), null, ex));
+            }
+            CompletableFuture.allOf(fs.toArray(new CompletableFuture[0]))
+                    .join();
+            return System.nanoTime() - t0;
+        } finally {
+            ex.shutdown();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        ParserService service = new ParserService();
+        try (InputStream sgrammar = ParserServiceLoadBenchmark.class
+                .getClassLoader().getResourceAsStream("inmemantlr/Simple.g4")) {
+            GenericParser gp = new GenericParser(FileUtils
+                    .getStringFromStream(sgrammar));
+            gp.compile();
+            service.register("simple", gp);
+        }
+
+        HistogramMetricsCollector mc = new HistogramMetricsCollector();
+        service.setMetricsCollector(mc);
+
+        // warm up the shared DFA caches first
+        load(service, 1, 200);
+
+        for (int threads : new int[]{1, 32}) {
+            mc.reset();
+            long t = load(service, threads, PARSES);
+            LOGGER.info("{} parses on {} thread(s): {} ms, parse phase " +
+                    "p50 {} us, p99 {} us", PARSES, threads, t / 1000000, mc
+                    .getHistogram(MetricsCollector.Phase.PARSE)
+                    .getPercentile(50) / 1000, mc.getHistogram
+                    (MetricsCollector.Phase.PARSE).getPercentile(99) / 1000);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+import org.snt.inmemantlr.query.Query;
+import org.snt.inmemantlr.query.QueryAutomaton;
+import org.snt.inmemantlr.tree.ParseTree;
+import org.snt.inmemantlr.tree.ParseTreeNode;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * evaluation time of a query automaton compared to the naive approach of
+ * copying subtrees with {@link ParseTree#getSubtrees}; this is a benchmark
+ * harness that is started by hand with the test class path and not part
+ * of the unit tests (see {@link TestQuery} for the correctness check)
+ */
+public class QueryBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger
+            (QueryBenchmark.class);
+
+    private static final int RUNS = 20;
+
+    private static ParseTree parse() throws Exception {
+        File grammar = new File(QueryBenchmark.class.getClassLoader()
+                .getResource("inmemantlr/Java.g4").getFile());
+
+        StringBuilder sb = new StringBuilder("public class Loops {\n");
+        for (int i = 0; i < 200; i++) {
+            sb.append("  int m").append(i).append("(int i) {\n")
+                    .append("    while (i < ").append(i).append(") {\n")
+                    .append("      i = i + 1;\n")
+                    .append("      foo(i * 2);\n")
+                    .append("    }\n")
+                    .append("    return i;\n")
+                    .append("  }\n");
+        }
+        sb.append("}\n");
+
+        GenericParser gp = new GenericParser(grammar);
+        gp.compile();
+        DefaultTreeListener dlist = new DefaultTreeListener(true);
+        gp.setListener(dlist);
+        gp.parse(sb.toString());
+        return dlist.getParseTree();
+    }
+
+    public static void main(String[] args) throws Exception {
+        ParseTree pt = parse();
+        String[] rules = {"statement", "methodDeclaration", "block",
+                "formalParameter"};
+
+        QueryAutomaton qa = new QueryAutomaton(
+                Query.compile("//statement//expression"),
+                Query.compile("//methodDeclaration//expression"),
+                Query.compile("//block//expression"),
+                Query.compile("//formalParameter//expression"));
+
+        List<List<ParseTreeNode>> res = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            res = qa.evaluate(pt);
+        }
+        long automaton = System.nanoTime() - start;
+
+        List<Set<Integer>> naive = null;
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            naive = new ArrayList<>();
+            for (String r : rules) {
+                Set<Integer> ids = new HashSet<>();
+                for (ParseTree st : pt.getSubtrees(n -> r.equals(n.getRule()))) {
+                    st.getSubtrees(n -> "expression".equals(n.getRule()) &&
+                            n != st.getRoot()).forEach(e -> ids.add(e
+                            .getRoot().getId()));
+                }
+                naive.add(ids);
+            }
+        }
+        long copying = System.nanoTime() - start;
+
+        int matches = 0;
+        for (int i = 0; i < rules.length; i++) {
+            matches += res.get(i).size();
+            if (res.get(i).size() != naive.get(i).size())
+                LOGGER.warn("{}: automaton found {}, getSubtrees {}",
+                        rules[i], res.get(i).size(), naive.get(i).size());
+        }
+
+        LOGGER.info("{} nodes, {} queries, {} matches, {} runs: automaton " +
+                        "{} ms, getSubtrees {} ms", pt.getNodes().size(),
+                rules.length, matches, RUNS, automaton / 1000000, copying /
+                        1000000);
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.exceptions.CompilationException;
+import org.snt.inmemantlr.exceptions.ParsingException;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+import org.snt.inmemantlr.tree.ParseTree;
+import org.snt.inmemantlr.tree.ParseTreeNode;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+public class TestChunkedParsing {
+
+    private static final String GRAMMAR = "grammar Stmts;\n" +
+            "script : stmt* EOF ;\n" +
+            "stmt : ID '=' expr SEMI ;\n" +
+            "expr : expr '+' expr | INT | ID ;\n" +
+            "SEMI : ';' ;\n" +
+            "ID : [a-z]+ ;\n" +
+            "INT : [0-9]+ ;\n" +
+            "WS : [ \\t\\r\\n]+ -> skip ;\n";
+
+    private static GenericParser compile() throws CompilationException {
+        GenericParser gp = new GenericParser(GRAMMAR);
+        gp.compile();
+        return gp;
+    }
+
+    private static String script(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append("v").append((char) ('a' + i % 26)).append(" = ")
+                    .append(i).append(" + x + ").append(i * 7).append(";\n");
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testStitchedTree() throws Exception {
+        GenericParser gp = compile();
+        String s = script(500);
+
+        DefaultTreeListener dt = new DefaultTreeListener(true);
+        gp.setListener(dt);
+        gp.parse(s, "script", GenericParser.CaseSensitiveType.NONE);
+        List<ParseTreeNode> expected = dt.getParseTree().getNodesByRule
+                ("stmt");
+
+        int semi = gp.getTokenType("SEMI");
+        Assertions.assertEquals(semi, gp.getTokenType("';'"));
+
+        ExecutorService ex = Executors.newFixedThreadPool(4);
+        ParseTree pt;
+        try {
+            pt = gp.parseChunked(s, semi, "stmt", ex, () -> new
+                    DefaultTreeListener(true));
+            // the result does not depend on the number of parser tasks
+            for (int p : new int[]{1, 3}) {
+                Assertions.assertEquals(pt.getNodes().size(), gp
+                        .parseChunked(s, semi, "stmt", ex, () -> new
+                                DefaultTreeListener(true), p).getNodes()
+                        .size());
+            }
+            Assertions.assertThrows(IllegalArgumentException.class, () ->
+                    gp.parseChunked(s, semi, "stmt", ex,
+                            DefaultTreeListener::new, 0));
+        } finally {
+            ex.shutdown();
+        }
+
+        Assertions.assertSame(dt.getParseTree().getVocabulary(), pt
+                .getVocabulary());
+        List<ParseTreeNode> stmts = pt.getRoot().getChildren();
+        Assertions.assertEquals(500, stmts.size());
+        Assertions.assertEquals(expected.size(), stmts.size());
+        for (int i = 0; i < stmts.size(); i++) {
+            ParseTreeNode a = expected.get(i);
+            ParseTreeNode b = stmts.get(i);
+            Assertions.assertEquals("stmt", b.getRule());
+            Assertions.assertEquals(a.getLabel(), b.getLabel());
+            Assertions.assertEquals(a.getSidx(), b.getSidx());
+            Assertions.assertEquals(a.getEidx(), b.getEidx());
+            Assertions.assertEquals(a.getLabel().replace(" ", ""), s
+                    .substring(b.getSidx(), b.getEidx() + 1).replace(" ", ""));
+        }
+        // no EOF nodes from the chunks
+        Assertions.assertEquals(dt.getParseTree().getNodes().size() - 2,
+                pt.getNodes().size());
+        Assertions.assertFalse(gp.getErrorListener().hasErrors());
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        GenericParser gp = compile();
+        String s = "a = 1;\nb = ;\n;;\nc = 2 + a;\nd = 3 +;";
+        int semi = gp.getTokenType("SEMI");
+
+        Assertions.assertThrows(ParsingException.class, () -> gp
+                .parseChunked(s, semi, "stmt"));
+        Assertions.assertEquals(2, gp.getErrorListener().getErrors().size());
+        Assertions.assertEquals(2, gp.getErrorListener().getErrors().get(0)
+                .getLine());
+        Assertions.assertEquals(5, gp.getErrorListener().getErrors().get(1)
+                .getLine());
+
+        gp.setErrorTolerant(true);
+        try {
+            ParseTree pt = gp.parseChunked(s, semi, "stmt");
+            // the empty statements are skipped
+            Assertions.assertEquals(4, pt.getRoot().getChildren().size());
+            Assertions.assertEquals(2, pt.getErrorNodes().size());
+        } finally {
+            gp.setErrorTolerant(false);
+        }
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> gp
+                .getTokenType("NOPE"));
+        // unknown productions are reported whatever the input
+        for (String in : new String[]{s, "", ";;"}) {
+            Assertions.assertThrows(IllegalArgumentException.class, () ->
+                    gp.parseChunked(in, semi, "nope"));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.comp.CompilerBackend;
+import org.snt.inmemantlr.comp.JavacBackend;
+import org.snt.inmemantlr.exceptions.CompilationException;
+import org.snt.inmemantlr.exceptions.IllegalWorkflowException;
+import org.snt.inmemantlr.exceptions.ParsingException;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+import org.snt.inmemantlr.tree.ParseTree;
+import org.snt.inmemantlr.utils.FileUtils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+public class TestCompilerBackend {
+
+    private File[] files() {
+        return new File[]{
+                new File(getClass().getClassLoader().getResource
+                        ("inmemantlr/MySQLLexer.g4").getFile()),
+                new File(getClass().getClassLoader().getResource
+                        ("inmemantlr/MySQLParser.g4").getFile())
+        };
+    }
+
+    private static ParseTree compileAndParse(CompilerBackend backend,
+                                             boolean parallel) throws
+            IOException, CompilationException, IllegalWorkflowException,
+            ParsingException {
+        GenericParser gp;
+        try (InputStream sgrammar = TestCompilerBackend.class
+                .getClassLoader().getResourceAsStream("inmemantlr/Simple.g4")) {
+            gp = new GenericParser(FileUtils.getStringFromStream(sgrammar));
+        }
+        gp.setCompilerBackend(backend);
+        gp.setParallelCompilation(parallel);
+        gp.compile();
+
+        DefaultTreeListener t = new DefaultTreeListener();
+        gp.setListener(t);
+        gp.parse("PRINT a+b");
+        return t.getParseTree();
+    }
+
+    @Test
+    public void testBackends() throws Exception {
+        ParseTree expected = compileAndParse(CompilerBackend.ECJ, false);
+        Assertions.assertEquals(1, expected.getNodesByRule("expression")
+                .size());
+        Assertions.assertEquals(expected, compileAndParse(CompilerBackend
+                .ECJ, true));
+        if (((JavacBackend) CompilerBackend.JAVAC).isAvailable()) {
+            Assertions.assertEquals(expected, compileAndParse
+                    (CompilerBackend.JAVAC, false));
+            Assertions.assertEquals(expected, compileAndParse
+                    (CompilerBackend.JAVAC, true));
+        }
+    }
+
+    @Test
+    public void testConcurrentCompilation() throws Exception {
+        ExecutorService ex = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> fs = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String g = "grammar Conc" + i + ";\n" +
+                        "s : ID+ EOF ;\n" +
+                        "ID : [a-z]+ ;\n" +
+                        "WS : [ \\t\\r\\n]+ -> skip ;\n";
+                fs.add(ex.submit(() -> {
+                    GenericParser gp = new GenericParser(g);
+                    gp.compile();
+                    gp.parse("a b c");
+                    return null;
+                }));
+            }
+            // concurrent compilations must not fail to resolve class path
+            // types
+            for (Future<?> f : fs) {
+                f.get();
+            }
+        } finally {
+            ex.shutdown();
+        }
+    }
+
+    @Test
+    public void testCompilationError() throws FileNotFoundException {
+        GenericParser gp = new GenericParser(files());
+        gp.setCompilerBackend(CompilerBackend.JAVAC);
+        gp.setParallelCompilation(true);
+        gp.setClassPath(Collections.singletonList("/nonexistent"));
+        Assertions.assertThrows(CompilationException.class, gp::compile);
+    }
+}
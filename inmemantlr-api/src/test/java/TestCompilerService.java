@@ -0,0 +1,114 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.comp.CompilerService;
+import org.snt.inmemantlr.exceptions.CompilationException;
+import org.snt.inmemantlr.exceptions.IllegalWorkflowException;
+import org.snt.inmemantlr.exceptions.ParsingException;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+public class TestCompilerService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestCompilerService.class);
+
+    private static String grammar(int rev) {
+        return "grammar Rev" + rev + ";\n" +
+                "s : item+ EOF ;\n" +
+                "item : ID | INT" + rev + " ;\n" +
+                "ID : [a-z]+ ;\n" +
+                "INT" + rev + " : [0-9]+ ;\n" +
+                "WS : [ \\t\\r\\n]+ -> skip ;\n";
+    }
+
+    private static long compileAndParse(int rev, CompilerService cs) throws
+            CompilationException, IllegalWorkflowException, ParsingException {
+        GenericParser gp = new GenericParser(grammar(rev));
+        gp.setCompilerService(cs);
+        long t0 = System.nanoTime();
+        gp.compile();
+        long t = System.nanoTime() - t0;
+        DefaultTreeListener dt = new DefaultTreeListener();
+        gp.setListener(dt);
+        gp.parse("a 1 b " + rev);
+        Assertions.assertEquals(4, dt.getParseTree().getNodesByRule("item")
+                .size());
+        return t;
+    }
+
+    @Test
+    public void testWarmCompiler() throws Exception {
+        CompilerService cs = new CompilerService(2);
+        try {
+            int n = 6;
+            long cold = 0;
+            long warm = 0;
+            for (int i = 0; i < n; i++) {
+                cold += compileAndParse(i, null);
+                warm += compileAndParse(100 + i, cs);
+            }
+            LOGGER.info("{} compilations: fresh compiler {} ms, warm " +
+                    "compiler {} ms", n, cold / 1000000, warm / 1000000);
+            Assertions.assertEquals(n, cs.getCompilations());
+            Assertions.assertEquals(1, cs.getWorkers());
+            Assertions.assertTrue(cs.getListingHits() > 0);
+
+            ExecutorService ex = Executors.newFixedThreadPool(4);
+            try {
+                List<CompletableFuture<Long>> fs = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    int rev = 200 + i;
+                    fs.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return compileAndParse(rev, cs);
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }, ex));
+                }
+                fs.forEach(CompletableFuture::join);
+            } finally {
+                ex.shutdown();
+            }
+            Assertions.assertEquals(n + 8, cs.getCompilations());
+            Assertions.assertTrue(cs.getWorkers() <= 2);
+        } finally {
+            cs.close();
+        }
+        Assertions.assertEquals(0, cs.getWorkers());
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.exceptions.CompilationException;
+import org.snt.inmemantlr.exceptions.IllegalWorkflowException;
+import org.snt.inmemantlr.exceptions.ParsingException;
+import org.snt.inmemantlr.listener.CompositeListener;
+import org.snt.inmemantlr.listener.DefaultListener;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+import org.snt.inmemantlr.tree.ParseTree;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+
+public class TestCompositeListener {
+
+    static File grammar = null;
+    static File sfile = null;
+
+    static {
+        ClassLoader classLoader = TestCompositeListener.class.getClassLoader();
+        grammar = new File(classLoader.getResource("inmemantlr/Java.g4")
+                .getFile());
+        sfile = new File(classLoader.getResource("inmemantlr/HelloWorld.java")
+                .getFile());
+    }
+
+    private static class Counter extends DefaultListener {
+
+        private static final long serialVersionUID = 1L;
+
+        int enter = 0;
+        int exit = 0;
+        int terminals = 0;
+        boolean foreign = false;
+
+        @Override
+        public void enterEveryRule(ParserRuleContext ctx) {
+            enter++;
+            foreign |= !"expression".equals(getRuleByKey(ctx
+                    .getRuleIndex()));
+        }
+
+        @Override
+        public void exitEveryRule(ParserRuleContext ctx) {
+            exit++;
+        }
+
+        @Override
+        public void visitTerminal(TerminalNode terminalNode) {
+            terminals++;
+        }
+
+        @Override
+        public void reset() {
+            enter = exit = terminals = 0;
+            foreign = false;
+        }
+    }
+
+    @Test
+    public void testDispatch() throws FileNotFoundException,
+            CompilationException, IllegalWorkflowException, ParsingException {
+        GenericParser gp = new GenericParser(grammar);
+        gp.compile();
+
+        for (boolean parseTime : new boolean[]{false, true}) {
+            gp.setParseTimeListener(parseTime);
+            DefaultTreeListener single = new DefaultTreeListener(true);
+            gp.setListener(single);
+            gp.parse(sfile);
+            ParseTree expected = single.getParseTree();
+
+            DefaultTreeListener dlist = new DefaultTreeListener(true);
+            Counter all = new Counter();
+            Counter expr = new Counter();
+            CompositeListener cl = new CompositeListener(dlist, all);
+            cl.addListener(expr, "expression");
+            gp.setListener(cl);
+            gp.parse(sfile);
+
+            ParseTree pt = dlist.getParseTree();
+            Assertions.assertEquals(expected, pt);
+
+            Assertions.assertEquals(pt.getNodes().stream().filter(n -> !n
+                    .isTerminal()).count() - 1, all.enter);
+            Assertions.assertEquals(all.enter, all.exit);
+            Assertions.assertEquals(pt.getNodes().stream().filter
+                    (n -> n.isTerminal()).count(), all.terminals);
+
+            Assertions.assertFalse(expr.foreign);
+            Assertions.assertEquals(pt.getNodesByRule("expression").size(),
+                    expr.enter);
+            Assertions.assertEquals(expr.enter, expr.exit);
+            // terminals of expression contexts only
+            Assertions.assertTrue(expr.terminals > 0);
+            Assertions.assertTrue(expr.terminals < all.terminals);
+        }
+    }
+
+    @Test
+    public void testUnknownRule() throws FileNotFoundException,
+            CompilationException {
+        GenericParser gp = new GenericParser(grammar);
+        gp.compile();
+
+        CompositeListener cl = new CompositeListener();
+        cl.addListener(new DefaultListener(), "nosuchrule");
+        gp.setListener(cl);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> gp
+                .parse(sfile));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> cl
+                .addListener(new DefaultListener(), new String[0]));
+    }
+}
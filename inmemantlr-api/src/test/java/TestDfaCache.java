@@ -0,0 +1,128 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.cache.BoundedDfaCachePolicy;
+import org.snt.inmemantlr.cache.PeriodicDfaCachePolicy;
+import org.snt.inmemantlr.cache.TenantDfaCachePolicy;
+import org.snt.inmemantlr.exceptions.CompilationException;
+import org.snt.inmemantlr.exceptions.IllegalWorkflowException;
+import org.snt.inmemantlr.exceptions.ParsingException;
+import org.snt.inmemantlr.utils.FileUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+
+public class TestDfaCache {
+
+    private GenericParser gp = null;
+    private String hello = null;
+
+    private void compile() throws IOException, CompilationException {
+        ClassLoader cl = TestDfaCache.class.getClassLoader();
+        try (InputStream g = cl.getResourceAsStream("inmemantlr/Java.g4");
+             InputStream s = cl.getResourceAsStream("inmemantlr/HelloWorld.java")) {
+            gp = new GenericParser(FileUtils.getStringFromStream(g));
+            hello = FileUtils.getStringFromStream(s);
+        }
+        gp.compile();
+    }
+
+    private void parse() throws IllegalWorkflowException,
+            ParsingException {
+        gp.parse(hello, "compilationUnit", GenericParser.CaseSensitiveType.NONE);
+    }
+
+    @Test
+    public void testPolicies() throws Exception {
+        compile();
+        // static caches
+        gp.setDfaCachePolicy(null);
+        parse();
+        Assertions.assertTrue(gp.getParserDfaStates() > 0);
+        Assertions.assertTrue(gp.getLexerDfaStates() > 0);
+        Assertions.assertTrue(gp.getSharedContextCacheSize() > 0);
+
+        gp.clearSharedCaches();
+        Assertions.assertEquals(0, gp.getParserDfaStates());
+        Assertions.assertEquals(0, gp.getLexerDfaStates());
+        Assertions.assertEquals(0, gp.getSharedContextCacheSize());
+
+        // cap by state count
+        BoundedDfaCachePolicy bounded = new BoundedDfaCachePolicy(1);
+        gp.setDfaCachePolicy(bounded);
+        parse();
+        Assertions.assertEquals(1, bounded.getCache().getClears());
+        Assertions.assertEquals(0, bounded.getCache().getStates());
+
+        bounded = new BoundedDfaCachePolicy(Long.MAX_VALUE);
+        gp.setDfaCachePolicy(bounded);
+        parse();
+        Assertions.assertEquals(0, bounded.getCache().getClears());
+        Assertions.assertTrue(bounded.getCache().getParserStates() > 0);
+        Assertions.assertEquals(bounded.getCache().getParserStates(), gp
+                .getParserDfaStates());
+
+        // periodic clear
+        PeriodicDfaCachePolicy periodic = new PeriodicDfaCachePolicy(2);
+        gp.setDfaCachePolicy(periodic);
+        parse();
+        Assertions.assertTrue(periodic.getCache().getStates() > 0);
+        parse();
+        Assertions.assertEquals(1, periodic.getCache().getClears());
+        Assertions.assertEquals(0, periodic.getCache().getStates());
+
+        // per-tenant caches
+        TenantDfaCachePolicy tenants = new TenantDfaCachePolicy();
+        gp.setDfaCachePolicy(tenants);
+        gp.setTenant("a");
+        parse();
+        long sa = gp.getParserDfaStates();
+        Assertions.assertTrue(sa > 0);
+        gp.setTenant("b");
+        Assertions.assertEquals(0, gp.getParserDfaStates());
+        parse();
+        Assertions.assertEquals(sa, gp.getParserDfaStates());
+        Assertions.assertEquals(2, tenants.getTenants().size());
+        Assertions.assertEquals(2 * sa, tenants.getStates() - tenants
+                .getCache("a").getLexerStates() - tenants.getCache("b")
+                .getLexerStates());
+        tenants.remove("a");
+        Assertions.assertEquals(1, tenants.getTenants().size());
+        gp.setTenant(null);
+
+        // none of the above touched the static caches
+        gp.setDfaCachePolicy(null);
+        Assertions.assertEquals(0, gp.getParserDfaStates());
+        Assertions.assertEquals(0, gp.getLexerDfaStates());
+        parse();
+        Assertions.assertTrue(gp.getParserDfaStates() > 0);
+        Assertions.assertTrue(gp.getLexerDfaStates() > 0);
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.tree.ErrorNodeImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.exceptions.CompilationException;
+import org.snt.inmemantlr.exceptions.IllegalWorkflowException;
+import org.snt.inmemantlr.exceptions.ParsingException;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+import org.snt.inmemantlr.tool.InmemantlrErrorListener;
+import org.snt.inmemantlr.tool.ParseError;
+import org.snt.inmemantlr.tree.ParseTree;
+import org.snt.inmemantlr.tree.ParseTreeNode;
+import org.snt.inmemantlr.utils.FileUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.stream.Collectors;
+
+
+public class TestErrorCollection {
+
+    private static GenericParser compile() throws IOException,
+            CompilationException {
+        GenericParser gp;
+        try (InputStream sgrammar = TestErrorCollection.class.getClassLoader()
+                .getResourceAsStream("inmemantlr/Simple.g4")) {
+            gp = new GenericParser(FileUtils.getStringFromStream(sgrammar));
+        }
+        gp.compile();
+        return gp;
+    }
+
+    private static ParsingException parse(GenericParser gp, String s) throws
+            IllegalWorkflowException {
+        try {
+            gp.parse(s);
+        } catch (ParsingException e) {
+            return e;
+        }
+        return null;
+    }
+
+    @Test
+    public void testAllErrorsKept() throws Exception {
+        GenericParser gp = compile();
+        gp.setMaxErrors(InmemantlrErrorListener.DEFAULT_MAX_ERRORS);
+        gp.setFailFastThreshold(0);
+
+        ParsingException e = parse(gp, "PRINT a+b # # # #");
+        Assertions.assertNotNull(e);
+        Assertions.assertEquals(4, e.getErrors().size());
+        for (ParseError err : e.getErrors()) {
+            Assertions.assertEquals(ParseError.Source.LEXER, err.getSource());
+            Assertions.assertEquals(1, err.getLine());
+        }
+        Assertions.assertEquals(10, e.getErrors().get(0).getColumn());
+        Assertions.assertEquals(16, e.getErrors().get(3).getColumn());
+
+        e = parse(gp, "PRINT PRINT a+b");
+        Assertions.assertNotNull(e);
+        ParseError err = e.getErrors().get(0);
+        Assertions.assertEquals(ParseError.Source.PARSER, err.getSource());
+        Assertions.assertEquals("PRINT", err.getOffendingText());
+        Assertions.assertEquals(6, err.getStartIdx());
+        Assertions.assertFalse(err.getRuleStack().isEmpty());
+
+        Assertions.assertNull(parse(gp, "PRINT a+b"));
+        Assertions.assertFalse(gp.getErrorListener().hasErrors());
+    }
+
+    @Test
+    public void testBoundedErrors() throws Exception {
+        GenericParser gp = compile();
+        gp.setMaxErrors(2);
+        gp.setFailFastThreshold(0);
+
+        ParsingException e = parse(gp, "PRINT a+b # # # #");
+        Assertions.assertNotNull(e);
+        Assertions.assertEquals(2, e.getErrors().size());
+        Assertions.assertEquals(4, gp.getErrorListener().getCount
+                (InmemantlrErrorListener.Type.SYNTAX_ERROR));
+        Assertions.assertTrue(e.getMessage().contains("2 more"));
+    }
+
+    @Test
+    public void testFailFast() throws Exception {
+        GenericParser gp = compile();
+        gp.setMaxErrors(InmemantlrErrorListener.DEFAULT_MAX_ERRORS);
+        gp.setFailFastThreshold(2);
+
+        ParsingException e = parse(gp, "PRINT a+b # # # #");
+        Assertions.assertNotNull(e);
+        Assertions.assertEquals(2, e.getErrors().size());
+
+        e = parse(gp, "PRINT PRINT PRINT PRINT PRINT a+b");
+        Assertions.assertNotNull(e);
+        Assertions.assertEquals(2, e.getErrors().size());
+    }
+
+    @Test
+    public void testErrorTolerant() throws Exception {
+        GenericParser gp = compile();
+        gp.setMaxErrors(InmemantlrErrorListener.DEFAULT_MAX_ERRORS);
+        gp.setFailFastThreshold(0);
+
+        DefaultTreeListener dl = new DefaultTreeListener();
+        gp.setListener(dl);
+        gp.setErrorTolerant(true);
+        try {
+            Assertions.assertNotNull(gp.parse("PRINT a+b PRINT PRINT c-d # " +
+                    "PRINT e+f"));
+
+            Assertions.assertTrue(gp.getErrorListener().hasErrors());
+            List<ParseError> errs = gp.getErrorListener().getErrors();
+            Assertions.assertEquals(2, errs.size());
+            // the input is lexed completely before it is parsed
+            Assertions.assertEquals(ParseError.Source.LEXER, errs.get(0)
+                    .getSource());
+            Assertions.assertEquals(ParseError.Source.PARSER, errs.get(1)
+                    .getSource());
+
+            ParseTree pt = dl.getParseTree();
+            List<String> exprs = pt.getNodes().stream().filter(n -> n
+                    .getRule().equals("expression")).map
+                    (ParseTreeNode::getLabel).collect(Collectors.toList());
+            Assertions.assertTrue(exprs.contains("a+b"));
+            Assertions.assertTrue(exprs.contains("c-d"));
+            Assertions.assertTrue(exprs.contains("e+f"));
+
+            List<ParseTreeNode> enodes = pt.getErrorNodes();
+            Assertions.assertFalse(enodes.isEmpty());
+            for (ParseTreeNode n : enodes) {
+                Assertions.assertTrue(n.isError());
+            }
+            // error flags survive copies
+            Assertions.assertEquals(enodes.size(), new ParseTree(pt)
+                    .getErrorNodes().size());
+
+            // a well-formed input does not produce error nodes
+            gp.parse("PRINT a+b");
+            Assertions.assertFalse(gp.getErrorListener().hasErrors());
+            Assertions.assertTrue(dl.getParseTree().getErrorNodes().isEmpty());
+        } finally {
+            gp.setErrorTolerant(false);
+        }
+
+        Assertions.assertNotNull(parse(gp, "PRINT a+b PRINT PRINT c-d"));
+    }
+
+    @Test
+    public void testErrorNodeMode() {
+        ErrorNodeImpl err = new ErrorNodeImpl(new CommonToken(1, "#"));
+
+        // rule-only trees of strict parses do not get error leaves
+        DefaultTreeListener dl = new DefaultTreeListener();
+        dl.visitErrorNode(err);
+        Assertions.assertFalse(dl.getParseTree().getRoot().hasChildren());
+
+        dl.setErrorTolerant(true);
+        dl.visitErrorNode(err);
+        Assertions.assertEquals(1, dl.getParseTree().getErrorNodes().size());
+
+        dl = new DefaultTreeListener(true);
+        dl.visitErrorNode(err);
+        Assertions.assertEquals(1, dl.getParseTree().getErrorNodes().size());
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.GrammarLibrary;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+import org.snt.inmemantlr.memobjects.MemoryTuple;
+
+import java.io.File;
+import java.nio.file.Files;
+
+
+public class TestGrammarLibrary {
+
+    private File resource(String name) {
+        return new File(getClass().getClassLoader().getResource
+                ("inmemantlr/" + name).getFile());
+    }
+
+    @Test
+    public void testSharedLexer() throws Exception {
+        GrammarLibrary lib = new GrammarLibrary();
+        Assertions.assertEquals("MySQLLexer", lib.addLexer(resource
+                ("MySQLLexer.g4")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> lib
+                .addLexer(resource("MySQLLexer.g4")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> lib
+                .addLexer(resource("MySQLParser.g4")));
+
+        GenericParser gp1 = new GenericParser(lib, resource("MySQLParser.g4"));
+        gp1.compile();
+        GenericParser gp2 = new GenericParser(lib, resource("MySQLParser.g4"));
+        gp2.compile();
+
+        // the lexer is neither generated nor compiled for the parsers
+        for (MemoryTuple tup : gp1.getAllCompiledObjects()) {
+            Assertions.assertFalse(tup.getClassName().endsWith("Lexer"));
+        }
+        Class<?> lexer = lib.getLexerClass("MySQLLexer");
+        Assertions.assertNotNull(lexer);
+        Assertions.assertSame(lexer, gp1.getLexerClass());
+        Assertions.assertSame(lexer, gp2.getLexerClass());
+
+        for (GenericParser gp : new GenericParser[]{gp1, gp2}) {
+            DefaultTreeListener t = new DefaultTreeListener();
+            gp.setListener(t);
+            gp.parse("select a from b;");
+            Assertions.assertEquals(1, t.getParseTree().getNodesByRule
+                    ("select_clause").size());
+        }
+
+        // stored parsers include the linked lexer
+        File file = Files.createTempFile("library", ".parser").toFile();
+        gp1.store(file.getAbsolutePath(), true);
+        GenericParser loaded = GenericParser.load(file.getAbsolutePath());
+        DefaultTreeListener t = new DefaultTreeListener();
+        loaded.setListener(t);
+        loaded.parse("select a from b;");
+        Assertions.assertEquals(1, t.getParseTree().getNodesByRule
+                ("select_clause").size());
+    }
+
+    @Test
+    public void testSharedImport() throws Exception {
+        GrammarLibrary lib = new GrammarLibrary();
+        Assertions.assertEquals("Logic", lib.addImport(resource("Logic.g4")));
+        Assertions.assertTrue(lib.getImportNames().contains("Logic"));
+
+        GenericParser gp = new GenericParser(lib, resource("Extlogic.g4"));
+        gp.compile();
+        DefaultTreeListener t = new DefaultTreeListener();
+        gp.setListener(t);
+        gp.parse("(a and b) or c", "test", GenericParser.CaseSensitiveType
+                .NONE);
+        Assertions.assertEquals(1, t.getParseTree().getNodesByRule("test")
+                .size());
+        Assertions.assertFalse(t.getParseTree().getNodesByRule("expression")
+                .isEmpty());
+    }
+}
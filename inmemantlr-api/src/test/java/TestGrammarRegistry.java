@@ -0,0 +1,150 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.exceptions.CompilationException;
+import org.snt.inmemantlr.exceptions.ParsingException;
+import org.snt.inmemantlr.service.CompiledGrammar;
+import org.snt.inmemantlr.service.GrammarRegistry;
+import org.snt.inmemantlr.utils.FileUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+public class TestGrammarRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestGrammarRegistry.class);
+
+    private static String grammar(String name) {
+        return "grammar " + name + ";\n" +
+                "s : ID+ EOF ;\n" +
+                "ID : [a-z]+ ;\n" +
+                "WS : [ \\t\\r\\n]+ -> skip ;\n";
+    }
+
+    private static String hash(String g) {
+        return GenericParser.computeGrammarHash(Collections.singleton(g));
+    }
+
+    @Test
+    public void testHitsAndEviction() throws CompilationException,
+            ParsingException {
+        GrammarRegistry reg = new GrammarRegistry(2, 0);
+        String a = grammar("A");
+        String b = grammar("B");
+        String c = grammar("C");
+
+        CompiledGrammar ga = reg.get(a);
+        Assertions.assertEquals("AParser", ga.getName());
+        Assertions.assertSame(ga, reg.get(a));
+        Assertions.assertSame(ga, reg.getByHash(hash(a)));
+        Assertions.assertEquals(1, reg.getMisses());
+        Assertions.assertEquals(1, reg.getHits());
+        Assertions.assertTrue(reg.getByteCodeSize() > 0);
+        Assertions.assertTrue(reg.getCompileTime() > 0);
+
+        reg.get(b);
+        // a is used more recently than b
+        reg.get(a);
+        reg.get(c);
+        Assertions.assertEquals(2, reg.size());
+        Assertions.assertEquals(1, reg.getEvictions());
+        Assertions.assertTrue(reg.contains(hash(a)));
+        Assertions.assertFalse(reg.contains(hash(b)));
+        Assertions.assertTrue(reg.contains(hash(c)));
+
+        Assertions.assertEquals("xy<EOF>", reg.newContext(c).parse("x y")
+                .getParseTree().getRoot().getFirstChild().getLabel());
+
+        Assertions.assertTrue(reg.remove(hash(a)));
+        Assertions.assertNull(reg.getByHash(hash(a)));
+        Assertions.assertEquals(1, reg.size());
+        LOGGER.info(reg.toString());
+
+        // a budget of one byte keeps only the latest grammar
+        GrammarRegistry small = new GrammarRegistry(10, 1);
+        small.get(a);
+        small.get(b);
+        Assertions.assertEquals(1, small.size());
+        Assertions.assertTrue(small.contains(hash(b)));
+    }
+
+    @Test
+    public void testConcurrentCompilation() throws Exception {
+        GrammarRegistry reg = new GrammarRegistry(10, 0);
+        String d = grammar("D");
+        int n = 8;
+        ExecutorService ex = Executors.newFixedThreadPool(n);
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<CompiledGrammar>> fs = new ArrayList<>();
+        try {
+            for (int i = 0; i < n; i++) {
+                fs.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        start.await();
+                        return reg.get(d);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }, ex));
+            }
+            start.countDown();
+            for (CompletableFuture<CompiledGrammar> f : fs) {
+                Assertions.assertSame(fs.get(0).join(), f.join());
+            }
+        } finally {
+            ex.shutdown();
+        }
+        Assertions.assertEquals(1, reg.getMisses());
+        Assertions.assertEquals(n - 1, reg.getHits());
+    }
+
+    @Test
+    public void testBroken() throws IOException {
+        String broken;
+        try (InputStream sgrammar = getClass().getClassLoader()
+                .getResourceAsStream("inmemantlr/Broken.g4")) {
+            broken = FileUtils.getStringFromStream(sgrammar);
+        }
+        GrammarRegistry reg = new GrammarRegistry(10, 0);
+        Assertions.assertThrows(CompilationException.class, () -> reg.get
+                (broken));
+        Assertions.assertEquals(1, reg.getFailures());
+        Assertions.assertEquals(0, reg.size());
+    }
+}
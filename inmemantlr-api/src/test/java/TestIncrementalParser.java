@@ -0,0 +1,160 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.IncrementalParser;
+import org.snt.inmemantlr.exceptions.CompilationException;
+import org.snt.inmemantlr.exceptions.IllegalWorkflowException;
+import org.snt.inmemantlr.exceptions.ParsingException;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+import org.snt.inmemantlr.token.TokenBuffer;
+import org.snt.inmemantlr.tree.ParseTree;
+import org.snt.inmemantlr.tree.ParseTreeNode;
+import org.snt.inmemantlr.utils.FileUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+
+public class TestIncrementalParser {
+
+    private GenericParser gp = null;
+    private DefaultTreeListener dl = null;
+
+    private void compile() throws IOException, CompilationException {
+        try (InputStream g = TestIncrementalParser.class.getClassLoader()
+                .getResourceAsStream("inmemantlr/Java.g4")) {
+            gp = new GenericParser(FileUtils.getStringFromStream(g));
+        }
+        gp.compile();
+        dl = new DefaultTreeListener(true);
+        gp.setListener(dl);
+    }
+
+    private static void assertSame(ParseTreeNode a, ParseTreeNode b) {
+        Assertions.assertEquals(a.getRule(), b.getRule());
+        Assertions.assertEquals(a.getLabel(), b.getLabel());
+        Assertions.assertEquals(a.getSidx(), b.getSidx());
+        Assertions.assertEquals(a.getEidx(), b.getEidx());
+        Assertions.assertEquals(a.getChildren().size(), b.getChildren().size());
+        for (int i = 0; i < a.getChildren().size(); i++) {
+            assertSame(a.getChild(i), b.getChild(i));
+        }
+    }
+
+    private void assertFullParse(IncrementalParser ip) throws
+            IllegalWorkflowException, ParsingException {
+        TokenBuffer tb = gp.tokenize(ip.getText());
+        TokenBuffer itb = ip.getTokens();
+        Assertions.assertArrayEquals(tb.getTypes(), itb.getTypes());
+        Assertions.assertArrayEquals(tb.getChannels(), itb.getChannels());
+        Assertions.assertArrayEquals(tb.getStarts(), itb.getStarts());
+        Assertions.assertArrayEquals(tb.getStops(), itb.getStops());
+        Assertions.assertArrayEquals(tb.getLines(), itb.getLines());
+        Assertions.assertArrayEquals(tb.getColumns(), itb.getColumns());
+
+        gp.parse(ip.getText(), "compilationUnit", GenericParser
+                .CaseSensitiveType.NONE);
+        ParseTree full = dl.getParseTree();
+        assertSame(full.getRoot(), ip.getParseTree().getRoot());
+        Assertions.assertEquals(full.getNodes().size(), ip.getParseTree()
+                .getNodes().size());
+    }
+
+    @Test
+    public void testEdits() throws Exception {
+        compile();
+        StringBuilder sb = new StringBuilder("public class Calc {\n");
+        for (int i = 0; i < 50; i++) {
+            sb.append("    int m").append(i).append("(int a) {\n")
+                    .append("        return a + ").append(i).append(";\n")
+                    .append("    }\n");
+        }
+        sb.append("}\n");
+        String doc = sb.toString();
+
+        IncrementalParser ip = new IncrementalParser(gp, "compilationUnit");
+        ParseTree pt = ip.parse(doc);
+        Assertions.assertEquals(doc.length(), ip.getReparsedLength());
+        assertFullParse(ip);
+
+        // replace an operator
+        int off = doc.indexOf("a + 7;");
+        ParseTree upd = ip.edit(off + 2, 1, "*");
+        Assertions.assertSame(pt, upd);
+        Assertions.assertTrue(ip.getReparsedLength() < 20);
+        Assertions.assertTrue(ip.getText().contains("a * 7;"));
+        assertFullParse(ip);
+
+        // insert a statement, which changes the indices of all subsequent
+        // nodes
+        off = ip.getText().indexOf("return a + 20;");
+        ip.edit(off, 0, "int b = a;\n        ");
+        Assertions.assertTrue(ip.getReparsedLength() < 100);
+        assertFullParse(ip);
+
+        // delete a statement
+        off = ip.getText().indexOf("int b = a;");
+        ip.edit(off, "int b = a;\n        ".length(), "");
+        Assertions.assertTrue(ip.getReparsedLength() < 100);
+        assertFullParse(ip);
+
+        // subsequent edits on the same line and further down stay
+        // incremental
+        off = ip.getText().indexOf("a + 20;");
+        ip.edit(off, 1, "(a - 1)");
+        Assertions.assertTrue(ip.getReparsedLength() < 100);
+        assertFullParse(ip);
+
+        off = ip.getText().indexOf("a + 40;");
+        ip.edit(off + 4, 2, "4 *\n            a");
+        Assertions.assertTrue(ip.getReparsedLength() < 100);
+        assertFullParse(ip);
+
+        // syntax errors keep the previous state
+        String before = ip.getText();
+        off = before.indexOf("a + 30;");
+        try {
+            ip.edit(off + 4, 2, "");
+            Assertions.fail("edit should not parse");
+        } catch (ParsingException e) {
+            // expected
+        }
+        Assertions.assertEquals(before, ip.getText());
+        assertFullParse(ip);
+
+        // edits at the document boundary fall back to a full parse
+        ip.edit(0, 0, "import java.util.List;\n");
+        Assertions.assertEquals(ip.getText().length(), ip.getReparsedLength());
+        assertFullParse(ip);
+
+        off = ip.getText().indexOf("m49");
+        ip.edit(off, 3, "last");
+        assertFullParse(ip);
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.exceptions.*;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+import org.snt.inmemantlr.utils.FileUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+
+public class TestJarExport {
+
+    @Test
+    public void testExportAndLoad() throws IOException, CompilationException,
+            SerializationException, DeserializationException,
+            IllegalWorkflowException, ParsingException {
+        String sgrammarcontent;
+        try (InputStream sgrammar = getClass().getClassLoader()
+                .getResourceAsStream("inmemantlr/Simple.g4")) {
+            sgrammarcontent = FileUtils.getStringFromStream(sgrammar);
+        }
+
+        GenericParser gp = new GenericParser(sgrammarcontent);
+        gp.compile();
+        DefaultTreeListener t = new DefaultTreeListener();
+        gp.setListener(t);
+        gp.parse("PRINT a+b");
+
+        File jar = Files.createTempFile("simple", ".jar").toFile();
+        jar.deleteOnExit();
+        Assertions.assertThrows(SerializationException.class, () -> gp
+                .exportJar(jar.getAbsolutePath(), false));
+        gp.exportJar(jar.getAbsolutePath(), true);
+
+        try (JarFile jf = new JarFile(jar)) {
+            Attributes attr = jf.getManifest().getMainAttributes();
+            Assertions.assertEquals("SimpleParser", attr.getValue
+                    ("Inmemantlr-Parser"));
+            Assertions.assertEquals("SimpleLexer", attr.getValue
+                    ("Inmemantlr-Lexer"));
+            Assertions.assertTrue(attr.getValue("Inmemantlr-Rules")
+                    .startsWith("s,print,"));
+            Assertions.assertEquals(gp.getGrammarHash(), attr.getValue
+                    ("Inmemantlr-Grammar-Hash"));
+            Assertions.assertNotNull(jf.getEntry("SimpleParser.class"));
+        }
+
+        GenericParser loaded = GenericParser.loadJar(jar.getAbsolutePath());
+        Assertions.assertTrue(loaded.antrlObjectsAvailable());
+        Assertions.assertEquals(gp.getGrammarHash(), loaded.getGrammarHash());
+        DefaultTreeListener lt = new DefaultTreeListener();
+        loaded.setListener(lt);
+        loaded.parse("PRINT a+b");
+        Assertions.assertEquals(t.getParseTree(), lt.getParseTree());
+        Assertions.assertThrows(ParsingException.class, () -> loaded.parse
+                ("PRINT +"));
+        Assertions.assertThrows(SerializationException.class, () -> loaded
+                .store(jar.getAbsolutePath() + ".ser", true));
+
+        try (URLClassLoader cl = new URLClassLoader(new URL[]{jar.toURI()
+                .toURL()}, getClass().getClassLoader())) {
+            GenericParser cp = GenericParser.loadFromClassPath
+                    ("SimpleParser", cl);
+            DefaultTreeListener ct = new DefaultTreeListener();
+            cp.setListener(ct);
+            cp.parse("PRINT a+b");
+            Assertions.assertEquals(t.getParseTree(), ct.getParseTree());
+            Assertions.assertThrows(DeserializationException.class, () ->
+                    GenericParser.loadFromClassPath("NopeParser", cl));
+        }
+
+        // the parser rules have to match the manifest
+        File bad = Files.createTempFile("simple", ".jar").toFile();
+        bad.deleteOnExit();
+        try (JarFile jf = new JarFile(jar)) {
+            Manifest mf = new Manifest(jf.getManifest());
+            mf.getMainAttributes().putValue("Inmemantlr-Rules", "s,print");
+            try (JarOutputStream jos = new JarOutputStream(new
+                    FileOutputStream(bad), mf)) {
+                for (JarEntry e : Collections.list(jf.entries())) {
+                    if (e.getName().equals(JarFile.MANIFEST_NAME))
+                        continue;
+                    jos.putNextEntry(new JarEntry(e.getName()));
+                    try (InputStream is = jf.getInputStream(e)) {
+                        IOUtils.copy(is, jos);
+                    }
+                    jos.closeEntry();
+                }
+            }
+        }
+        Assertions.assertThrows(DeserializationException.class, () ->
+                GenericParser.loadJar(bad.getAbsolutePath()));
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.exceptions.SerializationException;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+import org.snt.inmemantlr.memobjects.MemoryTuple;
+import org.snt.inmemantlr.utils.FileUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+
+public class TestLeanMode {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestLeanMode.class);
+
+    private File[] files() {
+        return new File[]{
+                new File(getClass().getClassLoader().getResource
+                        ("inmemantlr/MySQLLexer.g4").getFile()),
+                new File(getClass().getClassLoader().getResource
+                        ("inmemantlr/MySQLParser.g4").getFile())
+        };
+    }
+
+    private static Map<String, String> sources(GenericParser gp) {
+        Map<String, String> ret = new HashMap<>();
+        for (MemoryTuple tup : gp.getAllCompiledObjects()) {
+            ret.put(tup.getClassName(), tup.getSource().getCharContent
+                    (false).toString());
+        }
+        return ret;
+    }
+
+    @Test
+    public void testRetainedSize() throws Exception {
+        GenericParser gp = new GenericParser(files());
+        gp.compile();
+        gp.parse("select a from b;");
+        Map<String, String> expected = sources(gp);
+
+        long before = gp.getAllCompiledObjects().getRetainedSize();
+        gp.setLean(true);
+        long after = gp.getAllCompiledObjects().getRetainedSize();
+        LOGGER.info("retained {} bytes instead of {} bytes ({}% less)",
+                after, before, 100 - after * 100 / before);
+        Assertions.assertTrue(after < before / 2);
+
+        for (MemoryTuple tup : gp.getAllCompiledObjects()) {
+            Assertions.assertTrue(tup.getSource().isReleased());
+        }
+
+        // parsing is not affected
+        DefaultTreeListener t = new DefaultTreeListener();
+        gp.setListener(t);
+        gp.parse("select c from d;");
+        Assertions.assertEquals(1, t.getParseTree().getNodesByRule
+                ("select_clause").size());
+
+        // sources are regenerated on demand
+        File dir = Files.createTempDirectory("lean").toFile();
+        gp.writeAntlrAritfactsTo(dir.getAbsolutePath());
+        for (Map.Entry<String, String> e : expected.entrySet()) {
+            Assertions.assertEquals(e.getValue(), FileUtils.loadFileContent
+                    (new File(dir, e.getKey() + ".java").getAbsolutePath()));
+        }
+
+        String file = new File(dir, "lean.parser").getAbsolutePath();
+        gp.store(file, true);
+        GenericParser loaded = GenericParser.load(file);
+        Assertions.assertEquals(expected, sources(loaded));
+    }
+
+    @Test
+    public void testLeanCompilation() throws Exception {
+        GenericParser gp = new GenericParser(files());
+        gp.setLean(true);
+        gp.compile();
+
+        for (MemoryTuple tup : gp.getAllCompiledObjects()) {
+            Assertions.assertTrue(tup.getSource().isReleased());
+        }
+        DefaultTreeListener t = new DefaultTreeListener();
+        gp.setListener(t);
+        gp.parse("select a from b;");
+        Assertions.assertEquals(1, t.getParseTree().getNodesByRule
+                ("select_clause").size());
+
+        String file = Files.createTempFile("lean",
+                ".parser").toFile().getAbsolutePath();
+        gp.store(file, true);
+
+        // loaded parsers cannot regenerate their sources
+        GenericParser loaded = GenericParser.load(file);
+        loaded.setLean(true);
+        loaded.setListener(t);
+        loaded.parse("select a from b;");
+        Assertions.assertThrows(SerializationException.class, () -> loaded
+                .store(file, true));
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.GenericParser.CaseSensitiveType;
+import org.snt.inmemantlr.exceptions.CompilationException;
+import org.snt.inmemantlr.exceptions.IllegalWorkflowException;
+import org.snt.inmemantlr.exceptions.ParsingException;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+import org.snt.inmemantlr.metrics.DecisionProfile;
+import org.snt.inmemantlr.metrics.Histogram;
+import org.snt.inmemantlr.metrics.HistogramMetricsCollector;
+import org.snt.inmemantlr.metrics.MetricsCollector.Phase;
+import org.snt.inmemantlr.metrics.ProfilingReport;
+import org.snt.inmemantlr.utils.FileUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+
+public class TestMetrics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestMetrics.class);
+
+    @Test
+    public void testHistogram() {
+        Histogram h = new Histogram();
+        Assertions.assertEquals(0, h.getPercentile(50));
+        for (int i = 0; i <= 100; i++) {
+            h.record(i);
+        }
+        h.record(-1);
+        Assertions.assertEquals(101, h.getCount());
+        Assertions.assertEquals(5050, h.getSum());
+        Assertions.assertEquals(0, h.getMin());
+        Assertions.assertEquals(100, h.getMax());
+        // 50 falls into the bucket [32,63]
+        Assertions.assertEquals(63, h.getPercentile(50));
+        Assertions.assertEquals(100, h.getPercentile(100));
+        h.reset();
+        Assertions.assertEquals(0, h.getCount());
+        Assertions.assertEquals(0, h.getMax());
+    }
+
+    @Test
+    public void testPhases() throws IOException, CompilationException,
+            IllegalWorkflowException, ParsingException {
+        GenericParser gp;
+        try (InputStream sgrammar = TestMetrics.class.getClassLoader()
+                .getResourceAsStream("inmemantlr/Simple.g4")) {
+            gp = new GenericParser(FileUtils.getStringFromStream(sgrammar));
+        }
+
+        HistogramMetricsCollector mc = new HistogramMetricsCollector();
+        gp.setMetricsCollector(mc);
+        gp.setListener(new DefaultTreeListener());
+        gp.compile();
+
+        Assertions.assertEquals(1, mc.getHistogram(Phase.CODEGEN).getCount());
+        Assertions.assertEquals(1, mc.getHistogram(Phase.COMPILE).getCount());
+        Assertions.assertEquals(0, mc.getHistogram(Phase.LEX).getCount());
+
+        gp.parse("PRINT a+b");
+        gp.parse("PRINT ab+cd");
+
+        try {
+            gp.parse("PRINT a+b #");
+            Assertions.fail("parsing should fail");
+        } catch (ParsingException e) {
+            // expected
+        }
+
+        for (Phase p : new Phase[]{Phase.CHAR_STREAM, Phase.LEX, Phase.PARSE}) {
+            Assertions.assertEquals(3, mc.getHistogram(p).getCount());
+        }
+        // no tree walk for the erroneous input
+        Assertions.assertEquals(2, mc.getHistogram(Phase.WALK).getCount());
+
+        Assertions.assertEquals(3, mc.getInputSizes().getCount());
+        Assertions.assertEquals(9 + 11 + 11, mc.getInputSizes().getSum());
+        Assertions.assertEquals(3, mc.getTokenCounts().getCount());
+        Assertions.assertTrue(mc.getTokenCounts().getSum() > 0);
+        Assertions.assertEquals(2, mc.getNodeCounts().getCount());
+        Assertions.assertEquals(1, mc.getErrorCounts().getSum());
+        Assertions.assertTrue(mc.getTokensPerSecond() > 0);
+
+        LOGGER.debug(mc.toString());
+    }
+
+    @Test
+    public void testProfiling() throws IOException, CompilationException,
+            IllegalWorkflowException, ParsingException {
+        GenericParser gp;
+        try (InputStream sgrammar = TestMetrics.class.getClassLoader()
+                .getResourceAsStream("inmemantlr/Java.g4")) {
+            gp = new GenericParser(FileUtils.getStringFromStream(sgrammar));
+        }
+        gp.compile();
+
+        String hello;
+        try (InputStream s = TestMetrics.class.getClassLoader()
+                .getResourceAsStream("inmemantlr/HelloWorld.java")) {
+            hello = FileUtils.getStringFromStream(s);
+        }
+
+        Assertions.assertNull(gp.getProfilingReport());
+        gp.setProfiling(true);
+        Assertions.assertTrue(gp.isProfiling());
+
+        gp.parse(hello, "compilationUnit", CaseSensitiveType.NONE);
+        gp.parse(hello, "compilationUnit", CaseSensitiveType.NONE);
+
+        ProfilingReport rep = gp.getProfilingReport();
+        Assertions.assertEquals(2, rep.getParses());
+
+        List<DecisionProfile> dps = rep.getDecisions();
+        Assertions.assertFalse(dps.isEmpty());
+
+        for (int i = 0; i < dps.size(); i++) {
+            DecisionProfile dp = dps.get(i);
+            Assertions.assertNotNull(dp.getRule());
+            Assertions.assertTrue(dp.getLine() > 0);
+            Assertions.assertTrue(dp.getInvocations() > 0);
+            // both parses are identical
+            Assertions.assertEquals(0, dp.getInvocations() % 2);
+            if (i > 0)
+                Assertions.assertTrue(dps.get(i - 1).getTimeInPrediction() >=
+                        dp.getTimeInPrediction());
+        }
+
+        List<DecisionProfile> bylook = rep.getDecisions(DecisionProfile
+                .BY_MAX_LOOK);
+        Assertions.assertEquals(dps.size(), bylook.size());
+        Assertions.assertTrue(bylook.get(0).getMaxLook() >= 1);
+
+        LOGGER.debug(rep.toString());
+
+        gp.setProfiling(false);
+        gp.parse(hello, "compilationUnit", CaseSensitiveType.NONE);
+        Assertions.assertNull(gp.getProfilingReport());
+        Assertions.assertEquals(2, rep.getParses());
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.exceptions.CompilationException;
+import org.snt.inmemantlr.exceptions.IllegalWorkflowException;
+import org.snt.inmemantlr.exceptions.ParsingException;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+import org.snt.inmemantlr.service.CompiledGrammar;
+import org.snt.inmemantlr.service.ParseContext;
+import org.snt.inmemantlr.tree.ParseTree;
+import org.snt.inmemantlr.tree.ParseTreeNode;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+
+public class TestParseTimeListener {
+
+    static File grammar = null;
+    static File sfile = null;
+
+    static {
+        ClassLoader classLoader = TestParseTimeListener.class.getClassLoader();
+        grammar = new File(classLoader.getResource("inmemantlr/Java.g4")
+                .getFile());
+        sfile = new File(classLoader.getResource("inmemantlr/HelloWorld.java")
+                .getFile());
+    }
+
+    // left-recursive rule with labeled alternatives and hidden whitespace
+    private static final String EXPR = "grammar Expr;\n" +
+            "prog: stat+ EOF;\n" +
+            "stat: expr ';' # Eval | ID '=' expr ';' # Assign;\n" +
+            "expr: expr op=('*'|'/') expr # MulDiv\n" +
+            "    | expr op=('+'|'-') expr # AddSub\n" +
+            "    | '-' expr # Neg\n" +
+            "    | INT # Int\n" +
+            "    | ID # Id\n" +
+            "    | '(' expr ')' # Parens\n" +
+            "    ;\n" +
+            "ID: [a-z]+;\n" +
+            "INT: [0-9]+;\n" +
+            "WS: [ \\t\\r\\n]+ -> channel(HIDDEN);\n";
+
+    private static final String INPUT = "a = 1 + 2 * 3 - b;\n" +
+            "(a + 1) * -2 / 4 - a * a;\n";
+
+    private static void assertSameTree(ParseTreeNode exp, ParseTreeNode
+            act) {
+        Assertions.assertEquals(exp.getRule(), act.getRule());
+        Assertions.assertEquals(exp.getLabel(), act.getLabel());
+        Assertions.assertEquals(exp.getSidx(), act.getSidx());
+        Assertions.assertEquals(exp.getEidx(), act.getEidx());
+        Assertions.assertEquals(exp.isError(), act.isError());
+        Assertions.assertEquals(exp.getChildren().size(), act.getChildren()
+                .size(), exp.toString());
+        for (int i = 0; i < exp.getChildren().size(); i++) {
+            Assertions.assertSame(act, act.getChild(i).getParent());
+            assertSameTree(exp.getChild(i), act.getChild(i));
+        }
+    }
+
+    private static ParseTree parse(GenericParser gp, String s, boolean
+            parseTime, boolean buildParseTree) throws
+            IllegalWorkflowException, ParsingException {
+        DefaultTreeListener dlist = new DefaultTreeListener(true);
+        gp.setListener(dlist);
+        gp.setParseTimeListener(parseTime);
+        gp.setBuildParseTree(buildParseTree);
+        ParserRuleContext ctx = gp.parse(s);
+        Assertions.assertNotNull(ctx);
+        return dlist.getParseTree();
+    }
+
+    @Test
+    public void testLeftRecursion() throws CompilationException,
+            IllegalWorkflowException, ParsingException {
+        GenericParser gp = new GenericParser(EXPR);
+        gp.compile();
+
+        ParseTree walked = parse(gp, INPUT, false, true);
+        ParseTree attached = parse(gp, INPUT, true, true);
+        ParseTree lean = parse(gp, INPUT, true, false);
+
+        Assertions.assertTrue(gp.isParseTimeListener());
+        Assertions.assertEquals(walked.getNodes().size(), attached
+                .getNodes().size());
+        assertSameTree(walked.getRoot(), attached.getRoot());
+        assertSameTree(walked.getRoot(), lean.getRoot());
+
+        ParseTreeNode expr = lean.getDominatingNodesByRule("expr").get(0);
+        Assertions.assertEquals("1+2*3-b", expr.getLabel());
+        Assertions.assertEquals(4, expr.getSidx());
+        Assertions.assertEquals(16, expr.getEidx());
+        Assertions.assertEquals("expr", expr.getChild(0).getRule());
+        Assertions.assertEquals("1+2*3", expr.getChild(0).getLabel());
+    }
+
+    @Test
+    public void testJava() throws FileNotFoundException,
+            CompilationException, IllegalWorkflowException, ParsingException {
+        GenericParser gp = new GenericParser(grammar);
+        gp.compile();
+
+        DefaultTreeListener dlist = new DefaultTreeListener();
+        gp.setListener(dlist);
+        gp.parse(sfile);
+        ParseTree walked = dlist.getParseTree();
+
+        dlist = new DefaultTreeListener();
+        gp.setListener(dlist);
+        gp.setBuildParseTree(false);
+        ParserRuleContext ctx = gp.parse(sfile);
+        Assertions.assertTrue(ctx.getRuleContexts(ParserRuleContext.class)
+                .isEmpty());
+        assertSameTree(walked.getRoot(), dlist.getParseTree().getRoot());
+    }
+
+    @Test
+    public void testParseContext() throws CompilationException,
+            IllegalWorkflowException, ParsingException {
+        GenericParser gp = new GenericParser(EXPR);
+        gp.compile();
+        CompiledGrammar cg = new CompiledGrammar("Expr", gp);
+
+        ParseContext pctx = new ParseContext(cg);
+        ParseTree walked = pctx.parse(INPUT).getParseTree();
+        pctx.setParseTimeListener(true);
+        Assertions.assertTrue(pctx.isParseTimeListener());
+        ParseTree attached = pctx.parse(INPUT).getParseTree();
+        assertSameTree(walked.getRoot(), attached.getRoot());
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.exceptions.CompilationException;
+import org.snt.inmemantlr.exceptions.IllegalWorkflowException;
+import org.snt.inmemantlr.exceptions.ParsingException;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+import org.snt.inmemantlr.tree.ParseTree;
+import org.snt.inmemantlr.tree.ParseTreeNode;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+
+public class TestParseTreeIndex {
+
+    static File grammar = null;
+    static File sfile = null;
+
+    static {
+        ClassLoader classLoader = TestParseTreeIndex.class.getClassLoader();
+        grammar = new File(classLoader.getResource("inmemantlr/Java.g4")
+                .getFile());
+        sfile = new File(classLoader.getResource("inmemantlr/HelloWorld.java")
+                .getFile());
+    }
+
+    @Test
+    public void testIndex() throws FileNotFoundException,
+            CompilationException, IllegalWorkflowException, ParsingException {
+
+        GenericParser gp = new GenericParser(grammar);
+        gp.compile();
+
+        DefaultTreeListener dlist = new DefaultTreeListener(true);
+        dlist.setIndexed(true);
+        gp.setListener(dlist);
+        gp.parse(sfile);
+
+        ParseTree pt = dlist.getParseTree();
+        Assertions.assertTrue(pt.isIndexed());
+
+        List<ParseTreeNode> expr = pt.getNodes().stream()
+                .filter(n -> "expression".equals(n.getRule()))
+                .collect(Collectors.toList());
+
+        Assertions.assertEquals(5, expr.size());
+        Assertions.assertEquals(expr, pt.getNodesByRule("expression"));
+        Assertions.assertEquals(pt.getTerminalsByLabel("class").size(), 1);
+
+        Assertions.assertEquals(1, pt.getDominatingNodesByRule("classBody")
+                .size());
+        Assertions.assertEquals(pt.getDominatingSubtrees(n -> "expression"
+                .equals(n.getRule())).size(), pt.getDominatingNodesByRule
+                ("expression").size());
+
+        // index is maintained on removal and matches a non-indexed scan
+        ParseTree sub = pt.getSubtrees(n -> n == expr.get(0)).iterator()
+                .next();
+        Assertions.assertTrue(pt.removeSubtree(sub));
+
+        ParseTree cp = new ParseTree(pt);
+        cp.setIndexed(false);
+        Assertions.assertEquals(5 - sub.getNodesByRule("expression").size(),
+                pt.getNodesByRule("expression").size());
+        Assertions.assertEquals(cp.getNodesByRule("expression").size(), pt
+                .getNodesByRule("expression").size());
+    }
+}
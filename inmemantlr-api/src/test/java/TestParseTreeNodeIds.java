@@ -0,0 +1,93 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.snt.inmemantlr.tree.ParseTree;
+import org.snt.inmemantlr.tree.ParseTreeNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+public class TestParseTreeNodeIds {
+
+    private static ParseTree build(int width) {
+        ParseTree t = new ParseTree("root", "root");
+        for (int i = 0; i < width; i++) {
+            ParseTreeNode n = t.newNode(t.getRoot(), "a", "a" + i, i, i);
+            t.getRoot().addChild(n);
+            ParseTreeNode c = t.newNode(n, "", "b" + i, i, i);
+            n.addChild(c);
+        }
+        return t;
+    }
+
+    @Test
+    public void testDenseIds() {
+        ParseTree t = build(10);
+        Assertions.assertEquals(21, t.getIdCount());
+        boolean[] seen = new boolean[t.getIdCount()];
+        for (ParseTreeNode n : t.getNodes()) {
+            Assertions.assertFalse(seen[n.getId()]);
+            seen[n.getId()] = true;
+        }
+        Assertions.assertEquals(build(10).toDot(), t.toDot());
+        Assertions.assertEquals(new ParseTree(t), t);
+    }
+
+    @Test
+    public void testReplaceKeepsIdsUnique() {
+        ParseTree t = build(3);
+        ParseTree sub = t.getSubtrees(n -> "a1".equals(n.getLabel()))
+                .iterator().next();
+        Assertions.assertTrue(t.replaceSubtree(sub, build(1)));
+        boolean[] seen = new boolean[t.getIdCount()];
+        for (ParseTreeNode n : t.getNodes()) {
+            Assertions.assertFalse(seen[n.getId()]);
+            seen[n.getId()] = true;
+        }
+    }
+
+    @Test
+    public void testParallelConstruction() throws InterruptedException,
+            ExecutionException {
+        ExecutorService ex = Executors.newFixedThreadPool(4);
+        List<Future<ParseTree>> fs = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            fs.add(ex.submit(() -> build(500)));
+        }
+        String dot = build(500).toDot();
+        for (Future<ParseTree> f : fs) {
+            Assertions.assertEquals(dot, f.get().toDot());
+        }
+        ex.shutdown();
+    }
+}
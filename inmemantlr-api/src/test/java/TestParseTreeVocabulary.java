@@ -0,0 +1,173 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.exceptions.CompilationException;
+import org.snt.inmemantlr.exceptions.IllegalWorkflowException;
+import org.snt.inmemantlr.exceptions.ParseTreeProcessorException;
+import org.snt.inmemantlr.exceptions.ParsingException;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+import org.snt.inmemantlr.tree.JsonProcessor;
+import org.snt.inmemantlr.tree.ParseTree;
+import org.snt.inmemantlr.tree.ParseTreeNode;
+import org.snt.inmemantlr.tree.ParseTreeVocabulary;
+import org.snt.inmemantlr.tree.XmlProcessor;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.List;
+
+
+public class TestParseTreeVocabulary {
+
+    static File grammar = null;
+    static File sfile = null;
+
+    static {
+        ClassLoader classLoader = TestParseTreeVocabulary.class
+                .getClassLoader();
+        grammar = new File(classLoader.getResource("inmemantlr/Java.g4")
+                .getFile());
+        sfile = new File(classLoader.getResource("inmemantlr/HelloWorld.java")
+                .getFile());
+    }
+
+    private static ParseTree parse(GenericParser gp) throws
+            FileNotFoundException, IllegalWorkflowException,
+            ParsingException {
+        DefaultTreeListener dlist = new DefaultTreeListener(true);
+        gp.setListener(dlist);
+        gp.parse(sfile);
+        return dlist.getParseTree();
+    }
+
+    @Test
+    public void testRuleIds() throws Exception {
+        GenericParser gp = new GenericParser(grammar);
+        gp.compile();
+
+        List<String> rules = Arrays.asList((String[]) gp.getParserClass()
+                .getField("ruleNames").get(null));
+
+        ParseTree pt = parse(gp);
+        ParseTreeVocabulary voc = pt.getVocabulary();
+        Assertions.assertEquals(rules.size(), voc.getRuleCount());
+        Assertions.assertSame(voc, parse(gp).getVocabulary());
+
+        for (ParseTreeNode n : pt.getNodes()) {
+            if (n == pt.getRoot())
+                continue;
+            if (n.isTerminal()) {
+                Assertions.assertEquals(ParseTreeVocabulary.NO_RULE, n
+                        .getRuleIndex());
+                Assertions.assertTrue(n.getTokenType() > 0 || "<EOF>"
+                        .equals(n.getLabel()));
+            } else {
+                Assertions.assertEquals(rules.indexOf(n.getRule()), n
+                        .getRuleIndex());
+            }
+        }
+
+        ParseTreeNode cls = pt.getTerminalsByLabel("class").get(0);
+        Assertions.assertEquals("CLASS", voc.getTokenName(cls
+                .getTokenType()));
+
+        // ids of names that are not rules are allocated by the tree after
+        // the rules, the shared vocabulary is not changed
+        Assertions.assertFalse(voc.hasRule("root"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> voc
+                .getRuleId("root"));
+        Assertions.assertEquals(voc.getRuleCount(), pt.getRoot()
+                .getRuleIndex());
+        Assertions.assertEquals(voc.getRuleCount() + 1, pt.getRuleIdCount());
+
+        ParseTree other = new ParseTree("other", "other", false, voc);
+        ParseTreeNode foo = other.newNode(other.getRoot(), "foo", "x", 0, 0);
+        Assertions.assertEquals(voc.getRuleCount() + 1, foo.getRuleIndex());
+        Assertions.assertEquals(voc.getRuleCount() + 2, other
+                .getRuleIdCount());
+        Assertions.assertEquals(voc.getRuleCount() + 1, pt.getRuleIdCount());
+        Assertions.assertEquals(voc.getRuleCount() + 1, parse(gp)
+                .getRuleIdCount());
+        // equal ids of different trees do not imply the same rule
+        Assertions.assertEquals(pt.getRoot().getRuleIndex(), other.getRoot()
+                .getRuleIndex());
+        Assertions.assertFalse(pt.getRoot().hasSameRule(other.getRoot()));
+    }
+
+    @Test
+    public void testForeignVocabulary() throws Exception {
+        GenericParser gp = new GenericParser(grammar);
+        gp.compile();
+        ParseTree pt = parse(gp);
+
+        ParseTree other = new ParseTree("root", "root");
+        ParseTreeNode n = pt.getNodesByRule("classDeclaration").get(0);
+        ParseTreeNode cp = other.addSubtree(other.getRoot(), n);
+
+        Assertions.assertNotSame(pt.getVocabulary(), other.getVocabulary());
+        Assertions.assertEquals("classDeclaration", cp.getRule());
+        Assertions.assertTrue(n.isStructurallyEqual(cp));
+        Assertions.assertTrue(n.hasSameRule(cp));
+        Assertions.assertEquals(n.getLastChild().getTokenType(), cp
+                .getLastChild().getTokenType());
+
+        ParseTree copy = new ParseTree(pt);
+        Assertions.assertSame(pt.getVocabulary(), copy.getVocabulary());
+        Assertions.assertEquals(pt, copy);
+    }
+
+    @Test
+    public void testCompactOutput() throws FileNotFoundException,
+            CompilationException, IllegalWorkflowException,
+            ParsingException, ParseTreeProcessorException {
+        GenericParser gp = new GenericParser(grammar);
+        gp.compile();
+        ParseTree pt = parse(gp);
+
+        String json = new JsonProcessor(pt, true).process().toString();
+        String cjson = new JsonProcessor(pt, true, true).process()
+                .toString();
+        Assertions.assertTrue(cjson.startsWith("{\"rules\":[\"compilationUnit\""));
+        Assertions.assertTrue(cjson.contains(",\"root\"],\"tree\":"));
+        // the rule table is printed once, the nodes get shorter
+        Assertions.assertTrue(cjson.substring(cjson.indexOf("\"tree\":"))
+                .length() < json.length());
+
+        String xml = new XmlProcessor(pt, true).process().toString();
+        String cxml = new XmlProcessor(pt, true, true).process().toString();
+        Assertions.assertTrue(cxml.substring(cxml.indexOf("</rules>"))
+                .length() < xml.length());
+        Assertions.assertFalse(cxml.contains("<name>"));
+        Assertions.assertTrue(cxml.contains("<rules><r>compilationUnit</r>"));
+        Assertions.assertTrue(cxml.contains("<nt><rule>0</rule>"));
+        Assertions.assertEquals(xml.split("<nt>").length, cxml.split("<nt>")
+                .length);
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.exceptions.CompilationException;
+import org.snt.inmemantlr.exceptions.IllegalWorkflowException;
+import org.snt.inmemantlr.exceptions.ParsingException;
+import org.snt.inmemantlr.metrics.HistogramMetricsCollector;
+import org.snt.inmemantlr.metrics.MetricsCollector;
+import org.snt.inmemantlr.service.ParseContext;
+import org.snt.inmemantlr.service.ParseResult;
+import org.snt.inmemantlr.service.ParserService;
+import org.snt.inmemantlr.utils.FileUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+public class TestParserService {
+
+    private static ParserService newService() throws IOException,
+            CompilationException, IllegalWorkflowException {
+        ParserService service = new ParserService();
+        try (InputStream sgrammar = TestParserService.class.getClassLoader()
+                .getResourceAsStream("inmemantlr/Simple.g4")) {
+            GenericParser gp = new GenericParser(FileUtils
+                    .getStringFromStream(sgrammar));
+            gp.compile();
+            service.register("simple", gp);
+        }
+        return service;
+    }
+
+    private static String document(int i) {
+        StringBuilder sb = new StringBuilder();
+        for (int j = 0; j <= i % 10; j++) {
+            sb.append("PRINT a").append(i).append(" + b").append(j)
+                    .append("\n");
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        ParserService service = newService();
+        Assertions.assertTrue(service.getGrammarNames().contains("simple"));
+        Assertions.assertEquals("s", service.getGrammar("simple")
+                .getRuleNames().get(0));
+
+        ParseResult r = service.parse("simple", "PRINT a+b", null);
+        Assertions.assertFalse(r.hasErrors());
+        Assertions.assertEquals(1, r.getParseTree().getNodesByRule
+                ("expression").size());
+
+        ParseContext ctx = service.newContext("simple");
+        ParseResult r1 = ctx.parse("PRINT a+b");
+        ParseResult r2 = ctx.parse("PRINT 'x'", "print");
+        // results of a reused context stay intact
+        Assertions.assertEquals(r.getParseTree(), r1.getParseTree());
+        Assertions.assertEquals("print", r2.getParseTree().getRoot()
+                .getFirstChild().getRule());
+
+        Assertions.assertThrows(ParsingException.class, () -> ctx.parse
+                ("PRINT +"));
+        ctx.setErrorTolerant(true);
+        Assertions.assertTrue(ctx.parse("PRINT +").hasErrors());
+        // errors count even if none of them is kept
+        ctx.setMaxErrors(0);
+        ParseResult r3 = ctx.parse("PRINT + PRINT +");
+        Assertions.assertTrue(r3.hasErrors());
+        Assertions.assertTrue(r3.getErrors().isEmpty());
+        Assertions.assertTrue(r3.getErrorCount() > 1);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                service.parse("nope", "PRINT a+b", null));
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                service.parse("simple", "PRINT a+b", "nope"));
+    }
+
+    @Test
+    public void testAsyncErrors() throws Exception {
+        ParserService service = newService();
+        CompletableFuture<ParseResult> f = service.parseAsync("simple",
+                "PRINT a+", null);
+        CompletionException e = Assertions.assertThrows(CompletionException
+                .class, f::join);
+        Assertions.assertTrue(e.getCause() instanceof ParsingException);
+        Assertions.assertFalse(((ParsingException) e.getCause()).getErrors()
+                .isEmpty());
+
+        // unknown grammars are reported through the future as well
+        f = service.parseAsync("nope", "PRINT a+b", null);
+        e = Assertions.assertThrows(CompletionException.class, f::join);
+        Assertions.assertTrue(e.getCause() instanceof
+                IllegalArgumentException);
+    }
+
+    private static void load(ParserService service, int threads, int n) {
+        ExecutorService ex = Executors.newFixedThreadPool(threads);
+        try {
+            List<CompletableFuture<ParseResult>> fs = new ArrayList<>(n);
+            // all parses are in flight at once
+            for (int i = 0; i < n; i++) {
+                fs.add(service.parseAsync("simple", document(i), null, ex));
+            }
+            for (int i = 0; i < n; i++) {
+                ParseResult r = fs.get(i).join();
+                Assertions.assertEquals(i % 10 + 1, r.getParseTree()
+                        .getNodesByRule("print").size());
+                Assertions.assertEquals("a" + i, r.getParseTree()
+                        .getNodesByRule("operand").get(0).getLabel());
+            }
+        } finally {
+            ex.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentParses() throws Exception {
+        ParserService service = newService();
+        HistogramMetricsCollector mc = new HistogramMetricsCollector();
+        service.setMetricsCollector(mc);
+        int n = 200;
+        load(service, 1, n);
+        load(service, 8, n);
+        Assertions.assertEquals(2 * n, mc.getHistogram(MetricsCollector
+                .Phase.PARSE).getCount());
+    }
+}
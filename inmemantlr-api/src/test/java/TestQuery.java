@@ -0,0 +1,157 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.exceptions.CompilationException;
+import org.snt.inmemantlr.exceptions.IllegalWorkflowException;
+import org.snt.inmemantlr.exceptions.ParsingException;
+import org.snt.inmemantlr.exceptions.QueryException;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+import org.snt.inmemantlr.query.Query;
+import org.snt.inmemantlr.query.QueryAutomaton;
+import org.snt.inmemantlr.tree.ParseTree;
+import org.snt.inmemantlr.tree.ParseTreeNode;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+
+public class TestQuery {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestQuery.class);
+
+    private static ParseTree parse() throws FileNotFoundException,
+            CompilationException, IllegalWorkflowException, ParsingException {
+        File grammar = new File(TestQuery.class.getClassLoader().getResource
+                ("inmemantlr/Java.g4").getFile());
+
+        StringBuilder sb = new StringBuilder("public class Loops {\n");
+        for (int i = 0; i < 200; i++) {
+            sb.append("  int m").append(i).append("(int i) {\n")
+                    .append("    while (i < ").append(i).append(") {\n")
+                    .append("      i = i + 1;\n")
+                    .append("      foo(i * 2);\n")
+                    .append("    }\n")
+                    .append("    return i;\n")
+                    .append("  }\n");
+        }
+        sb.append("}\n");
+
+        GenericParser gp = new GenericParser(grammar);
+        gp.compile();
+        DefaultTreeListener dlist = new DefaultTreeListener(true);
+        gp.setListener(dlist);
+        gp.parse(sb.toString());
+        return dlist.getParseTree();
+    }
+
+    private static boolean hasAncestor(ParseTreeNode n, String rule) {
+        for (ParseTreeNode a = n.getParent(); a != null; a = a.getParent()) {
+            if (rule.equals(a.getRule()))
+                return true;
+        }
+        return false;
+    }
+
+    @Test
+    public void testSyntax() throws QueryException {
+        Assertions.assertEquals("//a/'b\\''[@label='x'][2]//*/!c[last()]",
+                Query.compile(" //a / 'b\\'' [@label='x'] [2]//*/!c[last()]")
+                        .toString());
+
+        for (String q : new String[]{"", "a", "//", "/a[0]", "/a[@foo='x']",
+                "/a[", "/'a", "/a[99999999999]"}) {
+            Assertions.assertThrows(QueryException.class, () -> Query.compile
+                    (q));
+        }
+    }
+
+    @Test
+    public void testEvaluation() throws Exception {
+        ParseTree pt = parse();
+        Assertions.assertEquals(200, Query.compile("//methodDeclaration")
+                .evaluate(pt).size());
+        Assertions.assertEquals(200, Query.compile("//'while'").evaluate(pt)
+                .size());
+        Assertions.assertEquals(1, Query.compile
+                ("/compilationUnit/typeDeclaration[1]").evaluate(pt).size());
+        Assertions.assertEquals(0, Query.compile
+                ("/compilationUnit/typeDeclaration[2]").evaluate(pt).size());
+
+        // the last statement of every method body is the return statement
+        List<ParseTreeNode> ret = Query.compile
+                ("//methodBody/block/blockStatement[last()]/statement/*[1]")
+                .evaluate(pt);
+        Assertions.assertEquals(200, ret.size());
+        Assertions.assertTrue(ret.stream().allMatch(n -> "return".equals(n
+                .getLabel())));
+
+        List<ParseTreeNode> expr = Query.compile("//statement//expression")
+                .evaluate(pt);
+        List<ParseTreeNode> naive = pt.getNodes().stream()
+                .filter(n -> "expression".equals(n.getRule()) && hasAncestor
+                        (n, "statement"))
+                .collect(Collectors.toList());
+        Assertions.assertEquals(new HashSet<>(naive), new HashSet<>(expr));
+        Assertions.assertEquals(naive.size(), expr.size());
+    }
+
+    @Test
+    public void testAutomaton() throws Exception {
+        ParseTree pt = parse();
+        String[] rules = {"statement", "methodDeclaration", "block",
+                "formalParameter"};
+
+        QueryAutomaton qa = new QueryAutomaton(
+                Query.compile("//statement//expression"),
+                Query.compile("//methodDeclaration//expression"),
+                Query.compile("//block//expression"),
+                Query.compile("//formalParameter//expression"));
+
+        List<List<ParseTreeNode>> res = qa.evaluate(pt);
+        Assertions.assertEquals(rules.length, res.size());
+
+        for (int i = 0; i < rules.length; i++) {
+            String r = rules[i];
+            Set<Integer> naive = new HashSet<>();
+            for (ParseTree st : pt.getSubtrees(n -> r.equals(n.getRule()))) {
+                st.getSubtrees(n -> "expression".equals(n.getRule()) &&
+                        n != st.getRoot()).forEach(e -> naive.add(e
+                        .getRoot().getId()));
+            }
+            Assertions.assertEquals(naive, res.get(i).stream().map
+                    (ParseTreeNode::getId).collect(Collectors.toSet()));
+        }
+    }
+}
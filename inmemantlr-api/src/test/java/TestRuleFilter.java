@@ -0,0 +1,167 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.exceptions.CompilationException;
+import org.snt.inmemantlr.exceptions.IllegalWorkflowException;
+import org.snt.inmemantlr.exceptions.ParsingException;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+import org.snt.inmemantlr.listener.RuleFilter;
+import org.snt.inmemantlr.tree.ParseTree;
+import org.snt.inmemantlr.tree.ParseTreeNode;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.BitSet;
+import java.util.function.Predicate;
+
+
+public class TestRuleFilter {
+
+    static File grammar = null;
+    static File sfile = null;
+
+    static {
+        ClassLoader classLoader = TestRuleFilter.class.getClassLoader();
+        grammar = new File(classLoader.getResource("inmemantlr/Java.g4")
+                .getFile());
+        sfile = new File(classLoader.getResource("inmemantlr/HelloWorld.java")
+                .getFile());
+    }
+
+    private static ParseTree parse(GenericParser gp, DefaultTreeListener
+            dlist) throws FileNotFoundException, IllegalWorkflowException,
+            ParsingException {
+        gp.setListener(dlist);
+        gp.parse(sfile);
+        return dlist.getParseTree();
+    }
+
+    @Test
+    public void testResolve() {
+        String[] rules = {"expression", "primary", "typeType", "literal"};
+        BitSet bs = RuleFilter.drop("type.*|literal").resolve(rules);
+        Assertions.assertEquals(2, bs.cardinality());
+        Assertions.assertTrue(bs.get(0));
+        Assertions.assertTrue(bs.get(1));
+
+        bs = RuleFilter.keep("primary", "literal").resolve(rules);
+        Assertions.assertEquals(2, bs.cardinality());
+        Assertions.assertTrue(bs.get(3));
+
+        RuleFilter rf = RuleFilter.all().and(RuleFilter.drop("primary")
+                .collapseChains());
+        Assertions.assertTrue(rf.isCollapsing());
+        Assertions.assertEquals(3, rf.resolve(rules).cardinality());
+    }
+
+    @Test
+    public void testDrop() throws FileNotFoundException,
+            CompilationException, IllegalWorkflowException, ParsingException {
+        GenericParser gp = new GenericParser(grammar);
+        gp.compile();
+
+        ParseTree full = parse(gp, new DefaultTreeListener(true));
+        ParseTree dropped = parse(gp, new DefaultTreeListener(RuleFilter
+                .drop("type.*|primitiveType"), true));
+        ParseTree pred = parse(gp, new DefaultTreeListener(x -> !x
+                .matches("type.*|primitiveType")));
+
+        Assertions.assertTrue(dropped.getNodes().size() < full.getNodes()
+                .size());
+        Assertions.assertTrue(dropped.getNodes().stream().noneMatch(n -> n
+                .getRule().matches("type.*|primitiveType")));
+        Assertions.assertEquals(full.getNodes().stream().filter
+                (ParseTreeNode::isTerminal).count(), dropped.getNodes()
+                .stream().filter(ParseTreeNode::isTerminal).count());
+        Assertions.assertEquals(dropped.getNodes().stream().filter(n -> !n
+                .isTerminal()).count(), pred.getNodes().size());
+    }
+
+    @Test
+    public void testCollapseChains() throws FileNotFoundException,
+            CompilationException, IllegalWorkflowException, ParsingException {
+        GenericParser gp = new GenericParser(grammar);
+        gp.compile();
+
+        ParseTree full = parse(gp, new DefaultTreeListener(true));
+        int size = -1;
+        for (boolean parseTime : new boolean[]{false, true}) {
+            gp.setParseTimeListener(parseTime);
+            DefaultTreeListener dlist = new DefaultTreeListener(RuleFilter
+                    .all().collapseChains(), true);
+            dlist.setIndexed(true);
+            ParseTree collapsed = parse(gp, dlist);
+
+            Assertions.assertTrue(collapsed.getNodes().size() < full
+                    .getNodes().size());
+            for (ParseTreeNode n : collapsed.getNodes()) {
+                if (n == collapsed.getRoot())
+                    continue;
+                Assertions.assertTrue(n.getChildren().size() != 1 || n
+                        .getFirstChild().isTerminal(), n.toString());
+                Assertions.assertTrue(n.getParent().getChildren().contains
+                        (n));
+                Assertions.assertTrue(collapsed.getNodesByRule(n.getRule())
+                        .contains(n) || n.isTerminal());
+            }
+            Assertions.assertEquals(full.getRoot().getFirstChild()
+                    .getLabel(), collapsed.getRoot().getFirstChild()
+                    .getLabel());
+            if (size >= 0)
+                Assertions.assertEquals(size, collapsed.getNodes().size());
+            size = collapsed.getNodes().size();
+        }
+    }
+
+    @Test
+    public void testSubclassFilter() throws FileNotFoundException,
+            CompilationException, IllegalWorkflowException, ParsingException {
+        GenericParser gp = new GenericParser(grammar);
+        gp.compile();
+
+        // subclasses may still replace the filter predicate
+        class FilterListener extends DefaultTreeListener {
+            private void setFilter(Predicate<String> p) {
+                filter = p;
+            }
+        }
+        FilterListener sub = new FilterListener();
+        sub.setFilter(x -> !x.matches("type.*|primitiveType"));
+        ParseTree pred = parse(gp, sub);
+        Assertions.assertTrue(pred.getNodes().stream().noneMatch(n -> n
+                .getRule().matches("type.*|primitiveType")));
+        Assertions.assertEquals(parse(gp, new DefaultTreeListener(RuleFilter
+                .drop("type.*|primitiveType"), false)).getNodes().size(),
+                pred.getNodes().size());
+
+        // and change it between parses
+        sub.setFilter(x -> x.equals("compilationUnit"));
+        Assertions.assertEquals(2, parse(gp, sub).getNodes().size());
+    }
+}
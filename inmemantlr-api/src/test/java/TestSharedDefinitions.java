@@ -0,0 +1,136 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.comp.StringCompiler;
+import org.snt.inmemantlr.memobjects.MemoryTuple;
+
+import java.io.File;
+import java.nio.file.Files;
+
+
+public class TestSharedDefinitions {
+
+    private static final String GRAMMAR = "grammar Shared;\n" +
+            "s : stmt+ EOF ;\n" +
+            "stmt : ID '=' expr ';' ;\n" +
+            "expr : expr ('*'|'/') expr | expr ('+'|'-') expr | '(' expr ')'" +
+            " | ID | INT ;\n" +
+            "ID : [a-z]+ ;\n" +
+            "INT : [0-9]+ ;\n" +
+            "WS : [ \\t\\r\\n]+ -> skip ;\n";
+
+    @Test
+    public void testSharing() throws Exception {
+        GenericParser gp1 = new GenericParser(GRAMMAR);
+        gp1.setSharedDefinitions(true);
+        gp1.compile();
+        gp1.parse("a = (b + 1) * c; d = a / 2 - 3;");
+        long states = gp1.getParserDfaStates();
+        Assertions.assertTrue(states > 0);
+
+        int shared = StringCompiler.getSharedDefinitionCount();
+
+        // the second parser skips compilation and starts with warm DFAs
+        GenericParser gp2 = new GenericParser(GRAMMAR);
+        gp2.setSharedDefinitions(true);
+        gp2.compile();
+        Assertions.assertSame(gp1.getParserClass(), gp2.getParserClass());
+        Assertions.assertSame(gp1.getLexerClass(), gp2.getLexerClass());
+        Assertions.assertEquals(states, gp2.getParserDfaStates());
+        Assertions.assertEquals(shared, StringCompiler
+                .getSharedDefinitionCount());
+        gp2.parse("x = y;");
+
+        // parsers that do not opt in get their own classes
+        GenericParser gp3 = new GenericParser(GRAMMAR);
+        gp3.compile();
+        Assertions.assertNotSame(gp1.getParserClass(), gp3.getParserClass());
+        Assertions.assertEquals(0, gp3.getParserDfaStates());
+
+        // so do parsers of other grammars
+        GenericParser gp4 = new GenericParser(GRAMMAR.replace("INT : " +
+                "[0-9]+", "INT : [0-9]+ ('.' [0-9]+)?"));
+        gp4.setSharedDefinitions(true);
+        gp4.compile();
+        Assertions.assertNotSame(gp1.getParserClass(), gp4.getParserClass());
+        Assertions.assertEquals(shared + 1, StringCompiler
+                .getSharedDefinitionCount());
+
+        // deserialized parsers share the classes as well
+        File f = Files.createTempFile("shared", ".ser").toFile();
+        f.deleteOnExit();
+        gp3.store(f.getAbsolutePath(), true);
+        GenericParser gp5 = GenericParser.load(f.getAbsolutePath(), true);
+        Assertions.assertSame(gp1.getParserClass(), gp5.getParserClass());
+        GenericParser gp6 = GenericParser.load(f.getAbsolutePath());
+        Assertions.assertNotSame(gp1.getParserClass(), gp6.getParserClass());
+    }
+
+    @Test
+    public void testLeanSharer() throws Exception {
+        String g = GRAMMAR.replace("grammar Shared;", "grammar SharedLean;");
+        GenericParser lean = new GenericParser(g);
+        lean.setSharedDefinitions(true);
+        lean.setLean(true);
+        lean.compile();
+
+        GenericParser full = new GenericParser(g);
+        full.setSharedDefinitions(true);
+        full.compile();
+        Assertions.assertSame(lean.getParserClass(), full.getParserClass());
+
+        // a lean sharer created afterwards does not affect the others
+        GenericParser lean2 = new GenericParser(g);
+        lean2.setSharedDefinitions(true);
+        lean2.compile();
+        lean2.setLean(true);
+
+        for (MemoryTuple tup : lean.getAllCompiledObjects()) {
+            Assertions.assertTrue(tup.getSource().isReleased());
+        }
+        for (MemoryTuple tup : lean2.getAllCompiledObjects()) {
+            Assertions.assertTrue(tup.getSource().isReleased());
+        }
+        for (MemoryTuple tup : full.getAllCompiledObjects()) {
+            Assertions.assertFalse(tup.getSource().getCharContent(false)
+                    .toString().isEmpty());
+        }
+        full.parse("a = b;");
+        lean.parse("a = b;");
+
+        // loaded sharers can still be stored
+        File f = Files.createTempFile("sharedlean", ".ser").toFile();
+        f.deleteOnExit();
+        full.store(f.getAbsolutePath(), true);
+        GenericParser loaded = GenericParser.load(f.getAbsolutePath(), true);
+        Assertions.assertSame(full.getParserClass(), loaded.getParserClass());
+        loaded.store(f.getAbsolutePath(), true);
+        GenericParser.load(f.getAbsolutePath()).parse("a = b;");
+    }
+}
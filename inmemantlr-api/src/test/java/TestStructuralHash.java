@@ -0,0 +1,114 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.snt.inmemantlr.tree.ParseTree;
+import org.snt.inmemantlr.tree.ParseTreeNode;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+
+public class TestStructuralHash {
+
+    private static ParseTreeNode add(ParseTree t, ParseTreeNode par, String
+            rule, String label) {
+        ParseTreeNode n = t.newNode(par, rule, label, 0, 0);
+        par.addChild(n);
+        return n;
+    }
+
+    private static ParseTree build(String... ops) {
+        ParseTree t = new ParseTree("root", "root");
+        for (String op : ops) {
+            ParseTreeNode e = add(t, t.getRoot(), "expr", "1" + op + "2");
+            add(t, e, "", "1");
+            add(t, e, "", op);
+            add(t, e, "", "2");
+        }
+        return t;
+    }
+
+    @Test
+    public void testHashes() {
+        ParseTree a = build("+", "-", "+");
+        ParseTree b = build("+");
+
+        ParseTreeNode a0 = a.getRoot().getChild(0);
+        ParseTreeNode a1 = a.getRoot().getChild(1);
+        ParseTreeNode a2 = a.getRoot().getChild(2);
+        ParseTreeNode b0 = b.getRoot().getChild(0);
+
+        Assertions.assertEquals(a0.getStructuralHash(), a2.getStructuralHash());
+        Assertions.assertEquals(a0.getStructuralHash(), b0.getStructuralHash());
+        Assertions.assertNotEquals(a0.getStructuralHash(), a1
+                .getStructuralHash());
+        Assertions.assertTrue(a0.isStructurallyEqual(b0));
+        Assertions.assertFalse(a0.isStructurallyEqual(a1));
+
+        // mutation invalidates the memoized hashes up to the root
+        int rh = a.getRoot().getStructuralHash();
+        a2.delChild(a2.getLastChild());
+        Assertions.assertNotEquals(a0.getStructuralHash(), a2
+                .getStructuralHash());
+        Assertions.assertNotEquals(rh, a.getRoot().getStructuralHash());
+    }
+
+    @Test
+    public void testIdenticalSubtrees() {
+        ParseTree a = build("+", "-", "+");
+        ParseTree b = build("-");
+
+        Collection<List<ParseTreeNode>> grps = a.getIdenticalSubtrees(n ->
+                "expr".equals(n.getRule()));
+        Assertions.assertEquals(1, grps.size());
+        Assertions.assertEquals(2, grps.iterator().next().size());
+
+        grps = ParseTree.getIdenticalSubtrees(n -> "expr".equals(n.getRule()),
+                Arrays.asList(a, b));
+        Assertions.assertEquals(2, grps.size());
+
+        Assertions.assertEquals(1, a.findIdenticalSubtrees(b.getRoot()
+                .getFirstChild()).size());
+    }
+
+    @Test
+    public void testSubtreeOperations() {
+        ParseTree a = build("+", "-", "+");
+        ParseTree sub = a.getSubtrees(n -> "1-2".equals(n.getLabel()))
+                .iterator().next();
+        Assertions.assertTrue(a.hasSubtree(sub));
+        Assertions.assertEquals(sub, a.getSubtree(sub));
+        Assertions.assertFalse(build("-").hasSubtree(sub));
+
+        int size = a.getNodes().size();
+        Assertions.assertTrue(a.removeSubtree(sub));
+        Assertions.assertEquals(size - 4, a.getNodes().size());
+        Assertions.assertFalse(a.hasSubtree(sub));
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.exceptions.CompilationException;
+import org.snt.inmemantlr.exceptions.ParsingException;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+import org.snt.inmemantlr.token.TokenBuffer;
+import org.snt.inmemantlr.utils.FileUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+
+public class TestTokenize {
+
+    private static GenericParser compile() throws IOException,
+            CompilationException {
+        GenericParser gp;
+        try (InputStream sgrammar = TestTokenize.class.getClassLoader()
+                .getResourceAsStream("inmemantlr/Simple.g4")) {
+            gp = new GenericParser(FileUtils.getStringFromStream(sgrammar));
+        }
+        gp.compile();
+        return gp;
+    }
+
+    @Test
+    public void testTokenBuffer() throws Exception {
+        GenericParser gp = compile();
+        TokenBuffer tb = gp.tokenize("PRINT a+b\nPRINT 'x'");
+
+        Assertions.assertEquals(6, tb.size());
+        String[] txt = {"PRINT", "a", "+", "b", "PRINT", "'x'"};
+        for (int i = 0; i < txt.length; i++) {
+            Assertions.assertEquals(txt[i], tb.getText(i));
+        }
+        Assertions.assertEquals(tb.getType(0), tb.getType(4));
+        Assertions.assertEquals(tb.getType(1), tb.getType(3));
+        Assertions.assertNotEquals(tb.getType(1), tb.getType(2));
+
+        Assertions.assertEquals(1, tb.getLine(3));
+        Assertions.assertEquals(8, tb.getColumn(3));
+        Assertions.assertEquals(8, tb.getStart(3));
+        Assertions.assertEquals(8, tb.getStop(3));
+        Assertions.assertEquals(2, tb.getLine(5));
+        Assertions.assertEquals(6, tb.getColumn(5));
+        Assertions.assertEquals(16, tb.getStart(5));
+        Assertions.assertEquals(18, tb.getStop(5));
+        Assertions.assertEquals(6, tb.getTypes().length);
+
+        Assertions.assertFalse(gp.getErrorListener().hasErrors());
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> tb
+                .getType(6));
+    }
+
+    @Test
+    public void testCallback() throws Exception {
+        GenericParser gp = compile();
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            in.append("PRINT a").append(i).append("+b\n");
+        }
+
+        int[] cnt = {0, 0};
+        gp.tokenize(in.toString(), (type, channel, start, stop, line,
+                                    column) -> {
+            cnt[0]++;
+            cnt[1] = line;
+        });
+        Assertions.assertEquals(4000, cnt[0]);
+        Assertions.assertEquals(1000, cnt[1]);
+
+        // the parser still works with the cached lexer afterwards
+        DefaultTreeListener dt = new DefaultTreeListener(true);
+        gp.setListener(dt);
+        gp.parse("PRINT a+b");
+        // PRINT a + b EOF
+        Assertions.assertEquals(5, dt.getParseTree().getNodes().stream()
+                .filter(n -> n.isTerminal()).count());
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        GenericParser gp = compile();
+        TokenBuffer tb = gp.tokenize("PRINT # a");
+        Assertions.assertEquals(2, tb.size());
+        Assertions.assertTrue(gp.getErrorListener().hasErrors());
+
+        // fail-fast aborts tokenization like parsing
+        gp.setFailFastThreshold(1);
+        ParsingException e = Assertions.assertThrows(ParsingException.class,
+                () -> gp.tokenize("PRINT # a # b"));
+        Assertions.assertEquals(1, e.getErrors().size());
+    }
+}
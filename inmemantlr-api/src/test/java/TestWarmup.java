@@ -0,0 +1,120 @@
+/**
+ * Inmemantlr - In memory compiler for Antlr 4
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.inmemantlr.GenericParser;
+import org.snt.inmemantlr.exceptions.CompilationException;
+import org.snt.inmemantlr.exceptions.DeserializationException;
+import org.snt.inmemantlr.exceptions.IllegalWorkflowException;
+import org.snt.inmemantlr.exceptions.SerializationException;
+import org.snt.inmemantlr.listener.DefaultTreeListener;
+import org.snt.inmemantlr.metrics.HistogramMetricsCollector;
+import org.snt.inmemantlr.metrics.WarmupReport;
+import org.snt.inmemantlr.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+public class TestWarmup {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestWarmup.class);
+
+    private static String load(String res) throws IOException {
+        try (InputStream s = TestWarmup.class.getClassLoader()
+                .getResourceAsStream(res)) {
+            return FileUtils.getStringFromStream(s);
+        }
+    }
+
+    @Test
+    public void testWarmup() throws IOException, CompilationException,
+            IllegalWorkflowException, SerializationException,
+            DeserializationException {
+        GenericParser gp = new GenericParser(load("inmemantlr/Java.g4"));
+        gp.compile();
+
+        List<String> corpus = Arrays.asList(load("inmemantlr/HelloWorld.java"),
+                load("inmemantlr/HelloUniverse.java"), "class {");
+
+        Assertions.assertFalse(gp.isWarmedUp());
+        Assertions.assertEquals(0, gp.getParserDfaStates());
+
+        DefaultTreeListener dl = new DefaultTreeListener();
+        gp.setListener(dl);
+        HistogramMetricsCollector mc = new HistogramMetricsCollector();
+        gp.setMetricsCollector(mc);
+        gp.setProfiling(true);
+
+        WarmupReport rep = gp.warmUp(corpus, "compilationUnit");
+        LOGGER.debug(rep.toString());
+
+        // warm-up parses leave listener, metrics and profile alone
+        Assertions.assertEquals(1, dl.getParseTree().getNodes().size());
+        Assertions.assertEquals(0, mc.getInputSizes().getCount());
+        Assertions.assertEquals(0, gp.getProfilingReport().getParses());
+        Assertions.assertNull(gp.getErrorListener());
+        Assertions.assertSame(mc, gp.getMetricsCollector());
+        gp.setProfiling(false);
+
+        Assertions.assertTrue(gp.isWarmedUp());
+        Assertions.assertEquals(3, rep.getParses());
+        Assertions.assertEquals(1, rep.getFailures());
+        Assertions.assertEquals(0, rep.getParserStatesBefore());
+        Assertions.assertTrue(rep.getParserStatesAfter() > 0);
+        Assertions.assertTrue(rep.getLexerStatesAfter() > 0);
+        Assertions.assertEquals(rep.getParserStatesAfter(), gp
+                .getParserDfaStates());
+
+        // the DFA does not grow when seeing the same inputs again
+        rep = gp.warmUp(corpus, "compilationUnit");
+        Assertions.assertEquals(0, rep.getGrowth());
+
+        // samples are stored along with the parser
+        gp.setSamples(Collections.singletonList(corpus.get(0)));
+
+        File file = File.createTempFile("temp", Long.toString(System
+                .nanoTime()));
+        file.deleteOnExit();
+        gp.store(file.getAbsolutePath(), true);
+
+        GenericParser cgp = GenericParser.load(file.getAbsolutePath());
+        Assertions.assertEquals(1, cgp.getSamples().size());
+        Assertions.assertFalse(cgp.isWarmedUp());
+
+        rep = cgp.warmUp();
+        Assertions.assertTrue(cgp.isWarmedUp());
+        Assertions.assertEquals(0, rep.getFailures());
+        Assertions.assertTrue(rep.getGrowth() > 0);
+    }
+}